@@ -0,0 +1,94 @@
+package chess.chess.bench;
+
+import chess.chess.ChessPiece;
+import chess.chess.GameBoard;
+import chess.chess.Move;
+import chess.chess.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Board copy, mutation and the per-square traversal that ChessGame.refreshBoard
+// performs, without the JavaFX nodes.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    private Position source;
+    private final Position target = new Position();
+    private final ChessPiece[][] arrayCopy = new ChessPiece[8][8];
+    private int e2e4;
+    private int kiwipeteMove;
+
+    @Setup
+    public void setUp() {
+        GameBoard.initializeBoard();
+        source = Position.fromFen(PerftBenchmark.FENS.get("kiwipete"));
+        e2e4 = Move.fromUci(GameBoard.position, "e2e4");
+        kiwipeteMove = Move.fromUci(source, "e5f7");
+    }
+
+    @Benchmark
+    public Position copyPosition() {
+        target.copyFrom(source);
+        return target;
+    }
+
+    @Benchmark
+    public ChessPiece[][] copyPieceArray() {
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                ChessPiece piece = GameBoard.board[row][col];
+                arrayCopy[row][col] = piece == null ? null : new ChessPiece(piece.getType(), piece.isWhite());
+            }
+        }
+        return arrayCopy;
+    }
+
+    @Benchmark
+    public Position copyAndMakeMove() {
+        target.copyFrom(GameBoard.position);
+        target.makeMove(e2e4);
+        return target;
+    }
+
+    @Benchmark
+    public long makeUnmakeMove() {
+        source.makeMove(kiwipeteMove);
+        long hash = source.hash();
+        source.unmakeMove();
+        return hash;
+    }
+
+    @Benchmark
+    public void traverseBoard(Blackhole blackhole) {
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                ChessPiece piece = GameBoard.board[row][col];
+                blackhole.consume((row + col) % 2 == 0);
+                if (piece != null) {
+                    blackhole.consume(piece.getType());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void syncAndTraverseBoard(Blackhole blackhole) {
+        GameBoard.syncBoard();
+        traverseBoard(blackhole);
+    }
+}
\ No newline at end of file
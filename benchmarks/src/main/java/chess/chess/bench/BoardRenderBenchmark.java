@@ -0,0 +1,141 @@
+package chess.chess.bench;
+
+import chess.chess.BoardCanvas;
+import chess.chess.ChessGame;
+import chess.chess.GameBoard;
+import chess.chess.Move;
+import chess.chess.Position;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.TilePane;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+// One ply of a game shown on N boards: ChessGame.refreshBoard on the tile
+// board (64 tiles plus 64 image views per board) against the same refresh on
+// a BoardCanvas, then the frame rendered through Scene.snapshot. Every
+// invocation runs on the FX thread and steps the shared GameBoard one ply
+// further through the Opera Game, restarting after the mate.
+//
+// Needs a display, or JavaFX's headless Monocle platform on the classpath and
+// -Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BoardRenderBenchmark {
+    private static final String[] OPERA_GAME = {
+            "e2e4", "e7e5", "g1f3", "d7d6", "d2d4", "c8g4", "d4e5", "g4f3", "d1f3", "d6e5", "f1c4",
+            "g8f6", "f3b3", "d8e7", "b1c3", "c7c6", "c1g5", "b7b5", "c3b5", "c6b5", "c4b5", "b8d7",
+            "e1c1", "a8d8", "d1d7", "d8d7", "h1d1", "e7e6", "b5d7", "f6d7", "b3b8", "d7b8", "d1d8"
+    };
+    private static final int BOARD_SIZE = 160;
+
+    @Param({"nodes", "canvas"})
+    public String renderer;
+
+    @Param({"1", "50"})
+    public int boards;
+
+    private final List<Position> plies = new ArrayList<>();
+    private final List<ChessGame> games = new ArrayList<>();
+    private final List<BoardCanvas> canvases = new ArrayList<>();
+    private Scene scene;
+    private WritableImage frame;
+    private int ply;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        startToolkit();
+        GameBoard.initializeBoard();
+        Position position = Position.startPosition();
+        plies.add(position.copy());
+        for (String uci : OPERA_GAME) {
+            position.makeMove(Move.fromUci(position, uci));
+            plies.add(position.copy());
+        }
+        onFxThread(() -> {
+            TilePane tiles = new TilePane();
+            tiles.setPrefColumns((int) Math.ceil(Math.sqrt(boards)));
+            for (int i = 0; i < boards; i++) {
+                Node board;
+                if (renderer.equals("canvas")) {
+                    BoardCanvas canvas = new BoardCanvas(BOARD_SIZE);
+                    // every invocation is one finished frame
+                    canvas.setAnimationMillis(0);
+                    canvases.add(canvas);
+                    games.add(ChessGame.onCanvas(canvas));
+                    board = canvas;
+                } else {
+                    GridPane grid = new GridPane();
+                    games.add(new ChessGame(grid));
+                    board = grid;
+                }
+                tiles.getChildren().add(board);
+            }
+            games.forEach(ChessGame::refreshBoard);
+            canvases.forEach(BoardCanvas::paint);
+            scene = new Scene(tiles);
+            frame = scene.snapshot(null);
+            return null;
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Platform.exit();
+    }
+
+    // Refreshing alone would not be a fair half: until a canvas is rendered
+    // its queued drawing commands only pile up.
+    @Benchmark
+    public WritableImage refreshAndRender() throws Exception {
+        return onFxThread(() -> {
+            showNextPly();
+            return scene.snapshot(frame);
+        });
+    }
+
+    private void showNextPly() {
+        ply = (ply + 1) % plies.size();
+        GameBoard.setPosition(plies.get(ply));
+        games.forEach(ChessGame::refreshBoard);
+        canvases.forEach(BoardCanvas::paint);
+    }
+
+    private static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.setImplicitExit(false);
+        Platform.startup(started::countDown);
+        started.await();
+    }
+
+    private static <T> T onFxThread(Callable<T> work) throws Exception {
+        FutureTask<T> task = new FutureTask<>(work);
+        Platform.runLater(task);
+        return task.get();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package chess.chess.bench;
+
+import chess.chess.Evaluation;
+import chess.chess.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of one static evaluation. "cached" is the usual case in search, where
+// the pawn structure is already in the pawn table; "uncached" clears the
+// table first and so also pays for the pawn-structure terms.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+    @Param({"start", "kiwipete", "position3", "position4", "position5"})
+    public String name;
+
+    private Position position;
+    private Evaluation evaluation;
+    private Evaluation uncachedEvaluation;
+
+    @Setup
+    public void setUp() {
+        position = Position.fromFen(PerftBenchmark.FENS.get(name));
+        evaluation = new Evaluation();
+        uncachedEvaluation = new Evaluation(1);
+    }
+
+    @Benchmark
+    public int cached() {
+        return evaluation.evaluate(position);
+    }
+
+    @Benchmark
+    public int uncached() {
+        uncachedEvaluation.pawnTable().clear();
+        return uncachedEvaluation.evaluate(position);
+    }
+}
\ No newline at end of file
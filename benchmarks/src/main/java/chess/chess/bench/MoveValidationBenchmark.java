@@ -0,0 +1,60 @@
+package chess.chess.bench;
+
+import chess.chess.ChessPiece;
+import chess.chess.GameBoard;
+import chess.chess.MoveGenerator;
+import chess.chess.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveValidationBenchmark {
+    private Position kiwipete;
+    private ChessPiece whitePawn;
+    private ChessPiece whiteQueen;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setUp() {
+        GameBoard.initializeBoard();
+        kiwipete = Position.fromFen(PerftBenchmark.FENS.get("kiwipete"));
+        whitePawn = GameBoard.board[6][4];
+        whiteQueen = ChessPiece.of(kiwipete.pieceAt(Position.square("f3")));
+    }
+
+    @Benchmark
+    public boolean pawnDoublePush() {
+        return whitePawn.isValidMove(6, 4, 4, 4, GameBoard.position);
+    }
+
+    @Benchmark
+    public boolean pawnDoublePushFromArray() {
+        return whitePawn.isValidMove(6, 4, 4, 4, GameBoard.board);
+    }
+
+    @Benchmark
+    public boolean queenSlide() {
+        // f3 to f6 in Kiwipete, a capture along a half-open file
+        return whiteQueen.isValidMove(5, 5, 2, 5, kiwipete);
+    }
+
+    @Benchmark
+    public int generateAllMoves() {
+        return MoveGenerator.generate(kiwipete, moves);
+    }
+}
\ No newline at end of file
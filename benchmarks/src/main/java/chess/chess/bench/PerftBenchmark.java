@@ -0,0 +1,70 @@
+package chess.chess.bench;
+
+import chess.chess.Perft;
+import chess.chess.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Perft node counts on the standard test positions. Every invocation checks its
+// total against the published value, so a faster but wrong change fails the run.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PerftBenchmark {
+    static final Map<String, String> FENS = Map.of(
+            "start", Position.START_FEN,
+            "kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "position3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "position4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "position5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    );
+
+    // {depth, expected nodes}
+    static final Map<String, long[]> EXPECTED = Map.of(
+            "start", new long[] {5, 4_865_609},
+            "kiwipete", new long[] {4, 4_085_603},
+            "position3", new long[] {6, 11_030_083},
+            "position4", new long[] {5, 15_833_292},
+            "position5", new long[] {4, 2_103_487}
+    );
+
+    @Param({"start", "kiwipete", "position3", "position4", "position5"})
+    public String name;
+
+    private Position position;
+    private int depth;
+    private long expected;
+    private Perft perft;
+
+    @Setup
+    public void setUp() {
+        position = Position.fromFen(FENS.get(name));
+        depth = (int) EXPECTED.get(name)[0];
+        expected = EXPECTED.get(name)[1];
+        perft = new Perft();
+    }
+
+    @Benchmark
+    public long perft() {
+        long nodes = perft.perft(position, depth);
+        if (nodes != expected) {
+            throw new IllegalStateException("perft(" + depth + ") of " + name + " = " + nodes + ", expected " + expected);
+        }
+        return nodes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package chess.chess.bench;
+
+import chess.chess.Position;
+import chess.chess.TablebaseGenerator;
+import chess.chess.Tablebases;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Cost of one tablebase probe from the memory-mapped files, and of the
+// early-out every search node with too many pieces pays. Setup generates
+// KQKR and the tables it depends on into a temporary directory, which takes
+// a few seconds.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TablebaseBenchmark {
+    static final Map<String, String> FENS = Map.of(
+            "kqk", "8/8/8/3k4/8/8/8/KQ6 w - - 0 1",
+            "kqkr", "8/8/8/3k4/8/8/8/KQ5r w - - 0 1",
+            "krkq", "8/8/8/3K4/8/8/8/kq5R b - - 0 1",
+            "start", Position.START_FEN);
+
+    @Param({"kqk", "kqkr", "krkq", "start"})
+    public String name;
+
+    private Path directory;
+    private Position position;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tablebases");
+        try (TablebaseGenerator generator = new TablebaseGenerator(directory, Runtime.getRuntime().availableProcessors())) {
+            generator.generate("KQKR");
+        }
+        position = Position.fromFen(FENS.get(name));
+    }
+
+    @Benchmark
+    public int probe() {
+        return Tablebases.probe(position);
+    }
+
+    // the mappings stay valid after the files are unlinked
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package chess.chess.bench;
+
+import chess.chess.GameTimeline;
+import chess.chess.MoveGenerator;
+import chess.chess.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Showing a random ply of a long game: GameTimeline.seek against replaying
+// every move from the start. The game is random moves, played on past the
+// draw rules, so the repetition window is as long as it gets.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimelineBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int plies;
+
+    private final Position target = new Position();
+    private Position start;
+    private int[] moves;
+    private GameTimeline timeline;
+    private final int[] seekPlies = new int[1024];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        start = Position.startPosition();
+        timeline = new GameTimeline(start);
+        Position position = start.copy();
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        while (timeline.length() < plies) {
+            int count = MoveGenerator.generate(position, legal);
+            if (count == 0) {
+                break;
+            }
+            int move = legal[random.nextInt(count)];
+            position.makeMove(move);
+            timeline.append(move);
+        }
+        moves = new int[timeline.length()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = timeline.move(i);
+        }
+        for (int i = 0; i < seekPlies.length; i++) {
+            seekPlies[i] = random.nextInt(timeline.length() + 1);
+        }
+    }
+
+    @Benchmark
+    public long seek() {
+        timeline.seek(seekPlies[next++ & (seekPlies.length - 1)], target);
+        return target.hash();
+    }
+
+    @Benchmark
+    public long replayFromStart() {
+        int ply = seekPlies[next++ & (seekPlies.length - 1)];
+        target.copyFrom(start);
+        for (int i = 0; i < ply; i++) {
+            target.makeMove(moves[i]);
+        }
+        return target.hash();
+    }
+}
\ No newline at end of file
@@ -1,12 +1,26 @@
 package chess.chess;
 
 public class ChessPiece {
+    private static final ChessPiece[] SHARED = new ChessPiece[12];
+
+    static {
+        for (int piece = 0; piece < 12; piece++) {
+            SHARED[piece] = new ChessPiece(String.valueOf(Position.pieceSymbol(piece)), Position.colorOf(piece) == Position.WHITE);
+        }
+    }
+
     private final String type;
     private final boolean isWhite;
+    private final int pieceCode;
 
     public ChessPiece(String type, boolean isWhite) {
         this.type = type;
         this.isWhite = isWhite;
+        this.pieceCode = type.length() == 1 ? Position.pieceFromSymbol(type.charAt(0)) : Position.NO_PIECE;
+    }
+
+    public static ChessPiece of(int pieceCode) {
+        return pieceCode == Position.NO_PIECE ? null : SHARED[pieceCode];
     }
 
     public String getType() {
@@ -17,89 +31,44 @@ public class ChessPiece {
         return isWhite;
     }
 
-    public boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol, ChessPiece[][] board) {
-        if (toRow < 0 || toRow >= 8 || toCol < 0 || toCol >= 8) {
-            return false;
-        }
+    public int getPieceCode() {
+        return pieceCode;
+    }
 
-        ChessPiece targetPiece = board[toRow][toCol];
-        if (targetPiece != null && targetPiece.isWhite() == this.isWhite) {
+    // The board carries no turn or history, so the move is checked as if this
+    // piece's side were to move, with the castling rights Position.fromBoard
+    // derives and no en passant. A board that is not a position, e.g. one
+    // without a king, has no valid moves.
+    public boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol, ChessPiece[][] board) {
+        Position position;
+        try {
+            position = Position.fromBoard(board, isWhite);
+        } catch (IllegalArgumentException e) {
             return false;
         }
-
-        switch (type) {
-            case "P": case "p":
-                return isValidPawnMove(fromRow, fromCol, toRow, toCol, board);
-            case "R": case "r":
-                return isStraightMove(fromRow, fromCol, toRow, toCol, board);
-            case "N": case "n":
-                return isKnightMove(fromRow, fromCol, toRow, toCol);
-            case "B": case "b":
-                return isDiagonalMove(fromRow, fromCol, toRow, toCol, board);
-            case "Q": case "q":
-                return isStraightMove(fromRow, fromCol, toRow, toCol, board) || isDiagonalMove(fromRow, fromCol, toRow, toCol, board);
-            case "K": case "k":
-                return isKingMove(fromRow, fromCol, toRow, toCol);
-            default:
-                return false;
-        }
+        return isValidMove(fromRow, fromCol, toRow, toCol, position);
     }
 
-    private boolean isValidPawnMove(int fromRow, int fromCol, int toRow, int toCol, ChessPiece[][] board) {
-        int direction = isWhite ? -1 : 1;
-
-        if (fromCol == toCol && board[toRow][toCol] == null) {
-            if (toRow == fromRow + direction) return true;
-            if ((fromRow == 1 && isWhite) || (fromRow == 6 && !isWhite))
-                return toRow == fromRow + 2 * direction && board[fromRow + direction][toCol] == null;
-        }
-
-        if (Math.abs(fromCol - toCol) == 1 && toRow == fromRow + direction && board[toRow][toCol] != null) {
-            return true;
-        }
-
-        return false;
+    // A move is valid when it is fully legal in the position: the mover must be
+    // this piece's color, and checks, pins, castling and en passant are honored.
+    public boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol, Position position) {
+        Metrics.MoveValidationEvent event = Metrics.beginValidation();
+        long start = Metrics.start();
+        boolean valid = isLegal(fromRow, fromCol, toRow, toCol, position);
+        boolean onBoard = toRow >= 0 && toRow < 8 && toCol >= 0 && toCol < 8;
+        Metrics.validated(event, start, Position.square(fromRow, fromCol),
+                onBoard ? Position.square(toRow, toCol) : Position.NO_SQUARE, valid);
+        return valid;
     }
 
-    private boolean isStraightMove(int fromRow, int fromCol, int toRow, int toCol, ChessPiece[][] board) {
-        if (fromRow == toRow) {
-            int step = (toCol > fromCol) ? 1 : -1;
-            for (int col = fromCol + step; col != toCol; col += step)
-                if (board[fromRow][col] != null) return false;
-            return true;
-        }
-
-        if (fromCol == toCol) {
-            int step = (toRow > fromRow) ? 1 : -1;
-            for (int row = fromRow + step; row != toRow; row += step)
-                if (board[row][fromCol] != null) return false;
-            return true;
+    private boolean isLegal(int fromRow, int fromCol, int toRow, int toCol, Position position) {
+        if (toRow < 0 || toRow >= 8 || toCol < 0 || toCol >= 8) {
+            return false;
         }
-
-        return false;
-    }
-
-    private boolean isKnightMove(int fromRow, int fromCol, int toRow, int toCol) {
-        return (Math.abs(fromRow - toRow) == 2 && Math.abs(fromCol - toCol) == 1) ||
-                (Math.abs(fromRow - toRow) == 1 && Math.abs(fromCol - toCol) == 2);
-    }
-
-    private boolean isDiagonalMove(int fromRow, int fromCol, int toRow, int toCol, ChessPiece[][] board) {
-        if (Math.abs(fromRow - toRow) == Math.abs(fromCol - toCol)) {
-            int rowStep = (toRow > fromRow) ? 1 : -1;
-            int colStep = (toCol > fromCol) ? 1 : -1;
-            int row = fromRow + rowStep, col = fromCol + colStep;
-            while (row != toRow && col != toCol) {
-                if (board[row][col] != null) return false;
-                row += rowStep;
-                col += colStep;
-            }
-            return true;
+        int from = Position.square(fromRow, fromCol);
+        if (position.pieceAt(from) != pieceCode || position.isWhiteToMove() != isWhite) {
+            return false;
         }
-        return false;
-    }
-
-    private boolean isKingMove(int fromRow, int fromCol, int toRow, int toCol) {
-        return Math.abs(fromRow - toRow) <= 1 && Math.abs(fromCol - toCol) <= 1;
+        return MoveGenerator.findMove(position, from, Position.square(toRow, toCol), Position.QUEEN) != Move.NONE;
     }
 }
\ No newline at end of file
@@ -1,29 +1,178 @@
 package chess.chess;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Node;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
 public class Main extends Application {
     private static final int TILE_SIZE = 80;
     private static final int BOARD_SIZE = 8;
+    private static final int ANALYSIS_BAR_HEIGHT = 24;
+    private static final int TIMELINE_HEIGHT = 24;
+
+    // set while the slider follows the game, so its change is not taken as a seek
+    private boolean syncingTimeline = false;
 
+    // The database is not touched before the window is up: it starts in the
+    // background once the first frame is shown.
     public static void main(String[] args) {
         GameBoard.initializeBoard();
-        DatabaseManager.initializeDatabase();
         launch(args);
     }
 
     @Override
     public void start(Stage primaryStage) {
-        GridPane grid = new GridPane();
-        ChessGame game = new ChessGame(grid);
+        // --renderer=canvas draws the board on one canvas that grows and
+        // shrinks with the window instead of on 64 tile nodes
+        Node board;
+        ChessGame game;
+        if ("canvas".equalsIgnoreCase(getParameters().getNamed().get("renderer"))) {
+            BoardCanvas canvas = new BoardCanvas(TILE_SIZE * BOARD_SIZE);
+            game = ChessGame.onCanvas(canvas);
+            board = canvas;
+        } else {
+            GridPane grid = new GridPane();
+            game = new ChessGame(grid);
+            board = grid;
+        }
+        game.setStatusListener(status -> primaryStage.setTitle("Chess Game - " + status));
         game.refreshBoard();
+        Label analysisBar = new Label();
+        analysisBar.setMinHeight(ANALYSIS_BAR_HEIGHT);
+        game.setAnalysisListener(analysisBar::setText);
+
+        // scrubs through the moves played so far
+        Slider timeline = new Slider(0, 0, 0);
+        timeline.setMinHeight(TIMELINE_HEIGHT);
+        timeline.setBlockIncrement(1);
+        timeline.setDisable(true);
+        // arrow keys step through the game instead of moving the slider
+        timeline.setFocusTraversable(false);
+        timeline.valueProperty().addListener((observable, before, value) -> {
+            if (!syncingTimeline) {
+                game.seek((int) Math.round(value.doubleValue()));
+            }
+        });
+        game.setTimelineListener(() -> {
+            syncingTimeline = true;
+            timeline.setMax(game.getTimelineLength());
+            timeline.setValue(game.getViewPly());
+            timeline.setDisable(game.getTimelineLength() == 0);
+            syncingTimeline = false;
+        });
+
+        // --engine=white or --engine=black lets the computer play that side
+        String engineSide = getParameters().getNamed().get("engine");
+        if ("white".equalsIgnoreCase(engineSide)) {
+            game.setEngineColor(Position.WHITE);
+        } else if ("black".equalsIgnoreCase(engineSide)) {
+            game.setEngineColor(Position.BLACK);
+        }
+        // --analysis=on starts with background analysis running
+        game.setAnalysisEnabled("on".equalsIgnoreCase(getParameters().getNamed().get("analysis")));
 
-        Scene scene = new Scene(grid, TILE_SIZE * BOARD_SIZE, TILE_SIZE * BOARD_SIZE);
-        primaryStage.setTitle("Chess Game");
+        // --game=<id> continues a game stored in the database
+        String gameId = getParameters().getNamed().get("game");
+        if (gameId != null) {
+            loadGame(game, Long.parseLong(gameId));
+        }
+
+        BorderPane root = new BorderPane(board);
+        root.setBottom(new VBox(timeline, analysisBar));
+        Scene scene = new Scene(root, TILE_SIZE * BOARD_SIZE,
+                TILE_SIZE * BOARD_SIZE + TIMELINE_HEIGHT + ANALYSIS_BAR_HEIGHT);
+        // H marks a suggested move, A toggles background analysis, the arrow
+        // keys, Home and End step through the game
+        scene.setOnKeyPressed(event -> {
+            switch (event.getCode()) {
+                case H -> game.showHint();
+                case A -> game.setAnalysisEnabled(!game.isAnalysisEnabled());
+                case LEFT -> game.step(-1);
+                case RIGHT -> game.step(1);
+                case HOME -> game.seek(0);
+                case END -> game.seek(game.getTimelineLength());
+                default -> { }
+            }
+        });
         primaryStage.setScene(scene);
         primaryStage.show();
+        afterFirstFrame(scene, this::firstFrameShown);
+    }
+
+    // --startup=log prints the time to the first frame and the resident memory
+    // then; --startup=exit does the same and quits, for measuring cold starts
+    // and for the AppCDS training run of the appcds profile.
+    private void firstFrameShown() {
+        String startup = getParameters().getNamed().get("startup");
+        if (startup != null) {
+            System.out.println("First frame after " + ManagementFactory.getRuntimeMXBean().getUptime()
+                    + " ms, " + residentMemory() + " resident");
+        }
+        if ("exit".equalsIgnoreCase(startup)) {
+            Platform.exit();
+            return;
+        }
+        DatabaseManager.initializeDatabaseInBackground();
+    }
+
+    // Runs action once the first pulse has laid the scene out and handed it to
+    // the renderer.
+    private static void afterFirstFrame(Scene scene, Runnable action) {
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            Platform.runLater(action);
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+
+    // VmRSS of this process on Linux, "unknown" elsewhere.
+    private static String residentMemory() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return line.substring("VmRSS:".length()).trim();
+                }
+            }
+        } catch (IOException e) {
+            // not Linux
+        }
+        return "unknown";
+    }
+
+    // Reads the game off the FX thread and hands it to the board once loaded.
+    private static void loadGame(ChessGame game, long gameId) {
+        Thread.ofVirtual().name("load-game").start(() -> {
+            DatabaseManager.initializeDatabaseInBackground().join();
+            try {
+                StoredGame stored = new OpeningExplorer(DatabaseManager.getPool()).loadGame(gameId);
+                if (stored == null) {
+                    System.err.println("No game " + gameId + " in the database");
+                    return;
+                }
+                Platform.runLater(() -> {
+                    try {
+                        game.loadGame(stored);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println(e.getMessage());
+                    }
+                });
+            } catch (SQLException e) {
+                System.err.println("Could not load game " + gameId + ": " + e.getMessage());
+            }
+        });
     }
 }
\ No newline at end of file
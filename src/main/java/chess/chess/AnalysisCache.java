@@ -0,0 +1,225 @@
+package chess.chess;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Search results that outlive the process: best move, score, depth and
+// search time of every analysed root position, keyed by Position.hash() and
+// kept in a memory-mapped file, so nothing of it is on the Java heap and its
+// size does not count against -Xmx.
+//
+// Slots are 16 bytes, the key XOR the data and the data, read and written as
+// whole longs like TranspositionTable entries; a torn slot reads as a miss.
+// Four slots form a 64-byte bucket. A full bucket replaces by the clock, or
+// second-chance, policy: every hit sets the slot's referenced bit, and the
+// bucket's hand skips and clears referenced slots until it finds one that
+// was not used since the hand last passed. New entries start unreferenced,
+// so a stream of one-off positions cannot push out the ones that are asked
+// for again.
+//
+// Layout, little-endian:
+//   header  magic, version, bucket count (64 bytes)
+//   hands   one byte per bucket, padded to 64 bytes
+//   slots   BUCKET_SLOTS per bucket
+public class AnalysisCache implements AutoCloseable {
+    static final int MAGIC = 0x43414843; // "CHAC"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int SLOT_SIZE = 16;
+    static final int BUCKET_SLOTS = 4;
+    public static final int DEFAULT_SIZE_MB = 64;
+    public static final int MAX_SIZE_MB = 1024;
+
+    static final Path FILE = Paths.get(System.getProperty("chess.cache.file",
+            Paths.get(System.getProperty("user.home"), ".chess", "analysis.cache").toString()));
+    static final int SIZE_MB = Integer.getInteger("chess.cache.mb", DEFAULT_SIZE_MB);
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long REFERENCED = 1L << 48;
+    // set in every stored slot, so a stored entry never reads as empty
+    private static final long USED = 1L << 49;
+
+    private static AnalysisCache shared;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int buckets;
+    private final long slotsOffset;
+
+    private AnalysisCache(FileChannel channel, MappedByteBuffer data, int buckets) {
+        this.channel = channel;
+        this.data = data;
+        this.buckets = buckets;
+        slotsOffset = HEADER_SIZE + align(buckets);
+    }
+
+    // Opens the file, or starts it over when it is missing, damaged or of a
+    // different size.
+    public static AnalysisCache open(Path file, int sizeMb) throws IOException {
+        int mb = Math.max(1, Math.min(sizeMb, MAX_SIZE_MB));
+        int buckets = Integer.highestOneBit((int) ((long) mb * 1024 * 1024 / (BUCKET_SLOTS * SLOT_SIZE + 1)));
+        long size = HEADER_SIZE + align(buckets) + (long) buckets * BUCKET_SLOTS * SLOT_SIZE;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean fresh = channel.size() != size;
+            if (fresh) {
+                channel.truncate(0);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            if (fresh || data.getInt(0) != MAGIC || data.getShort(4) != VERSION || data.getInt(8) != buckets) {
+                // a new file reads as zeros already
+                for (long offset = 0; !fresh && offset < size; offset += 8) {
+                    data.putLong((int) offset, 0);
+                }
+                data.putInt(0, MAGIC);
+                data.putShort(4, (short) VERSION);
+                data.putInt(8, buckets);
+            }
+            return new AnalysisCache(channel, data, buckets);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // The cache at chess.cache.file with chess.cache.mb megabytes, opened on
+    // first use and flushed at exit; null if the file cannot be opened.
+    public static synchronized AnalysisCache shared() {
+        if (shared == null) {
+            try {
+                shared = open(FILE, SIZE_MB);
+                AnalysisCache cache = shared;
+                Runtime.getRuntime().addShutdownHook(new Thread(cache::close, "analysis-cache-flush"));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Analysis cache unavailable: " + e.getMessage());
+                return null;
+            }
+        }
+        return shared;
+    }
+
+    // Returns the packed slot data, or 0 when the position is not stored.
+    public long probe(long key) {
+        long bucket = bucketOffset(key);
+        for (int i = 0; i < BUCKET_SLOTS; i++) {
+            long slot = bucket + (long) i * SLOT_SIZE;
+            long stored = read(slot + 8);
+            if (stored != 0 && (read(slot) ^ stored) == key) {
+                if ((stored & REFERENCED) == 0) {
+                    write(slot, key, stored | REFERENCED);
+                }
+                return stored;
+            }
+        }
+        return 0;
+    }
+
+    // Keeps the deeper or longer of two analyses of the same position.
+    public void store(long key, int move, int score, int depth, long millis) {
+        long tenths = Math.min(255, (millis + 99) / 100);
+        long packed = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) (depth & 0xFF) << 32)
+                | (tenths << 40)
+                | USED;
+        long bucket = bucketOffset(key);
+        long empty = -1;
+        for (int i = 0; i < BUCKET_SLOTS; i++) {
+            long slot = bucket + (long) i * SLOT_SIZE;
+            long stored = read(slot + 8);
+            if (stored == 0) {
+                if (empty < 0) {
+                    empty = slot;
+                }
+            } else if ((read(slot) ^ stored) == key) {
+                if (depth(packed) >= depth(stored) || millis(packed) >= millis(stored)) {
+                    write(slot, key, packed | REFERENCED);
+                }
+                return;
+            }
+        }
+        write(empty >= 0 ? empty : victim(key), key, packed);
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    // Time the search that produced the entry ran, rounded up to a tenth of a
+    // second.
+    public static long millis(long data) {
+        return ((data >>> 40) & 0xFF) * 100;
+    }
+
+    public int capacity() {
+        return buckets * BUCKET_SLOTS;
+    }
+
+    // Writes dirty pages back to the file. The mapping stays usable, so a
+    // search still running at exit does not fail.
+    @Override
+    public void close() {
+        try {
+            data.force();
+            channel.close();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cannot flush the analysis cache: " + e.getMessage());
+        }
+    }
+
+    // Advances the bucket's clock hand past referenced slots, clearing their
+    // bits, and returns the first slot that was not referenced.
+    private long victim(long key) {
+        int bucketIndex = (int) key & (buckets - 1);
+        long bucket = bucketOffset(key);
+        int hand = data.get(HEADER_SIZE + bucketIndex) & (BUCKET_SLOTS - 1);
+        for (int step = 0; step < 2 * BUCKET_SLOTS; step++) {
+            long slot = bucket + (long) hand * SLOT_SIZE;
+            hand = (hand + 1) & (BUCKET_SLOTS - 1);
+            long stored = read(slot + 8);
+            if ((stored & REFERENCED) == 0) {
+                data.put(HEADER_SIZE + bucketIndex, (byte) hand);
+                return slot;
+            }
+            write(slot, read(slot) ^ stored, stored & ~REFERENCED);
+        }
+        // every slot was referenced again while the hand went round
+        data.put(HEADER_SIZE + bucketIndex, (byte) hand);
+        return bucket + (long) hand * SLOT_SIZE;
+    }
+
+    private long bucketOffset(long key) {
+        return slotsOffset + ((long) ((int) key & (buckets - 1))) * BUCKET_SLOTS * SLOT_SIZE;
+    }
+
+    private long read(long offset) {
+        return (long) LONGS.getOpaque(data, (int) offset);
+    }
+
+    private void write(long slot, long key, long packed) {
+        LONGS.setOpaque(data, (int) slot, key ^ packed);
+        LONGS.setOpaque(data, (int) slot + 8, packed);
+    }
+
+    private static long align(int bytes) {
+        return (bytes + 63L) & ~63L;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package chess.chess;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Keeps an engine thinking about the board's position in the background and
+// reports its progress to the FX thread. analyze() only copies the position
+// and raises the stop flag, which every search node reads, so the old search
+// winds down within microseconds and the next one starts on the driver
+// thread; nothing here ever blocks the caller.
+//
+// The engine leaves one core to the UI. Progress is published at most once a
+// frame: a ticker samples the newest iteration and node count and posts a
+// single Platform.runLater, skipping frames while the previous update has not
+// been shown yet. Updates for a position the board has since left are
+// dropped before they reach the listener.
+public class AnalysisService implements AutoCloseable {
+    static final long FRAME_NANOS = 1_000_000_000L / 60;
+
+    private final Engine engine;
+    private final Executor uiThread;
+    private final Consumer<SearchResult> listener;
+    private final ExecutorService driver = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "analysis-driver"));
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "analysis-ticker"));
+
+    // bumped by every analyze() and stop(); a search or update of an older
+    // generation is stale
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    private volatile int searching = -1;
+    private volatile long searchStartNanos;
+    private volatile Progress latest;
+    private Progress lastPublished;
+
+    private record Progress(int generation, SearchResult result) {
+    }
+
+    // Delivers updates to the listener on the JavaFX application thread.
+    public AnalysisService(Consumer<SearchResult> listener) {
+        this(new Engine(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), Engine.DEFAULT_HASH_MB),
+                Platform::runLater, listener);
+    }
+
+    AnalysisService(Engine engine, Executor uiThread, Consumer<SearchResult> listener) {
+        this.engine = engine;
+        this.uiThread = uiThread;
+        this.listener = listener;
+        ticker.scheduleWithFixedDelay(this::publish, FRAME_NANOS, FRAME_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    public void setAnalysisCache(AnalysisCache cache) {
+        engine.setAnalysisCache(cache);
+    }
+
+    // Drops whatever is being analysed and starts on a copy of the position.
+    public void analyze(Position position) {
+        Position snapshot = position.copy();
+        int current = generation.incrementAndGet();
+        engine.stop();
+        long searchId = engine.newSearchId();
+        driver.execute(() -> run(snapshot, current, searchId));
+    }
+
+    public void stop() {
+        generation.incrementAndGet();
+        engine.stop();
+    }
+
+    @Override
+    public void close() {
+        stop();
+        ticker.shutdownNow();
+        driver.shutdownNow();
+        engine.close();
+    }
+
+    private void run(Position position, int current, long searchId) {
+        if (generation.get() != current) {
+            // superseded while queued behind the previous search
+            return;
+        }
+        searching = current;
+        searchStartNanos = System.nanoTime();
+        engine.search(position, new SearchLimits(), result -> {
+            if (generation.get() == current) {
+                latest = new Progress(current, result);
+            }
+        }, searchId);
+        searching = -1;
+    }
+
+    // Runs on the ticker once a frame.
+    private void publish() {
+        Progress progress = latest;
+        int current = generation.get();
+        boolean running = searching == current;
+        if (progress == null || progress.generation != current || (progress == lastPublished && !running)
+                || !updatePending.compareAndSet(false, true)) {
+            return;
+        }
+        lastPublished = progress;
+        SearchResult result = progress.result;
+        // the node count moves on between iterations, so the rate is live
+        long nodes = running ? engine.totalNodes() : result.nodes();
+        long elapsed = running ? (System.nanoTime() - searchStartNanos) / 1_000_000 : result.elapsedMillis();
+        SearchResult update = new SearchResult(result.bestMove(), result.score(), result.depth(), nodes, elapsed, result.pv());
+        uiThread.execute(() -> {
+            updatePending.set(false);
+            if (generation.get() == current) {
+                listener.accept(update);
+            }
+        });
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
\ No newline at end of file
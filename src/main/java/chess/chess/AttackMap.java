@@ -0,0 +1,166 @@
+package chess.chess;
+
+import java.util.Arrays;
+
+// Attack bitboards of both sides for one Position, kept up to date move by
+// move instead of being rebuilt. Every square remembers what the piece on it
+// attacks; after a move only the pieces standing on the squares the move
+// touched, plus the sliders whose rays crossed one of those squares, are
+// recomputed. Legal destinations are generated once per position on the
+// first query and bucketed by origin square, so highlighting, check and
+// game-over queries are all a lookup.
+//
+// The map follows the position only through update() and reset(); call one
+// of them after every change to the position it was built for.
+public final class AttackMap {
+    private final Position position;
+    private final long[] attacksFrom = new long[64];
+    private final long[] sideAttacks = new long[2];
+
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+    private final long[] legalTargets = new long[64];
+    private int legalMoveCount;
+    private boolean legalMovesValid;
+
+    public AttackMap(Position position) {
+        this.position = position;
+        reset();
+    }
+
+    // Rebuilds everything from scratch, e.g. after unmakeMove or loading a FEN.
+    public void reset() {
+        long occupied = position.occupied();
+        Arrays.fill(attacksFrom, 0);
+        long pieces = occupied;
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            attacksFrom[square] = attacksOf(position.pieceAt(square), square, occupied);
+        }
+        rebuildSideAttacks();
+        legalMovesValid = false;
+    }
+
+    // Brings the map up to date after position.makeMove(move).
+    public void update(int move) {
+        long changed = changedSquares(move);
+        long occupied = position.occupied();
+
+        // sliders whose rays ran into or through a changed square see further
+        // or less far now; attacksFrom still holds their rays from before the move
+        long sliders = position.pieces(Position.WHITE, Position.BISHOP) | position.pieces(Position.WHITE, Position.ROOK)
+                | position.pieces(Position.WHITE, Position.QUEEN) | position.pieces(Position.BLACK, Position.BISHOP)
+                | position.pieces(Position.BLACK, Position.ROOK) | position.pieces(Position.BLACK, Position.QUEEN);
+        long stale = changed;
+        long candidates = sliders & ~changed;
+        while (candidates != 0) {
+            int square = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            if ((attacksFrom[square] & changed) != 0) {
+                stale |= Bitboards.bit(square);
+            }
+        }
+
+        while (stale != 0) {
+            int square = Long.numberOfTrailingZeros(stale);
+            stale &= stale - 1;
+            int piece = position.pieceAt(square);
+            attacksFrom[square] = piece == Position.NO_PIECE ? 0 : attacksOf(piece, square, occupied);
+        }
+        rebuildSideAttacks();
+        legalMovesValid = false;
+    }
+
+    // Every square the given side attacks, whether or not the attacking piece
+    // is pinned.
+    public long attackedBy(int color) {
+        return sideAttacks[color];
+    }
+
+    public long attacksFrom(int square) {
+        return attacksFrom[square];
+    }
+
+    public boolean isInCheck(int color) {
+        return (sideAttacks[color ^ 1] & position.pieces(color, Position.KING)) != 0;
+    }
+
+    // Squares the piece on the given square can legally move to; empty if it
+    // is not the side to move's piece.
+    public long legalTargets(int square) {
+        ensureLegalMoves();
+        return legalTargets[square];
+    }
+
+    public int legalMoveCount() {
+        ensureLegalMoves();
+        return legalMoveCount;
+    }
+
+    public boolean isCheckmate() {
+        return legalMoveCount() == 0 && isInCheck(position.sideToMove());
+    }
+
+    public boolean isStalemate() {
+        return legalMoveCount() == 0 && !isInCheck(position.sideToMove());
+    }
+
+    // Same answer as Game.status(position), without generating the moves again
+    // for every call.
+    public GameStatus status() {
+        if (legalMoveCount() == 0) {
+            if (!isInCheck(position.sideToMove())) {
+                return GameStatus.STALEMATE;
+            }
+            return position.isWhiteToMove() ? GameStatus.BLACK_WINS : GameStatus.WHITE_WINS;
+        }
+        return Game.drawStatus(position);
+    }
+
+    public boolean isGameOver() {
+        return status().isOver();
+    }
+
+    private void ensureLegalMoves() {
+        if (legalMovesValid) {
+            return;
+        }
+        Arrays.fill(legalTargets, 0);
+        legalMoveCount = MoveGenerator.generate(position, legalMoves);
+        for (int i = 0; i < legalMoveCount; i++) {
+            legalTargets[Move.from(legalMoves[i])] |= Bitboards.bit(Move.to(legalMoves[i]));
+        }
+        legalMovesValid = true;
+    }
+
+    private void rebuildSideAttacks() {
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            long attacks = 0;
+            long pieces = position.colorPieces(color);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                attacks |= attacksFrom[square];
+            }
+            sideAttacks[color] = attacks;
+        }
+    }
+
+    private static long attacksOf(int piece, int square, long occupied) {
+        return Attacks.pieceAttacks(Position.typeOf(piece), Position.colorOf(piece), square, occupied);
+    }
+
+    // Squares whose contents the move changed.
+    private static long changedSquares(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        long changed = Bitboards.bit(from) | Bitboards.bit(to);
+        switch (Move.flag(move)) {
+            case Move.EP_CAPTURE -> changed |= Bitboards.bit(to ^ 8);
+            case Move.KING_CASTLE -> changed |= Bitboards.bit(to + 1) | Bitboards.bit(to - 1);
+            case Move.QUEEN_CASTLE -> changed |= Bitboards.bit(to - 2) | Bitboards.bit(to + 1);
+            default -> { }
+        }
+        return changed;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,221 @@
+package chess.chess;
+
+// Precomputed attack tables. Leapers use one entry per square; sliders use
+// "fancy" magic bitboards: the relevant occupancy is multiplied by a per-square
+// magic number and the top bits index straight into a shared attack table.
+//
+// The magics were found once by trial with sparse random numbers and are kept
+// as constants, so building the tables is one pass over each square's
+// occupancies instead of a search on every start.
+public final class Attacks {
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = {
+            0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L, 0x0880100008000480L,
+            0x4200100420080200L, 0x8100020100080400L, 0x0200040110886200L, 0x0200008040220411L,
+            0x0404800084400220L, 0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+            0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L, 0x0442000102105084L,
+            0x9080010020804100L, 0x0040404000201009L, 0x0000808010002009L, 0x2200090021D00100L,
+            0x0008008008040080L, 0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+            0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L, 0x1000100080080080L,
+            0x0050500500080100L, 0x0000020080040080L, 0x0C10010400420810L, 0x1040008200005104L,
+            0x01808240088004A0L, 0x0882804004802000L, 0x0880402001001100L, 0x2000210409001000L,
+            0x2000480131001500L, 0x0000800400800200L, 0x000002380C001003L, 0x4600084882000431L,
+            0x0080002000504000L, 0x0300500020004002L, 0x0040408200220011L, 0x0010040008004040L,
+            0x0000080004008080L, 0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+            0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L, 0x0801100280080480L,
+            0x0242009008200600L, 0x1002000489500200L, 0x0040800200010080L, 0x0091800041000080L,
+            0x0000209300488001L, 0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+            0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L, 0x4000002840840112L
+    };
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final int[] ROOK_OFFSET = new int[64];
+    private static final long[] ROOK_TABLE = new long[102400];
+
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] BISHOP_MAGIC = {
+            0x20C0090901061081L, 0x0024040094030104L, 0x8210810200290200L, 0x0011040484620000L,
+            0x0081104002221000L, 0x0009012011001350L, 0x0081010802400380L, 0x0000420210010408L,
+            0x0008105002280050L, 0x0001028484040044L, 0x2A00880810408804L, 0x7020022282000100L,
+            0x0084040420100A50L, 0x000401010840E000L, 0x2020020210420888L, 0x0008084202012010L,
+            0x2010400810018800L, 0x0445122008020840L, 0x0804100808002008L, 0x0008002104110100L,
+            0x0061005820080800L, 0x2001000200820100L, 0x480C210084010800L, 0x3004442500480420L,
+            0x1010102240048100L, 0x00182009084220A3L, 0x8803090A10004205L, 0x0208080040202020L,
+            0x000C044084010040L, 0x00A1010002004106L, 0x6008210020640202L, 0x1600902112860801L,
+            0x00042008C1220200L, 0x010C042002440140L, 0x5022080200040820L, 0x0402004042940100L,
+            0x0860108400008020L, 0x000C080022021000L, 0x0264080652822100L, 0x4005031221010401L,
+            0x0004502410008400L, 0x000500B010A20400L, 0x0415094050080800L, 0x080000201800A104L,
+            0x4022A80304000110L, 0x4012140802028020L, 0x40200104010100A0L, 0x12810806008B0C41L,
+            0x0020441008080000L, 0x2002120084045420L, 0x0704020062080002L, 0x0000001084040001L,
+            0x0322200891240200L, 0xF040200210024800L, 0x0140824832008042L, 0x000210020A004602L,
+            0x0083042805141020L, 0x002C12009A011000L, 0x0041A00044140400L, 0x00004004020A0202L,
+            0x0000140010020210L, 0x2864160811012200L, 0x2060080841082A17L, 0xA010041108003100L
+    };
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final int[] BISHOP_OFFSET = new int[64];
+    private static final long[] BISHOP_TABLE = new long[5248];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        int[][] knightSteps = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}};
+        int[][] kingSteps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = leaperAttacks(square, knightSteps);
+            KING[square] = leaperAttacks(square, kingSteps);
+            PAWN[Position.WHITE][square] = leaperAttacks(square, new int[][] {{1, 1}, {1, -1}});
+            PAWN[Position.BLACK][square] = leaperAttacks(square, new int[][] {{-1, 1}, {-1, -1}});
+        }
+
+        int rookOffset = 0;
+        int bishopOffset = 0;
+        for (int square = 0; square < 64; square++) {
+            ROOK_OFFSET[square] = rookOffset;
+            rookOffset += initSlider(square, ROOK_DIRECTIONS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_TABLE, rookOffset);
+            BISHOP_OFFSET[square] = bishopOffset;
+            bishopOffset += initSlider(square, BISHOP_DIRECTIONS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_TABLE, bishopOffset);
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    public static long pawn(int color, int square) {
+        return PAWN[color][square];
+    }
+
+    public static long rook(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSET[square] + (int) (((occupied & ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square])];
+    }
+
+    public static long bishop(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSET[square] + (int) (((occupied & BISHOP_MASK[square]) * BISHOP_MAGIC[square]) >>> BISHOP_SHIFT[square])];
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    public static long pieceAttacks(int type, int color, int square, long occupied) {
+        switch (type) {
+            case Position.PAWN:
+                return PAWN[color][square];
+            case Position.KNIGHT:
+                return KNIGHT[square];
+            case Position.BISHOP:
+                return bishop(square, occupied);
+            case Position.ROOK:
+                return rook(square, occupied);
+            case Position.QUEEN:
+                return queen(square, occupied);
+            default:
+                return KING[square];
+        }
+    }
+
+    // Squares of both colors attacking the given square with the given occupancy.
+    public static long attackersTo(Position position, int square, long occupied) {
+        long rooks = position.pieces(Position.WHITE, Position.ROOK) | position.pieces(Position.BLACK, Position.ROOK)
+                | position.pieces(Position.WHITE, Position.QUEEN) | position.pieces(Position.BLACK, Position.QUEEN);
+        long bishops = position.pieces(Position.WHITE, Position.BISHOP) | position.pieces(Position.BLACK, Position.BISHOP)
+                | position.pieces(Position.WHITE, Position.QUEEN) | position.pieces(Position.BLACK, Position.QUEEN);
+        return ((PAWN[Position.BLACK][square] & position.pieces(Position.WHITE, Position.PAWN))
+                | (PAWN[Position.WHITE][square] & position.pieces(Position.BLACK, Position.PAWN))
+                | (KNIGHT[square] & (position.pieces(Position.WHITE, Position.KNIGHT) | position.pieces(Position.BLACK, Position.KNIGHT)))
+                | (KING[square] & (position.pieces(Position.WHITE, Position.KING) | position.pieces(Position.BLACK, Position.KING)))
+                | (rook(square, occupied) & rooks)
+                | (bishop(square, occupied) & bishops)) & occupied;
+    }
+
+    public static boolean isAttacked(Position position, int square, int byColor, long occupied) {
+        int them = byColor;
+        if ((PAWN[them ^ 1][square] & position.pieces(them, Position.PAWN) & occupied) != 0) return true;
+        if ((KNIGHT[square] & position.pieces(them, Position.KNIGHT) & occupied) != 0) return true;
+        if ((KING[square] & position.pieces(them, Position.KING)) != 0) return true;
+        long queens = position.pieces(them, Position.QUEEN);
+        if ((rook(square, occupied) & (position.pieces(them, Position.ROOK) | queens) & occupied) != 0) return true;
+        return (bishop(square, occupied) & (position.pieces(them, Position.BISHOP) | queens) & occupied) != 0;
+    }
+
+    private static long leaperAttacks(int square, int[][] steps) {
+        long attacks = 0;
+        for (int[] step : steps) {
+            int rank = Bitboards.rankOf(square) + step[0];
+            int file = Bitboards.fileOf(square) + step[1];
+            if (rank >= 0 && rank < 8 && file >= 0 && file < 8) {
+                attacks |= 1L << (rank * 8 + file);
+            }
+        }
+        return attacks;
+    }
+
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] d : directions) {
+            int rank = Bitboards.rankOf(square) + d[0];
+            int file = Bitboards.fileOf(square) + d[1];
+            while (rank >= 0 && rank < 8 && file >= 0 && file < 8) {
+                long bit = 1L << (rank * 8 + file);
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                rank += d[0];
+                file += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0;
+        for (int[] d : directions) {
+            int rank = Bitboards.rankOf(square) + d[0];
+            int file = Bitboards.fileOf(square) + d[1];
+            // the last square of each ray never blocks anything behind it
+            while (rank + d[0] >= 0 && rank + d[0] < 8 && file + d[1] >= 0 && file + d[1] < 8) {
+                mask |= 1L << (rank * 8 + file);
+                rank += d[0];
+                file += d[1];
+            }
+        }
+        return mask;
+    }
+
+    // Fills the square's slice of the table through its magic and returns the
+    // slice size. Every index holds the attacks of one occupancy; a magic
+    // that mapped two different attack sets together would be a bad edit.
+    private static int initSlider(int square, int[][] directions, long[] masks, long[] magics, int[] shifts,
+                                  long[] table, int offset) {
+        long mask = relevantMask(square, directions);
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+        boolean[] filled = new boolean[size];
+        long subset = 0;
+        do {
+            long attacks = slidingAttacks(square, subset, directions);
+            int index = (int) ((subset * magics[square]) >>> (64 - bits));
+            if (filled[index] && table[offset + index] != attacks) {
+                throw new IllegalStateException("Magic of square " + square + " collides");
+            }
+            filled[index] = true;
+            table[offset + index] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+        masks[square] = mask;
+        shifts[square] = 64 - bits;
+        return size;
+    }
+}
\ No newline at end of file
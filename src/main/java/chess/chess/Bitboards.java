@@ -0,0 +1,93 @@
+package chess.chess;
+
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_4 = RANK_1 << 24;
+    public static final long RANK_5 = RANK_1 << 32;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    // squares strictly between two aligned squares, 0 if they do not share a line
+    private static final long[][] BETWEEN = new long[64][64];
+    // the full line through two aligned squares, 0 if they do not share a line
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        for (int from = 0; from < 64; from++) {
+            for (int[] d : directions) {
+                long ray = 0;
+                int rank = rankOf(from) + d[0];
+                int file = fileOf(from) + d[1];
+                while (rank >= 0 && rank < 8 && file >= 0 && file < 8) {
+                    int to = rank * 8 + file;
+                    BETWEEN[from][to] = ray;
+                    ray |= 1L << to;
+                    rank += d[0];
+                    file += d[1];
+                }
+            }
+        }
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a != b && (BETWEEN[a][b] != 0 || isAdjacentOnLine(a, b))) {
+                    LINE[a][b] = fullLine(a, b);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    public static int rankOf(int square) {
+        return square >>> 3;
+    }
+
+    public static int fileOf(int square) {
+        return square & 7;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    public static int lsb(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static int popCount(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+
+    private static boolean isAdjacentOnLine(int a, int b) {
+        return Math.abs(rankOf(a) - rankOf(b)) <= 1 && Math.abs(fileOf(a) - fileOf(b)) <= 1;
+    }
+
+    private static long fullLine(int a, int b) {
+        int dRank = Integer.signum(rankOf(b) - rankOf(a));
+        int dFile = Integer.signum(fileOf(b) - fileOf(a));
+        long line = 1L << a;
+        for (int sign = -1; sign <= 1; sign += 2) {
+            int rank = rankOf(a) + sign * dRank;
+            int file = fileOf(a) + sign * dFile;
+            while (rank >= 0 && rank < 8 && file >= 0 && file < 8) {
+                line |= 1L << (rank * 8 + file);
+                rank += sign * dRank;
+                file += sign * dFile;
+            }
+        }
+        return line;
+    }
+}
\ No newline at end of file
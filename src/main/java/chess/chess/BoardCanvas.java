@@ -0,0 +1,293 @@
+package chess.chess;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+// A board drawn on one Canvas instead of 64 tile nodes, so a window can hold
+// dozens of boards and a board can take any size. Squares use Position
+// numbering and the tile board's orientation, White at the bottom.
+//
+// Changes only mark squares dirty, in a bitboard. One AnimationTimer paints
+// every board that has something pending, at most once a frame and only
+// while anything is pending, and a paint redraws just the dirty squares: the
+// square's color, then its piece as a straight copy from the PieceAtlas. A
+// move can slide its piece to the target square; each frame of the slide
+// repaints only the squares the piece covered the frame before. Clicks are
+// mapped to squares by dividing by the square size. Use it on the FX thread.
+public final class BoardCanvas extends Canvas {
+    public static final long DEFAULT_ANIMATION_MILLIS = 150;
+    private static final int MIN_SQUARE_SIZE = 8;
+    private static final Color LIGHT = Color.BEIGE;
+    private static final Color DARK = Color.BROWN;
+
+    // boards with something to paint; the painter runs while there are any
+    private static final Set<BoardCanvas> PENDING = new LinkedHashSet<>();
+    private static AnimationTimer painter;
+
+    private int squareSize;
+    private PieceAtlas atlas;
+    private final int[] pieces = new int[64];
+    private final Color[] fills = new Color[64];
+    private long dirty = -1L;
+    private IntConsumer squareListener = square -> { };
+    private long animationNanos = DEFAULT_ANIMATION_MILLIS * 1_000_000;
+
+    // the piece sliding to its square, NO_PIECE when nothing moves
+    private int slidingPiece = Position.NO_PIECE;
+    private int slideFrom;
+    private int slideTo;
+    // 0 until the first frame of the slide
+    private long slideStart;
+    // squares the sliding piece was drawn over in the last frame
+    private long slideCovered;
+
+    public BoardCanvas(double size) {
+        Arrays.fill(pieces, Position.NO_PIECE);
+        for (int square = 0; square < 64; square++) {
+            fills[square] = tileColor(square);
+        }
+        setBoardSize(size);
+        setOnMouseClicked(event -> {
+            int square = squareAt(event.getX(), event.getY());
+            if (square != Position.NO_SQUARE) {
+                squareListener.accept(square);
+            }
+        });
+    }
+
+    // Sizes the board to the largest multiple of 8 pixels that fits in size.
+    public void setBoardSize(double size) {
+        int square = Math.max(MIN_SQUARE_SIZE, (int) (size / 8));
+        if (square == squareSize) {
+            return;
+        }
+        squareSize = square;
+        atlas = PieceAtlas.forSquareSize(square);
+        setWidth(8 * square);
+        setHeight(8 * square);
+        dirty = -1L;
+        requestPaint();
+    }
+
+    public int getSquareSize() {
+        return squareSize;
+    }
+
+    // How long a piece takes to slide to its square; 0 moves it at once.
+    public void setAnimationMillis(long millis) {
+        animationNanos = Math.max(0, millis) * 1_000_000;
+    }
+
+    // Receives the square of every click on the board.
+    public void setSquareListener(IntConsumer listener) {
+        squareListener = listener;
+    }
+
+    // The square at the given point of the board, or NO_SQUARE outside it.
+    public int squareAt(double x, double y) {
+        if (x < 0 || y < 0) {
+            return Position.NO_SQUARE;
+        }
+        int col = (int) (x / squareSize);
+        int row = (int) (y / squareSize);
+        return col < 8 && row < 8 ? Position.square(row, col) : Position.NO_SQUARE;
+    }
+
+    // Shows the pieces of the position. Given the move that led to it, with
+    // animation on, the moved piece slides there from its old square. Returns
+    // the number of squares whose piece changed.
+    public int show(Position position, int move) {
+        long changed = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece != pieces[square]) {
+                pieces[square] = piece;
+                changed |= Bitboards.bit(square);
+            }
+        }
+        if (changed == 0) {
+            return 0;
+        }
+        // a slide still running when the next move arrives is cut short
+        finishSlide();
+        dirty |= changed;
+        if (move != Move.NONE && animationNanos > 0 && (changed & Bitboards.bit(Move.to(move))) != 0
+                && pieces[Move.to(move)] != Position.NO_PIECE) {
+            slidingPiece = pieces[Move.to(move)];
+            slideFrom = Move.from(move);
+            slideTo = Move.to(move);
+            slideStart = 0;
+            slideCovered = Bitboards.bit(slideFrom);
+        }
+        requestPaint();
+        return Long.bitCount(changed);
+    }
+
+    // Colors a square, e.g. to highlight it; null restores the plain color.
+    // Returns whether the color changed.
+    public boolean setSquareFill(int square, Color fill) {
+        Color color = fill == null ? tileColor(square) : fill;
+        if (color.equals(fills[square])) {
+            return false;
+        }
+        fills[square] = color;
+        dirty |= Bitboards.bit(square);
+        requestPaint();
+        return true;
+    }
+
+    // Paints pending changes now instead of on the next frame.
+    public void paint() {
+        paint(System.nanoTime());
+    }
+
+    public static Color tileColor(int square) {
+        return (Position.rowOf(square) + Position.colOf(square)) % 2 == 0 ? LIGHT : DARK;
+    }
+
+    private void paint(long now) {
+        GraphicsContext graphics = getGraphicsContext2D();
+        boolean sliding = slidingPiece != Position.NO_PIECE;
+        double slideX = 0;
+        double slideY = 0;
+        if (sliding) {
+            if (slideStart == 0) {
+                slideStart = now;
+            }
+            dirty |= slideCovered;
+            double t = Math.min(1, (now - slideStart) / (double) animationNanos);
+            if (t >= 1) {
+                finishSlide();
+                sliding = false;
+            } else {
+                // eases out: fast away from the old square, settling on the new one
+                double eased = 1 - (1 - t) * (1 - t) * (1 - t);
+                slideX = (Position.colOf(slideFrom) + (Position.colOf(slideTo) - Position.colOf(slideFrom)) * eased) * squareSize;
+                slideY = (Position.rowOf(slideFrom) + (Position.rowOf(slideTo) - Position.rowOf(slideFrom)) * eased) * squareSize;
+                slideCovered = covered(slideX, slideY);
+            }
+        }
+
+        long squares = dirty;
+        dirty = 0;
+        while (squares != 0) {
+            int square = Bitboards.lsb(squares);
+            squares &= squares - 1;
+            int x = Position.colOf(square) * squareSize;
+            int y = Position.rowOf(square) * squareSize;
+            graphics.setFill(fills[square]);
+            graphics.fillRect(x, y, squareSize, squareSize);
+            int piece = pieces[square];
+            if (piece != Position.NO_PIECE && !(sliding && square == slideTo)) {
+                drawPiece(graphics, piece, x, y);
+            }
+        }
+        if (sliding) {
+            drawPiece(graphics, slidingPiece, slideX, slideY);
+        }
+    }
+
+    private void drawPiece(GraphicsContext graphics, int piece, double x, double y) {
+        graphics.drawImage(atlas.image(), atlas.cellX(piece), 0, squareSize, squareSize, x, y, squareSize, squareSize);
+    }
+
+    // Squares a piece drawn at the given corner overlaps.
+    private long covered(double x, double y) {
+        int firstCol = (int) (x / squareSize);
+        int firstRow = (int) (y / squareSize);
+        int lastCol = Math.min(7, (int) ((x + squareSize) / squareSize));
+        int lastRow = Math.min(7, (int) ((y + squareSize) / squareSize));
+        long squares = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                squares |= Bitboards.bit(Position.square(row, col));
+            }
+        }
+        return squares;
+    }
+
+    // Ends a slide early: the piece is simply drawn on its square.
+    private void finishSlide() {
+        if (slidingPiece != Position.NO_PIECE) {
+            dirty |= slideCovered | Bitboards.bit(slideTo);
+            slidingPiece = Position.NO_PIECE;
+            slideCovered = 0;
+        }
+    }
+
+    private void requestPaint() {
+        PENDING.add(this);
+        if (painter == null) {
+            painter = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    paintPending(now);
+                }
+            };
+        }
+        painter.start();
+    }
+
+    private static void paintPending(long now) {
+        BoardCanvas[] boards = PENDING.toArray(new BoardCanvas[0]);
+        PENDING.clear();
+        for (BoardCanvas board : boards) {
+            board.paint(now);
+            if (board.slidingPiece != Position.NO_PIECE) {
+                PENDING.add(board);
+            }
+        }
+        if (PENDING.isEmpty()) {
+            painter.stop();
+        }
+    }
+
+    // Layouts size the board to the space they give it, e.g. the center of
+    // a window as it is resized.
+    @Override
+    public boolean isResizable() {
+        return true;
+    }
+
+    @Override
+    public void resize(double width, double height) {
+        setBoardSize(Math.min(width, height));
+    }
+
+    @Override
+    public double prefWidth(double height) {
+        return getWidth();
+    }
+
+    @Override
+    public double prefHeight(double width) {
+        return getHeight();
+    }
+
+    @Override
+    public double minWidth(double height) {
+        return 8 * MIN_SQUARE_SIZE;
+    }
+
+    @Override
+    public double minHeight(double width) {
+        return 8 * MIN_SQUARE_SIZE;
+    }
+
+    @Override
+    public double maxWidth(double height) {
+        return Double.MAX_VALUE;
+    }
+
+    @Override
+    public double maxHeight(double width) {
+        return Double.MAX_VALUE;
+    }
+}
\ No newline at end of file
@@ -1,22 +1,67 @@
 package chess.chess;
 
+import javafx.application.Platform;
 import javafx.scene.layout.GridPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.layout.StackPane;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class ChessGame {
     private static final int TILE_SIZE = 80;
+    private static final long ENGINE_MOVE_TIME_MS = 1000;
+    private static final long HINT_MOVE_TIME_MS = 500;
+    // decoded piece images shared by every board, keyed by piece symbol
+    private static final Map<String, Image> IMAGE_CACHE = new HashMap<>();
+    // the board is either 64 tile nodes in grid or drawn on canvas; the other
+    // one is null
     private final GridPane grid;
+    private final BoardCanvas canvas;
+    // the move the next refresh slides into place on the canvas
+    private int pendingSlide = Move.NONE;
     private ChessPiece selectedPiece = null;
     private int selectedRow = -1;
     private int selectedCol = -1;
     private StackPane highlightedTile = null;
 
-    private boolean isWhiteTurn = true;
+    // persistent tile nodes plus what each one currently shows, so a refresh
+    // only touches squares whose piece or highlight changed
+    private final Rectangle[][] tileRects = new Rectangle[8][8];
+    private final ImageView[][] pieceViews = new ImageView[8][8];
+    private final int[][] renderedPieces = new int[8][8];
+    private final Color[][] renderedFills = new Color[8][8];
+    private String renderedStatus = null;
+    private Consumer<String> statusListener = status -> { };
+    private boolean tilesBuilt = false;
+    private int lastRefreshNodesTouched = 0;
+    private long totalNodesTouched = 0;
+
+    private long gameId = DatabaseManager.newGameId();
+    // every move of the game; while viewPly is behind its end the board shows
+    // that earlier position, read-only, instead of the game
+    private GameTimeline timeline;
+    private int viewPly = 0;
+    private final Position viewPosition = new Position();
+    private final AttackMap viewAttacks = new AttackMap(viewPosition);
+    private Runnable timelineListener = () -> { };
+    private Engine engine = null;
+    private int engineColor = -1;
+    private boolean engineThinking = false;
+    private int hintMove = Move.NONE;
+    private AnalysisService analysis = null;
+    private SearchResult analysisResult = null;
+    private Consumer<String> analysisListener = line -> { };
+    private final ExecutorService engineExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "engine-driver");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private final Map<String, String> pieceImages = Map.ofEntries(
             Map.entry("P", "/images/pawn_white.png"),
@@ -34,59 +79,442 @@ public class ChessGame {
     );
 
     public ChessGame(GridPane grid) {
+        this(grid, null);
+    }
+
+    // Draws the board on a canvas, with sliding moves, instead of tile nodes.
+    public static ChessGame onCanvas(BoardCanvas canvas) {
+        ChessGame game = new ChessGame(null, canvas);
+        canvas.setSquareListener(square -> game.handleMove(Position.rowOf(square), Position.colOf(square)));
+        return game;
+    }
+
+    private ChessGame(GridPane grid, BoardCanvas canvas) {
         this.grid = grid;
+        this.canvas = canvas;
+        timeline = new GameTimeline(GameBoard.position);
+    }
+
+    // Shows the position after the given number of moves; the game's length
+    // returns to the game itself. Costs the same for any ply of any game.
+    public void seek(int ply) {
+        int target = Math.max(0, Math.min(ply, timeline.length()));
+        if (target == viewPly) {
+            return;
+        }
+        // stepping one move forward plays it
+        pendingSlide = target == viewPly + 1 ? timeline.move(viewPly) : Move.NONE;
+        viewPly = target;
+        if (isViewingHistory()) {
+            timeline.seek(viewPly, viewPosition);
+            viewAttacks.reset();
+        }
+        selectedPiece = null;
+        selectedRow = -1;
+        selectedCol = -1;
+        refreshBoard();
+        restartAnalysis();
+        timelineListener.run();
+    }
+
+    // Steps the view back (negative) or forward by that many moves.
+    public void step(int plies) {
+        seek(viewPly + plies);
+    }
+
+    public int getViewPly() {
+        return viewPly;
+    }
+
+    public int getTimelineLength() {
+        return timeline.length();
+    }
+
+    // Runs whenever a move is added or the viewed ply changes.
+    public void setTimelineListener(Runnable listener) {
+        timelineListener = listener;
+    }
+
+    // Continues a stored game: the board shows its final position and the
+    // whole game can be stepped through. Throws IllegalArgumentException if
+    // a stored move is not legal.
+    public void loadGame(StoredGame game) {
+        GameTimeline loaded = GameTimeline.of(game);
+        timeline = loaded;
+        Position end = new Position();
+        loaded.copyEndTo(end);
+        GameBoard.setPosition(end);
+        gameId = game.game().id();
+        viewPly = loaded.length();
+        hintMove = Move.NONE;
+        analysisResult = null;
+        selectedPiece = null;
+        selectedRow = -1;
+        selectedCol = -1;
+        refreshBoard();
+        timelineListener.run();
+        startEngineMoveIfNeeded();
+        restartAnalysis();
+    }
+
+    // Lets the engine play the given color (Position.WHITE or Position.BLACK);
+    // -1 switches back to two human players.
+    public void setEngineColor(int color) {
+        engineColor = color;
+        if (color >= 0) {
+            engine();
+        }
+        startEngineMoveIfNeeded();
+    }
+
+    // Turns background analysis of the current position on or off. While it
+    // runs, the listener receives a line such as "Depth 12  +0.35  Nf3  1.4 Mn/s"
+    // at most once a frame; an empty line when it stops.
+    public void setAnalysisEnabled(boolean enabled) {
+        if (enabled && analysis == null) {
+            analysis = new AnalysisService(result -> {
+                analysisResult = result;
+                analysisListener.accept(analysisText(result));
+            });
+            analysis.setAnalysisCache(AnalysisCache.shared());
+            restartAnalysis();
+        } else if (!enabled && analysis != null) {
+            analysis.close();
+            analysis = null;
+            analysisResult = null;
+            analysisListener.accept("");
+        }
+    }
+
+    public boolean isAnalysisEnabled() {
+        return analysis != null;
+    }
+
+    public void setAnalysisListener(Consumer<String> listener) {
+        analysisListener = listener;
+    }
+
+    // Marks a good move for the side to move. Running analysis answers at
+    // once, as does a position analysed before, in this session or an earlier
+    // one, through the analysis cache; otherwise a short search runs first and
+    // fills the cache.
+    public void showHint() {
+        if (engineThinking || isViewingHistory() || GameBoard.attacks.legalMoveCount() == 0) {
+            return;
+        }
+        if (analysisResult != null && analysisResult.bestMove() != Move.NONE) {
+            hintMove = analysisResult.bestMove();
+            refreshBoard();
+            return;
+        }
+        AnalysisCache cache = AnalysisCache.shared();
+        long entry = cache == null ? 0 : cache.probe(GameBoard.position.hash());
+        int move = entry == 0 ? Move.NONE : AnalysisCache.move(entry);
+        if (move != Move.NONE && (GameBoard.attacks.legalTargets(Move.from(move)) & Bitboards.bit(Move.to(move))) != 0) {
+            hintMove = move;
+            refreshBoard();
+            return;
+        }
+        engineThinking = true;
+        Position snapshot = GameBoard.position.copy();
+        Engine hintEngine = engine();
+        engineExecutor.execute(() -> {
+            SearchResult result = hintEngine.search(snapshot, new SearchLimits().moveTime(HINT_MOVE_TIME_MS));
+            Platform.runLater(() -> {
+                engineThinking = false;
+                if (GameBoard.position.hash() == snapshot.hash()) {
+                    hintMove = result.bestMove();
+                }
+                refreshBoard();
+            });
+        });
+    }
+
+    // Receives a line such as "Black to move, check" or "Checkmate, White wins"
+    // whenever it changes.
+    public void setStatusListener(Consumer<String> listener) {
+        statusListener = listener;
+        renderedStatus = null;
     }
 
     public void refreshBoard() {
-        grid.getChildren().clear();
+        Metrics.RefreshEvent event = Metrics.beginRefresh();
+        long start = Metrics.start();
+        if (canvas == null && !tilesBuilt) {
+            buildTiles();
+        }
 
+        boolean history = isViewingHistory();
+        Position position = history ? viewPosition : GameBoard.position;
+        AttackMap attacks = history ? viewAttacks : GameBoard.attacks;
+        long targets = selectedRow < 0 ? 0 : attacks.legalTargets(Position.square(selectedRow, selectedCol));
+        int sideToMove = position.sideToMove();
+        int checkedKing = attacks.isInCheck(sideToMove) ? position.kingSquare(sideToMove) : Position.NO_SQUARE;
+        long hint = hintMove == Move.NONE || history ? 0 : Bitboards.bit(Move.from(hintMove)) | Bitboards.bit(Move.to(hintMove));
+
+        int touched = 0;
         for (int row = 0; row < 8; row++) {
             for (int col = 0; col < 8; col++) {
-                Rectangle tile = new Rectangle(TILE_SIZE, TILE_SIZE);
+                int square = Position.square(row, col);
+                Color fill;
                 if (row == selectedRow && col == selectedCol) {
-                    tile.setFill(Color.YELLOW);
+                    fill = Color.YELLOW;
+                } else if ((targets & Bitboards.bit(square)) != 0) {
+                    fill = Color.LIGHTGREEN;
+                } else if (square == checkedKing) {
+                    fill = Color.TOMATO;
+                } else if ((hint & Bitboards.bit(square)) != 0) {
+                    fill = Color.LIGHTBLUE;
                 } else {
-                    tile.setFill((row + col) % 2 == 0 ? Color.BEIGE : Color.BROWN);
+                    fill = tileColor(row, col);
                 }
-
-                StackPane stack = new StackPane(tile);
-                stack.setId("tile-" + row + "-" + col);
-                ChessPiece piece = GameBoard.board[row][col];
-
-                if (piece != null) {
-                    String pieceSymbol = piece.getType();
-                    if (pieceImages.containsKey(pieceSymbol)) {
-                        ImageView imageView = new ImageView(new Image(getClass().getResourceAsStream(pieceImages.get(pieceSymbol))));
-                        imageView.setFitWidth(TILE_SIZE * 0.8);
-                        imageView.setFitHeight(TILE_SIZE * 0.8);
-                        stack.getChildren().add(imageView);
+                if (canvas != null) {
+                    if (canvas.setSquareFill(square, fill)) {
+                        touched++;
                     }
+                    continue;
                 }
 
+                ChessPiece piece = ChessPiece.of(position.pieceAt(row, col));
+                int pieceCode = piece == null ? Position.NO_PIECE : piece.getPieceCode();
+                if (pieceCode != renderedPieces[row][col]) {
+                    pieceViews[row][col].setImage(piece == null ? null : pieceImage(piece.getType()));
+                    renderedPieces[row][col] = pieceCode;
+                    touched++;
+                }
+                if (fill != renderedFills[row][col]) {
+                    tileRects[row][col].setFill(fill);
+                    renderedFills[row][col] = fill;
+                    touched++;
+                }
+            }
+        }
+        if (canvas != null) {
+            touched += canvas.show(position, pendingSlide);
+        }
+        pendingSlide = Move.NONE;
+        lastRefreshNodesTouched = touched;
+        totalNodesTouched += touched;
+
+        String status = statusText(position, attacks);
+        if (history) {
+            status = "Move " + viewPly + " of " + timeline.length() + ": " + status;
+        }
+        if (!status.equals(renderedStatus)) {
+            renderedStatus = status;
+            statusListener.accept(status);
+        }
+        Metrics.refreshed(event, start, touched);
+    }
+
+    private static String statusText(Position position, AttackMap attacks) {
+        int sideToMove = position.sideToMove();
+        switch (attacks.status()) {
+            case ONGOING:
+                // with few pieces left the endgame tables know the outcome
+                String tablebase = Tablebases.describe(position);
+                return (sideToMove == Position.WHITE ? "White" : "Black") + " to move"
+                        + (attacks.isInCheck(sideToMove) ? ", check" : "")
+                        + (tablebase != null ? " (tablebase: " + tablebase + ")" : "");
+            case WHITE_WINS:
+                return "Checkmate, White wins";
+            case BLACK_WINS:
+                return "Checkmate, Black wins";
+            case STALEMATE:
+                return "Stalemate";
+            case DRAW_FIFTY_MOVES:
+                return "Draw by the fifty-move rule";
+            case DRAW_REPETITION:
+                return "Draw by threefold repetition";
+            default:
+                return "Draw by insufficient material";
+        }
+    }
+
+    // Number of tile nodes, or canvas squares, the last refreshBoard call had
+    // to update.
+    public int getLastRefreshNodesTouched() {
+        return lastRefreshNodesTouched;
+    }
+
+    public long getTotalNodesTouched() {
+        return totalNodesTouched;
+    }
+
+    private void buildTiles() {
+        grid.getChildren().clear();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                Rectangle tile = new Rectangle(TILE_SIZE, TILE_SIZE);
+                tile.setFill(tileColor(row, col));
+
+                ImageView imageView = new ImageView();
+                imageView.setFitWidth(TILE_SIZE * 0.8);
+                imageView.setFitHeight(TILE_SIZE * 0.8);
+
+                StackPane stack = new StackPane(tile, imageView);
+                stack.setId("tile-" + row + "-" + col);
+
                 int finalRow = row;
                 int finalCol = col;
                 stack.setOnMouseClicked(event -> handleMove(finalRow, finalCol));
 
+                tileRects[row][col] = tile;
+                pieceViews[row][col] = imageView;
+                // forces the first refresh to paint every square
+                renderedPieces[row][col] = Integer.MIN_VALUE;
+                renderedFills[row][col] = (Color) tile.getFill();
                 grid.add(stack, col, row);
             }
         }
+        tilesBuilt = true;
+    }
+
+    private Image pieceImage(String pieceSymbol) {
+        String path = pieceImages.get(pieceSymbol);
+        if (path == null) {
+            return null;
+        }
+        return IMAGE_CACHE.computeIfAbsent(pieceSymbol, symbol -> new Image(getClass().getResourceAsStream(path)));
+    }
+
+    private static Color tileColor(int row, int col) {
+        return (row + col) % 2 == 0 ? Color.BEIGE : Color.BROWN;
     }
 
     private void handleMove(int row, int col) {
+        if (engineThinking || isViewingHistory()) {
+            return;
+        }
         ChessPiece piece = GameBoard.board[row][col];
 
         if (selectedPiece == null) {
-            if (piece != null && piece.isWhite() == isWhiteTurn) {
+            if (piece != null && piece.isWhite() == GameBoard.position.isWhiteToMove()) {
                 selectedPiece = piece;
                 selectedRow = row;
                 selectedCol = col;
                 refreshBoard();
             }
         } else {
+            int from = Position.square(selectedRow, selectedCol);
+            int to = Position.square(row, col);
+            int move = validateMove(from, to);
+            if (move != Move.NONE) {
+                playMove(move);
+            }
             selectedPiece = null;
             selectedRow = -1;
             selectedCol = -1;
             refreshBoard();
+            startEngineMoveIfNeeded();
+            restartAnalysis();
+        }
+    }
+
+    // The legal move from one square to another, or Move.NONE; this is the
+    // check behind every move played on the board, so it is what the move
+    // validation metrics time.
+    private int validateMove(int from, int to) {
+        Metrics.MoveValidationEvent event = Metrics.beginValidation();
+        long start = Metrics.start();
+        int move = (GameBoard.attacks.legalTargets(from) & Bitboards.bit(to)) != 0
+                ? MoveGenerator.findMove(GameBoard.position, from, to, Position.QUEEN) : Move.NONE;
+        Metrics.validated(event, start, from, to, move != Move.NONE);
+        return move;
+    }
+
+    private void playMove(int move) {
+        DatabaseManager.saveMove(gameId, GameBoard.position, move);
+        boolean following = !isViewingHistory();
+        GameBoard.makeMove(move);
+        timeline.append(move);
+        if (following) {
+            viewPly = timeline.length();
+            pendingSlide = move;
+        }
+        timelineListener.run();
+        hintMove = Move.NONE;
+        analysisResult = null;
+        GameStatus status = GameBoard.attacks.status();
+        if (status.isOver()) {
+            DatabaseManager.finishGame(new GameRecord(gameId, playerName(Position.WHITE), playerName(Position.BLACK),
+                    status.result(), null));
+        }
+    }
+
+    private String playerName(int color) {
+        return color == engineColor ? "Engine" : "Player";
+    }
+
+    // Created on first use. Unlike hints and analysis it plays without the
+    // analysis cache, whose entries know nothing of this game's repetitions.
+    private Engine engine() {
+        if (engine == null) {
+            engine = new Engine();
+        }
+        return engine;
+    }
+
+    private boolean isViewingHistory() {
+        return viewPly < timeline.length();
+    }
+
+    // Analyses the shown position afresh, or pauses while the engine thinks
+    // about its move so the two do not share the cores, and once the game is
+    // over.
+    private void restartAnalysis() {
+        if (analysis == null) {
+            return;
+        }
+        boolean history = isViewingHistory();
+        AttackMap attacks = history ? viewAttacks : GameBoard.attacks;
+        analysisResult = null;
+        if (engineThinking || attacks.legalMoveCount() == 0) {
+            analysis.stop();
+            analysisListener.accept("");
+        } else {
+            analysis.analyze(history ? viewPosition : GameBoard.position);
         }
     }
+
+    // "Depth 12  +0.35  Nf3  1.4 Mn/s", scores from White's point of view.
+    private String analysisText(SearchResult result) {
+        Position position = isViewingHistory() ? viewPosition : GameBoard.position;
+        boolean whiteToMove = position.isWhiteToMove();
+        String score;
+        if (result.isMate()) {
+            int mateIn = whiteToMove ? result.mateIn() : -result.mateIn();
+            score = "#" + mateIn;
+        } else {
+            int centipawns = whiteToMove ? result.score() : -result.score();
+            score = String.format("%+.2f", centipawns / 100.0);
+        }
+        String move = result.bestMove() == Move.NONE ? "-" : San.toSan(position, result.bestMove());
+        return String.format("Depth %d  %s  %s  %.1f Mn/s", result.depth(), score, move,
+                result.nodesPerSecond() / 1_000_000.0);
+    }
+
+    // Searches on a background thread so the window stays responsive, then
+    // plays the reply on the FX thread.
+    private void startEngineMoveIfNeeded() {
+        if (engine == null || engineThinking || GameBoard.position.sideToMove() != engineColor
+                || GameBoard.attacks.legalMoveCount() == 0) {
+            return;
+        }
+        engineThinking = true;
+        Position snapshot = GameBoard.position.copy();
+        engineExecutor.execute(() -> {
+            SearchResult result = engine.search(snapshot, new SearchLimits().moveTime(ENGINE_MOVE_TIME_MS));
+            Platform.runLater(() -> {
+                engineThinking = false;
+                // a game loaded meanwhile has a different position
+                if (result.bestMove() != Move.NONE && GameBoard.position.hash() == snapshot.hash()) {
+                    playMove(result.bestMove());
+                }
+                refreshBoard();
+                startEngineMoveIfNeeded();
+                restartAnalysis();
+            });
+        });
+    }
 }
\ No newline at end of file
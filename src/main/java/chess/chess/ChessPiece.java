@@ -1,12 +1,26 @@
 package chess.chess;
 
 public class ChessPiece {
+    private static final ChessPiece[] SHARED = new ChessPiece[12];
+
+    static {
+        for (int piece = 0; piece < 12; piece++) {
+            SHARED[piece] = new ChessPiece(String.valueOf(Position.pieceSymbol(piece)), Position.colorOf(piece) == Position.WHITE);
+        }
+    }
+
     private final String type;
     private final boolean isWhite;
+    private final int pieceCode;
 
     public ChessPiece(String type, boolean isWhite) {
         this.type = type;
         this.isWhite = isWhite;
+        this.pieceCode = type.length() == 1 ? Position.pieceFromSymbol(type.charAt(0)) : Position.NO_PIECE;
+    }
+
+    public static ChessPiece of(int pieceCode) {
+        return pieceCode == Position.NO_PIECE ? null : SHARED[pieceCode];
     }
 
     public String getType() {
@@ -16,4 +30,45 @@ public class ChessPiece {
     public boolean isWhite() {
         return isWhite;
     }
+
+    public int getPieceCode() {
+        return pieceCode;
+    }
+
+    // The board carries no turn or history, so the move is checked as if this
+    // piece's side were to move, with the castling rights Position.fromBoard
+    // derives and no en passant. A board that is not a position, e.g. one
+    // without a king, has no valid moves.
+    public boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol, ChessPiece[][] board) {
+        Position position;
+        try {
+            position = Position.fromBoard(board, isWhite);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return isValidMove(fromRow, fromCol, toRow, toCol, position);
+    }
+
+    // A move is valid when it is fully legal in the position: the mover must be
+    // this piece's color, and checks, pins, castling and en passant are honored.
+    public boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol, Position position) {
+        Metrics.MoveValidationEvent event = Metrics.beginValidation();
+        long start = Metrics.start();
+        boolean valid = isLegal(fromRow, fromCol, toRow, toCol, position);
+        boolean onBoard = toRow >= 0 && toRow < 8 && toCol >= 0 && toCol < 8;
+        Metrics.validated(event, start, Position.square(fromRow, fromCol),
+                onBoard ? Position.square(toRow, toCol) : Position.NO_SQUARE, valid);
+        return valid;
+    }
+
+    private boolean isLegal(int fromRow, int fromCol, int toRow, int toCol, Position position) {
+        if (toRow < 0 || toRow >= 8 || toCol < 0 || toCol >= 8) {
+            return false;
+        }
+        int from = Position.square(fromRow, fromCol);
+        if (position.pieceAt(from) != pieceCode || position.isWhiteToMove() != isWhite) {
+            return false;
+        }
+        return MoveGenerator.findMove(position, from, Position.square(toRow, toCol), Position.QUEEN) != Move.NONE;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package chess.chess;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Small fixed-size JDBC connection pool. Connections are opened on demand up to
+// the pool size and reused afterwards; broken ones are replaced on borrow.
+public class ConnectionPool implements AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final BlockingQueue<Connection> idle;
+    private final int maxSize;
+    private int opened;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        Connection connection = idle.poll();
+        if (connection == null && reserveSlot()) {
+            return open();
+        }
+        try {
+            if (connection == null) {
+                connection = idle.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+            closeQuietly(connection);
+            return open();
+        }
+        return connection;
+    }
+
+    public void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            if (closed || connection.isClosed() || !connection.getAutoCommit() && rollback(connection)) {
+                discard(connection);
+                return;
+            }
+        } catch (SQLException e) {
+            discard(connection);
+            return;
+        }
+        if (!idle.offer(connection)) {
+            discard(connection);
+        }
+    }
+
+    // Drops a connection that failed mid-use so the next borrow opens a new one.
+    public void discard(Connection connection) {
+        closeQuietly(connection);
+        synchronized (this) {
+            opened--;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    private synchronized boolean reserveSlot() {
+        if (opened < maxSize) {
+            opened++;
+            return true;
+        }
+        return false;
+    }
+
+    private Connection open() throws SQLException {
+        Metrics.ConnectEvent event = Metrics.beginConnect();
+        long start = Metrics.start();
+        try {
+            Connection connection = DriverManager.getConnection(url, user, password);
+            Metrics.connected(event, start);
+            return connection;
+        } catch (SQLException e) {
+            synchronized (this) {
+                opened--;
+            }
+            throw e;
+        }
+    }
+
+    // Leaves a connection in autocommit mode with nothing pending. Returns true
+    // if that failed and the connection should not be reused.
+    private static boolean rollback(Connection connection) {
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+            return false;
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
\ No newline at end of file
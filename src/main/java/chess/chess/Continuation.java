@@ -0,0 +1,11 @@
+package chess.chess;
+
+// One move the opening explorer knows for a position, with the results of the
+// games that played it.
+public record Continuation(int move, long games, long whiteWins, long draws, long blackWins) {
+    // Score of the move for White in percent, counting draws as half a point.
+    public double whiteScore() {
+        long decided = whiteWins + draws + blackWins;
+        return decided == 0 ? 50.0 : (whiteWins + draws * 0.5) * 100.0 / decided;
+    }
+}
\ No newline at end of file
@@ -1,45 +1,272 @@
 package chess.chess;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DatabaseManager {
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/postgres";
+    private static final String DB_URL = System.getProperty("chess.db.url", "jdbc:postgresql://localhost:5432/postgres");
+    private static final String DB_USER = System.getProperty("chess.db.user", "postgres");
+    private static final String DB_PASSWORD = System.getProperty("chess.db.password", "postgres");
+    private static final Path JOURNAL_DIR = Paths.get(System.getProperty("chess.journal.dir",
+            Paths.get(System.getProperty("user.home"), ".chess", "journal").toString()));
+    private static final int POOL_SIZE = 4;
+
+    // Plain move rows from older versions keep working: the position columns
+    // are added in place and stay NULL for them.
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS move_history (" +
+                    "id SERIAL PRIMARY KEY, " +
+                    "piece TEXT, " +
+                    "row INTEGER, " +
+                    "col INTEGER, " +
+                    "to_row INTEGER, " +
+                    "to_col INTEGER)",
+            "ALTER TABLE move_history " +
+                    "ADD COLUMN IF NOT EXISTS game_id BIGINT, " +
+                    "ADD COLUMN IF NOT EXISTS ply INTEGER, " +
+                    "ADD COLUMN IF NOT EXISTS position_hash BIGINT, " +
+                    "ADD COLUMN IF NOT EXISTS move INTEGER",
+            "CREATE INDEX IF NOT EXISTS move_history_game_idx ON move_history (game_id, ply)",
+            // ply is in the position index so the explorer can reach the rows past
+            // the opening without reading every game through a common position
+            "CREATE INDEX IF NOT EXISTS move_history_position_ply_idx ON move_history (position_hash, ply)",
+            "DROP INDEX IF EXISTS move_history_position_idx",
+            // moves replayed from the journal carry their sequence number, so
+            // replaying the same entry twice stores it once
+            "ALTER TABLE move_history ADD COLUMN IF NOT EXISTS journal_seq BIGINT",
+            "CREATE UNIQUE INDEX IF NOT EXISTS move_history_journal_idx ON move_history (journal_seq)",
+            "CREATE TABLE IF NOT EXISTS games (" +
+                    "id BIGINT PRIMARY KEY, " +
+                    "white TEXT, " +
+                    "black TEXT, " +
+                    "result TEXT NOT NULL, " +
+                    "start_fen TEXT, " +
+                    "finished_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+            "CREATE TABLE IF NOT EXISTS position_stats (" +
+                    "position_hash BIGINT NOT NULL, " +
+                    "move INTEGER NOT NULL, " +
+                    "games BIGINT NOT NULL, " +
+                    "white_wins BIGINT NOT NULL, " +
+                    "draws BIGINT NOT NULL, " +
+                    "black_wins BIGINT NOT NULL, " +
+                    "PRIMARY KEY (position_hash, move))"
+    };
+
+    static final String MOVE_COLUMNS = "game_id, ply, position_hash, move, piece, row, col, to_row, to_col";
+    static final String INSERT_MOVE =
+            "INSERT INTO move_history (" + MOVE_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String INSERT_GAME =
+            "INSERT INTO games (id, white, black, result, start_fen) VALUES (?, ?, ?, ?, ?) ON CONFLICT (id) DO NOTHING";
+
+    // Game ids are handed out by the client so moves can be written before the
+    // games row exists. Seeding from the clock keeps ids of different runs
+    // apart unless a run hands out more than a million ids per millisecond.
+    private static final AtomicLong NEXT_GAME_ID = new AtomicLong(System.currentTimeMillis() << 20);
+
+    private static ConnectionPool pool;
+    private static MoveJournal journal;
+    private static JournalReplayer replayer;
+    private static CompletableFuture<Void> initialized;
 
     public static void initializeDatabase() {
-        try (Connection connection = DriverManager.getConnection(DB_URL, "postgres", "postgres");
-             PreparedStatement statement = connection.prepareStatement(
-                     "CREATE TABLE IF NOT EXISTS move_history (" +
-                             "id SERIAL PRIMARY KEY, " +
-                             "piece TEXT, " +
-                             "row INTEGER, " +
-                             "col INTEGER, " +
-                             "to_row INTEGER, " +
-                             "to_col INTEGER)")
-        ) {
-            statement.executeUpdate();
+        Connection connection = null;
+        try {
+            connection = getPool().borrow();
+            createSchema(connection);
+            getPool().release(connection);
         } catch (SQLException e) {
-            e.printStackTrace();
+            if (connection != null) {
+                getPool().discard(connection);
+            }
+            Metrics.error("create schema", e);
+            System.err.println("Could not create the database schema: " + e.getMessage());
+        }
+        // replays moves a previous run journaled but did not get into the
+        // database, even if this run never saves a move
+        try {
+            getJournal();
+        } catch (IOException e) {
+            Metrics.error("open journal", e);
+            System.err.println("Could not open the move journal: " + e.getMessage());
+        }
+    }
+
+    // Runs initializeDatabase() once on a background thread, so the board does
+    // not wait for the JDBC driver, the connection and the schema. Moves made
+    // in the meantime wait in the journal, as they do while PostgreSQL is down.
+    public static synchronized CompletableFuture<Void> initializeDatabaseInBackground() {
+        if (initialized == null) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            Thread.ofVirtual().name("database-init").start(() -> {
+                initializeDatabase();
+                done.complete(null);
+            });
+            initialized = done;
+        }
+        return initialized;
+    }
+
+    // Creates or upgrades the tables. Every statement is idempotent, so the
+    // replayer runs it again after each outage: if PostgreSQL was down at
+    // startup, the schema comes with the first replayed batch.
+    static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.executeUpdate(sql);
+            }
         }
     }
 
-    public static void saveMove(String piece, int fromRow, int fromCol, int toRow, int toCol) {
-        String query = "INSERT INTO move_history (piece, row, col, to_row, to_col) VALUES (?, ?, ?, ?, ?)";
+    public static long newGameId() {
+        return NEXT_GAME_ID.incrementAndGet();
+    }
 
-        try (Connection connection = DriverManager.getConnection(DB_URL, "postgres", "postgres");
-             PreparedStatement statement = connection.prepareStatement(query)) {
+    // Appends the move to the local journal and returns; the replayer stores
+    // it in the database whenever that is reachable. Call it before making the
+    // move.
+    public static void saveMove(long gameId, Position position, int move) {
+        Metrics.JournalAppendEvent event = Metrics.beginJournalAppend();
+        long start = Metrics.start();
+        try {
+            getJournal().append(MoveRecord.of(gameId, position, move));
+            Metrics.journalAppended(event, start, gameId, position.ply());
+        } catch (IOException e) {
+            Metrics.error("journal append", e);
+            System.err.println("Could not journal move " + Move.toUci(move) + " of game " + gameId + ": " + e.getMessage());
+        }
+    }
 
-            statement.setString(1, piece);
-            statement.setInt(2, fromRow);
-            statement.setInt(3, fromCol);
-            statement.setInt(4, toRow);
-            statement.setInt(5, toCol);
-            statement.executeUpdate();
+    // Stores the games row and adds the game to the opening statistics. Runs
+    // in the background once the game's queued moves have been written.
+    public static void finishGame(GameRecord game) {
+        Thread.ofVirtual().name("finish-game").start(() -> {
+            Connection connection = null;
+            try {
+                if (!flush(10, TimeUnit.SECONDS)) {
+                    System.err.println("Moves of game " + game.id() + " are not replayed yet, storing it anyway");
+                }
+                connection = getPool().borrow();
+                connection.setAutoCommit(false);
+                // the stats are only added by whoever inserted the games row,
+                // so finishing a game twice does not count it twice
+                if (insertGame(connection, game) == 1) {
+                    PositionStats.addStoredGame(connection, game.id(), game.result());
+                }
+                connection.commit();
+                connection.setAutoCommit(true);
+                getPool().release(connection);
+            } catch (SQLException e) {
+                if (connection != null) {
+                    getPool().discard(connection);
+                }
+                Metrics.error("finish game", e);
+                System.err.println("Could not store game " + game.id() + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    static int insertGame(Connection connection, GameRecord game) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_GAME)) {
+            bindGame(statement, game);
+            return statement.executeUpdate();
+        }
+    }
+
+    // Sets the parameters of INSERT_MOVE; the replayer and the bulk importers
+    // share it.
+    static void bindMove(PreparedStatement statement, MoveRecord move) throws SQLException {
+        statement.setLong(1, move.gameId());
+        statement.setInt(2, move.ply());
+        statement.setLong(3, move.positionHash());
+        statement.setInt(4, move.move());
+        statement.setString(5, move.piece());
+        statement.setInt(6, move.fromRow());
+        statement.setInt(7, move.fromCol());
+        statement.setInt(8, move.toRow());
+        statement.setInt(9, move.toCol());
+    }
+
+    static void bindGame(PreparedStatement statement, GameRecord game) throws SQLException {
+        statement.setLong(1, game.id());
+        statement.setString(2, game.white());
+        statement.setString(3, game.black());
+        statement.setString(4, game.result());
+        statement.setString(5, game.startFen());
+    }
+
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD, POOL_SIZE);
+        }
+        return pool;
+    }
+
+    // Opens the journal on first use and starts replaying it, including moves
+    // left over from a previous run that ended before they reached the database.
+    public static synchronized MoveJournal getJournal() throws IOException {
+        if (journal == null) {
+            journal = new MoveJournal(JOURNAL_DIR);
+            replayer = JournalReplayer.start(journal, getPool());
+            Runtime.getRuntime().addShutdownHook(new Thread(DatabaseManager::shutdown, "database-shutdown"));
+        }
+        return journal;
+    }
+
+    // Waits until every move journaled before this call is in the database.
+    public static boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        MoveJournal current;
+        JournalReplayer currentReplayer;
+        synchronized (DatabaseManager.class) {
+            current = journal;
+            currentReplayer = replayer;
+        }
+        return current == null || currentReplayer.awaitReplayed(current.lastSeq(), timeout, unit);
+    }
+
+    // Moves journaled but not in the database yet; 0 before the journal is
+    // opened.
+    public static long journalBacklog() {
+        MoveJournal current;
+        JournalReplayer currentReplayer;
+        synchronized (DatabaseManager.class) {
+            current = journal;
+            currentReplayer = replayer;
+        }
+        return current == null ? 0 : Math.max(0, current.lastSeq() - currentReplayer.replayedSeq());
+    }
+
+    // Gives the replayer a moment to catch up, then closes the journal and the
+    // pooled connections. Moves not replayed yet stay in the journal.
+    public static synchronized void shutdown() {
+        if (journal != null) {
+            try {
+                flush(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            replayer.close();
+            replayer = null;
+            try {
+                journal.close();
+            } catch (IOException e) {
+                Metrics.error("close journal", e);
+                System.err.println("Could not close the move journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package chess.chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Iterative-deepening alpha-beta engine. All threads search the same root
+// independently and share one lock-free transposition table (Lazy SMP);
+// thread 0 drives time control and reports progress.
+//
+// Searches are numbered as they are accepted, and stop() stops every search
+// accepted so far, including one that is still queued and has not reached
+// search() yet. A caller that stops searches from another thread takes the
+// number with newSearchId() when it accepts the work, so such a stop can
+// never be lost.
+public final class Engine implements AutoCloseable {
+    public static final int DEFAULT_HASH_MB = 64;
+    // from here on the fifty-move rule can decide the result of a search
+    private static final int CACHE_MAX_HALFMOVE_CLOCK = 80;
+
+    private final TranspositionTable table;
+    private final Search[] workers;
+    private final ExecutorService pool;
+
+    private final AtomicLong lastSearchId = new AtomicLong();
+    // every search numbered up to this one is stopped
+    private final AtomicLong stoppedThrough = new AtomicLong();
+    private volatile long searchId;
+    private volatile Consumer<SearchResult> listener;
+    private volatile AnalysisCache analysisCache;
+    private long startNanos;
+    private long deadlineNanos;
+    private long nodeLimit;
+
+    public Engine() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_HASH_MB);
+    }
+
+    public Engine(int threads, int hashMb) {
+        table = new TranspositionTable(hashMb);
+        workers = new Search[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Search(this, table, i);
+        }
+        pool = Executors.newFixedThreadPool(workers.length, runnable -> {
+            Thread thread = new Thread(runnable, "engine-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SearchResult search(Position position, SearchLimits limits) {
+        return search(position, limits, null);
+    }
+
+    public SearchResult search(Position position, SearchLimits limits, Consumer<SearchResult> listener) {
+        return search(position, limits, listener, newSearchId());
+    }
+
+    // Numbers a search to be started later with search(..., id).
+    public long newSearchId() {
+        return lastSearchId.incrementAndGet();
+    }
+
+    // Blocks until the limits are reached or stop() is called. The listener
+    // receives every completed iteration of the main thread. A search whose
+    // id was stopped before it got here returns at once.
+    public synchronized SearchResult search(Position position, SearchLimits limits, Consumer<SearchResult> listener,
+                                            long id) {
+        AnalysisCache cache = historyMatters(position) ? null : analysisCache;
+        SearchResult cached = cache == null ? null : cachedResult(cache, position, limits);
+        if (cached != null) {
+            if (listener != null) {
+                listener.accept(cached);
+            }
+            return cached;
+        }
+
+        this.listener = listener;
+        searchId = id;
+        startNanos = System.nanoTime();
+        deadlineNanos = limits.getMoveTimeMillis() > 0 ? startNanos + limits.getMoveTimeMillis() * 1_000_000 : Long.MAX_VALUE;
+        nodeLimit = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        table.newSearch();
+
+        Position root = position.copy();
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        for (Search worker : workers) {
+            futures.add(pool.submit(() -> worker.run(root, limits, startNanos)));
+        }
+
+        SearchResult result = null;
+        try {
+            result = futures.get(0).get();
+            stopSearch();
+            for (Future<SearchResult> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            stopSearch();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            stopSearch();
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+
+        // workers only keep completed iterations; prefer a helper that
+        // completed a deeper one than the main thread
+        for (Search worker : workers) {
+            SearchResult candidate = worker.result();
+            if (candidate != null && (result == null || candidate.depth() > result.depth())) {
+                result = candidate;
+            }
+        }
+        long elapsed = (System.nanoTime() - startNanos) / 1_000_000;
+        if (result == null) {
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = MoveGenerator.generate(position, moves);
+            int move = count > 0 ? moves[0] : Move.NONE;
+            return new SearchResult(move, 0, 0, totalNodes(), elapsed, count > 0 ? new int[] {move} : new int[0]);
+        }
+        if (cache != null) {
+            cache.store(position.hash(), result.bestMove(), result.score(), result.depth(), elapsed);
+        }
+        return new SearchResult(result.bestMove(), result.score(), result.depth(), totalNodes(), elapsed, result.pv());
+    }
+
+    // Lets searches answer from, and record into, a persistent cache of root
+    // results; null turns that off.
+    public void setAnalysisCache(AnalysisCache cache) {
+        analysisCache = cache;
+    }
+
+    // Stops the running search and every one accepted before this call.
+    public void stop() {
+        stoppedThrough.accumulateAndGet(lastSearchId.get(), Math::max);
+    }
+
+    public boolean isStopped() {
+        return stoppedThrough.get() >= searchId;
+    }
+
+    public void newGame() {
+        table.clear();
+    }
+
+    public int threadCount() {
+        return workers.length;
+    }
+
+    public int hashfull() {
+        return table.hashfull();
+    }
+
+    public long totalNodes() {
+        long nodes = 0;
+        for (Search worker : workers) {
+            nodes += worker.publishedNodes;
+        }
+        return nodes;
+    }
+
+    // Cache entries are keyed by the board alone. A search scores repetitions
+    // of earlier game positions and the fifty-move rule as draws, so neither
+    // its result nor a stored one is used once that history is in play.
+    private static boolean historyMatters(Position position) {
+        return position.halfmoveClock() >= CACHE_MAX_HALFMOVE_CLOCK || position.hasRepetitionSinceIrreversibleMove();
+    }
+
+    // A stored analysis of the root that searched at least as deep, or as
+    // long, as the limits ask for. Node-limited searches always run.
+    private static SearchResult cachedResult(AnalysisCache cache, Position position, SearchLimits limits) {
+        if (limits.getNodes() > 0) {
+            return null;
+        }
+        long entry = cache.probe(position.hash());
+        if (entry == 0) {
+            return null;
+        }
+        boolean deepEnough = AnalysisCache.depth(entry) >= limits.getDepth();
+        boolean longEnough = limits.getMoveTimeMillis() > 0 && AnalysisCache.millis(entry) >= limits.getMoveTimeMillis();
+        int move = AnalysisCache.move(entry);
+        // a different position with the same hash has no such move
+        if (!(deepEnough || longEnough) || !isLegal(position, move)) {
+            return null;
+        }
+        return new SearchResult(move, AnalysisCache.score(entry), AnalysisCache.depth(entry), 0, 0, new int[] {move});
+    }
+
+    private static boolean isLegal(Position position, int move) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(position, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void checkLimits() {
+        if (System.nanoTime() >= deadlineNanos || totalNodes() >= nodeLimit) {
+            stopSearch();
+        }
+    }
+
+    // Stops the running search only, leaving searches accepted after it alone.
+    private void stopSearch() {
+        stoppedThrough.accumulateAndGet(searchId, Math::max);
+    }
+
+    void iterationCompleted(SearchResult result) {
+        Consumer<SearchResult> current = listener;
+        if (current != null) {
+            current.accept(new SearchResult(result.bestMove(), result.score(), result.depth(), totalNodes(),
+                    result.elapsedMillis(), result.pv()));
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+        pool.shutdownNow();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,318 @@
+package chess.chess;
+
+// Static evaluation in centipawns from the side to move's point of view.
+//
+// Material and piece-square values come in a middlegame and an endgame flavor
+// (the PeSTO tables) and are blended by the amount of non-pawn material left.
+// Position keeps both sums up to date in put/remove, packed into one int
+// (middlegame in the high half, endgame in the low half), so they cost
+// nothing here. Pawn structure only depends on the pawns and is cached per
+// pawn hash; mobility is the only term computed on every call. One instance
+// per search thread, since the pawn cache is not shared.
+public final class Evaluation {
+    // used for move ordering, where a single value per type is enough
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    static final int[] MG_VALUES = {82, 337, 365, 477, 1025, 0};
+    static final int[] EG_VALUES = {94, 281, 297, 512, 936, 0};
+    // game phase contributed by each piece; 24 with all pieces on the board
+    static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0, 0, 1, 1, 2, 4, 0};
+    static final int MAX_PHASE = 24;
+
+    // material plus piece-square value per piece code and square, packed, and
+    // positive for white pieces and negative for black ones
+    static final int[][] PSQ = new int[12][64];
+
+    private static final int DOUBLED_MG = -10;
+    private static final int DOUBLED_EG = -20;
+    private static final int ISOLATED_MG = -10;
+    private static final int ISOLATED_EG = -15;
+    // by rank counted from the pawn's own side
+    private static final int[] PASSED_MG = {0, 0, 5, 10, 20, 35, 60, 0};
+    private static final int[] PASSED_EG = {0, 5, 10, 20, 35, 60, 100, 0};
+
+    // per reachable square beyond the given count, for knight, bishop, rook, queen
+    private static final int[] MOBILITY = {0, packed(4, 4), packed(5, 5), packed(2, 4), packed(1, 2)};
+    private static final int[] MOBILITY_BASE = {0, 4, 6, 7, 14};
+
+    private static final long[] ADJACENT_FILES = new long[8];
+    // squares in front of a pawn on its own and the adjacent files
+    private static final long[][] PASSED_SPAN = new long[2][64];
+
+    // Tables are written from black's side (a8 first) as they are usually
+    // printed; white pieces look them up with the square flipped.
+    private static final int[][] MG_TABLES = {
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    98, 134, 61, 95, 68, 126, 34, -11,
+                    -6, 7, 26, 31, 65, 56, 25, -20,
+                    -14, 13, 6, 21, 23, 12, 17, -23,
+                    -27, -2, -5, 12, 17, 6, 10, -25,
+                    -26, -4, -4, -10, 3, 3, 33, -12,
+                    -35, -1, -20, -23, -15, 24, 38, -22,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            },
+            {
+                    -167, -89, -34, -49, 61, -97, -15, -107,
+                    -73, -41, 72, 36, 23, 62, 7, -17,
+                    -47, 60, 37, 65, 84, 129, 73, 44,
+                    -9, 17, 19, 53, 37, 69, 18, 22,
+                    -13, 4, 16, 13, 28, 19, 21, -8,
+                    -23, -9, 12, 10, 19, 17, 25, -16,
+                    -29, -53, -12, -3, -1, 18, -14, -19,
+                    -105, -21, -58, -33, -17, -28, -19, -23
+            },
+            {
+                    -29, 4, -82, -37, -25, -42, 7, -8,
+                    -26, 16, -18, -13, 30, 59, 18, -47,
+                    -16, 37, 43, 40, 35, 50, 37, -2,
+                    -4, 5, 19, 50, 37, 37, 7, -2,
+                    -6, 13, 13, 26, 34, 12, 10, 4,
+                    0, 15, 15, 15, 14, 27, 18, 10,
+                    4, 15, 16, 0, 7, 21, 33, 1,
+                    -33, -3, -14, -21, -13, -12, -39, -21
+            },
+            {
+                    32, 42, 32, 51, 63, 9, 31, 43,
+                    27, 32, 58, 62, 80, 67, 26, 44,
+                    -5, 19, 26, 36, 17, 45, 61, 16,
+                    -24, -11, 7, 26, 24, 35, -8, -20,
+                    -36, -26, -12, -1, 9, -7, 6, -23,
+                    -45, -25, -16, -17, 3, 0, -5, -33,
+                    -44, -16, -20, -9, -1, 11, -6, -71,
+                    -19, -13, 1, 17, 16, 7, -37, -26
+            },
+            {
+                    -28, 0, 29, 12, 59, 44, 43, 45,
+                    -24, -39, -5, 1, -16, 57, 28, 54,
+                    -13, -17, 7, 8, 29, 56, 47, 57,
+                    -27, -27, -16, -16, -1, 17, -2, 1,
+                    -9, -26, -9, -10, -2, -4, 3, -3,
+                    -14, 2, -11, -2, -5, 2, 14, 5,
+                    -35, -8, 11, 2, 8, 15, -3, 1,
+                    -1, -18, -9, 10, -15, -25, -31, -50
+            },
+            {
+                    -65, 23, 16, -15, -56, -34, 2, 13,
+                    29, -1, -20, -7, -8, -4, -38, -29,
+                    -9, 24, 2, -16, -20, 6, 22, -22,
+                    -17, -20, -12, -27, -30, -25, -14, -36,
+                    -49, -1, -27, -39, -46, -44, -33, -51,
+                    -14, -14, -22, -46, -44, -30, -15, -27,
+                    1, 7, -8, -64, -43, -16, 9, 8,
+                    -15, 36, 12, -54, 8, -28, 24, 14
+            }
+    };
+
+    private static final int[][] EG_TABLES = {
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    178, 173, 158, 134, 147, 132, 165, 187,
+                    94, 100, 85, 67, 56, 53, 82, 84,
+                    32, 24, 13, 5, -2, 4, 17, 17,
+                    13, 9, -3, -7, -7, -8, 3, -1,
+                    4, 7, -6, 1, 0, -5, -1, -8,
+                    13, 8, 8, 10, 13, 0, 2, -7,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            },
+            {
+                    -58, -38, -13, -28, -31, -27, -63, -99,
+                    -25, -8, -25, -2, -9, -25, -24, -52,
+                    -24, -20, 10, 9, -1, -9, -19, -41,
+                    -17, 3, 22, 22, 22, 11, 8, -18,
+                    -18, -6, 16, 25, 16, 17, 4, -18,
+                    -23, -3, -1, 15, 10, -3, -20, -22,
+                    -42, -20, -10, -5, -2, -20, -23, -44,
+                    -29, -51, -23, -15, -22, -18, -50, -64
+            },
+            {
+                    -14, -21, -11, -8, -7, -9, -17, -24,
+                    -8, -4, 7, -12, -3, -13, -4, -14,
+                    2, -8, 0, -1, -2, 6, 0, 4,
+                    -3, 9, 12, 9, 14, 10, 3, 2,
+                    -6, 3, 13, 19, 7, 10, -3, -9,
+                    -12, -3, 8, 10, 13, 3, -7, -15,
+                    -14, -18, -7, -1, 4, -9, -15, -27,
+                    -23, -9, -23, -5, -9, -16, -5, -17
+            },
+            {
+                    13, 10, 18, 15, 12, 12, 8, 5,
+                    11, 13, 13, 11, -3, 3, 8, 3,
+                    7, 7, 7, 5, 4, -3, -5, -3,
+                    4, 3, 13, 1, 2, 1, -1, 2,
+                    3, 5, 8, 4, -5, -6, -8, -11,
+                    -4, 0, -5, -1, -7, -12, -8, -16,
+                    -6, -6, 0, 2, -9, -9, -11, -3,
+                    -9, 2, 3, -1, -5, -13, 4, -20
+            },
+            {
+                    -9, 22, 22, 27, 27, 19, 10, 20,
+                    -17, 20, 32, 41, 58, 25, 30, 0,
+                    -20, 6, 9, 49, 47, 35, 19, 9,
+                    3, 22, 24, 45, 57, 40, 57, 36,
+                    -18, 28, 19, 47, 31, 34, 39, 23,
+                    -16, -27, 15, 6, 9, 17, 10, 5,
+                    -22, -23, -30, -16, -16, -23, -36, -32,
+                    -33, -28, -22, -43, -5, -32, -20, -41
+            },
+            {
+                    -74, -35, -18, -18, -11, 15, 4, -17,
+                    -12, 17, 14, 17, 17, 38, 23, 11,
+                    10, 17, 23, 15, 20, 45, 44, 13,
+                    -8, 22, 24, 27, 26, 33, 26, 3,
+                    -18, -4, 21, 24, 27, 23, 9, -11,
+                    -19, -3, 11, 21, 23, 16, 7, -9,
+                    -27, -11, 4, 13, 14, 4, -5, -17,
+                    -53, -34, -21, -11, -28, -14, -24, -43
+            }
+    };
+
+    static {
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            for (int square = 0; square < 64; square++) {
+                int white = Position.makePiece(Position.WHITE, type);
+                int black = Position.makePiece(Position.BLACK, type);
+                PSQ[white][square] = packed(MG_VALUES[type] + MG_TABLES[type][square ^ 56],
+                        EG_VALUES[type] + EG_TABLES[type][square ^ 56]);
+                PSQ[black][square] = -packed(MG_VALUES[type] + MG_TABLES[type][square],
+                        EG_VALUES[type] + EG_TABLES[type][square]);
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? Bitboards.FILE_A << (file - 1) : 0)
+                    | (file < 7 ? Bitboards.FILE_A << (file + 1) : 0);
+        }
+        for (int square = 0; square < 64; square++) {
+            int file = Bitboards.fileOf(square);
+            int rank = Bitboards.rankOf(square);
+            long files = ADJACENT_FILES[file] | (Bitboards.FILE_A << file);
+            long above = rank == 7 ? 0 : -1L << ((rank + 1) * 8);
+            long below = rank == 0 ? 0 : -1L >>> ((8 - rank) * 8);
+            PASSED_SPAN[Position.WHITE][square] = files & above;
+            PASSED_SPAN[Position.BLACK][square] = files & below;
+        }
+    }
+
+    // mg in the high 16 bits, eg in the low 16; sums of packed values stay
+    // packed as long as both halves fit in 16 bits
+    static int packed(int mg, int eg) {
+        return (mg << 16) + eg;
+    }
+
+    static int mgOf(int packed) {
+        return (packed + 0x8000) >> 16;
+    }
+
+    static int egOf(int packed) {
+        return (short) packed;
+    }
+
+    private final PawnTable pawnTable;
+
+    public Evaluation() {
+        this(PawnTable.DEFAULT_ENTRIES);
+    }
+
+    public Evaluation(int pawnTableEntries) {
+        pawnTable = new PawnTable(pawnTableEntries);
+    }
+
+    public int evaluate(Position position) {
+        long pawnKey = position.pawnHash();
+        int slot = pawnTable.probe(pawnKey);
+        int packed;
+        if (slot >= 0) {
+            packed = pawnTable.score(slot);
+        } else {
+            packed = pawnStructure(position);
+            pawnTable.store(pawnKey, packed);
+        }
+        packed += position.psqScore() + mobility(position, Position.WHITE) - mobility(position, Position.BLACK);
+
+        int mg = mgOf(packed);
+        int eg = egOf(packed);
+        int phase = Math.min(position.phase(), MAX_PHASE);
+        int score = (mg * phase + eg * (MAX_PHASE - phase)) / MAX_PHASE;
+        return position.sideToMove() == Position.WHITE ? score : -score;
+    }
+
+    public PawnTable pawnTable() {
+        return pawnTable;
+    }
+
+    // Squares each piece reaches that hold neither our own pieces nor are
+    // covered by an enemy pawn, counted against a typical number. Middlegame
+    // score in the high 16 bits, endgame score in the low 16 bits, so one
+    // multiply-add per piece covers both.
+    private static int mobility(Position position, int color) {
+        long occupied = position.occupied();
+        long enemyPawns = position.pieces(color ^ 1, Position.PAWN);
+        long pawnCovered = color == Position.WHITE
+                ? ((enemyPawns >>> 9) & ~Bitboards.FILE_H) | ((enemyPawns >>> 7) & ~Bitboards.FILE_A)
+                : ((enemyPawns << 7) & ~Bitboards.FILE_H) | ((enemyPawns << 9) & ~Bitboards.FILE_A);
+        long area = ~position.colorPieces(color) & ~pawnCovered;
+        int score = 0;
+        long knights = position.pieces(color, Position.KNIGHT);
+        while (knights != 0) {
+            int square = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            score += MOBILITY[Position.KNIGHT] * (Long.bitCount(Attacks.knight(square) & area) - MOBILITY_BASE[Position.KNIGHT]);
+        }
+        long bishops = position.pieces(color, Position.BISHOP);
+        while (bishops != 0) {
+            int square = Long.numberOfTrailingZeros(bishops);
+            bishops &= bishops - 1;
+            score += MOBILITY[Position.BISHOP] * (Long.bitCount(Attacks.bishop(square, occupied) & area) - MOBILITY_BASE[Position.BISHOP]);
+        }
+        long rooks = position.pieces(color, Position.ROOK);
+        while (rooks != 0) {
+            int square = Long.numberOfTrailingZeros(rooks);
+            rooks &= rooks - 1;
+            score += MOBILITY[Position.ROOK] * (Long.bitCount(Attacks.rook(square, occupied) & area) - MOBILITY_BASE[Position.ROOK]);
+        }
+        long queens = position.pieces(color, Position.QUEEN);
+        while (queens != 0) {
+            int square = Long.numberOfTrailingZeros(queens);
+            queens &= queens - 1;
+            score += MOBILITY[Position.QUEEN] * (Long.bitCount(Attacks.queen(square, occupied) & area) - MOBILITY_BASE[Position.QUEEN]);
+        }
+        return score;
+    }
+
+    // Doubled, isolated and passed pawns of both sides, white minus black,
+    // packed like the mobility score.
+    static int pawnStructure(Position position) {
+        int mg = 0;
+        int eg = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            int sign = color == Position.WHITE ? 1 : -1;
+            long ours = position.pieces(color, Position.PAWN);
+            long theirs = position.pieces(color ^ 1, Position.PAWN);
+            for (int file = 0; file < 8; file++) {
+                long onFile = ours & (Bitboards.FILE_A << file);
+                if (onFile == 0) {
+                    continue;
+                }
+                int extra = Long.bitCount(onFile) - 1;
+                mg += sign * extra * DOUBLED_MG;
+                eg += sign * extra * DOUBLED_EG;
+                if ((ours & ADJACENT_FILES[file]) == 0) {
+                    int count = extra + 1;
+                    mg += sign * count * ISOLATED_MG;
+                    eg += sign * count * ISOLATED_EG;
+                }
+            }
+            long pawns = ours;
+            while (pawns != 0) {
+                int square = Long.numberOfTrailingZeros(pawns);
+                pawns &= pawns - 1;
+                if ((PASSED_SPAN[color][square] & theirs) == 0) {
+                    int rank = color == Position.WHITE ? Bitboards.rankOf(square) : 7 - Bitboards.rankOf(square);
+                    mg += sign * PASSED_MG[rank];
+                    eg += sign * PASSED_EG[rank];
+                }
+            }
+        }
+        return packed(mg, eg);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+package chess.chess;
+
+// A single game without any UI: a position plus the rules needed to play it
+// out. Instances are independent, so one JVM can host any number of games.
+public class Game {
+    private final Position position;
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+
+    public Game() {
+        this(Position.START_FEN);
+    }
+
+    public Game(String fen) {
+        position = Position.fromFen(fen);
+    }
+
+    public Position position() {
+        return position;
+    }
+
+    // Plays a move given in UCI notation. Returns the move, or Move.NONE if it
+    // is not legal here; malformed notation throws IllegalArgumentException.
+    public int play(String uci) {
+        int move = Move.fromUci(position, uci);
+        if (move != Move.NONE) {
+            position.makeMove(move);
+        }
+        return move;
+    }
+
+    public boolean play(int move) {
+        int count = MoveGenerator.generate(position, legalMoves);
+        for (int i = 0; i < count; i++) {
+            if (legalMoves[i] == move) {
+                position.makeMove(move);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean undo() {
+        if (position.ply() == 0) {
+            return false;
+        }
+        position.unmakeMove();
+        return true;
+    }
+
+    public int legalMoves(int[] buffer) {
+        return MoveGenerator.generate(position, buffer);
+    }
+
+    public GameStatus status() {
+        return status(position, legalMoves);
+    }
+
+    public static GameStatus status(Position position) {
+        return status(position, new int[MoveGenerator.MAX_MOVES]);
+    }
+
+    private static GameStatus status(Position position, int[] buffer) {
+        if (MoveGenerator.generate(position, buffer) == 0) {
+            if (!MoveGenerator.isInCheck(position)) {
+                return GameStatus.STALEMATE;
+            }
+            return position.isWhiteToMove() ? GameStatus.BLACK_WINS : GameStatus.WHITE_WINS;
+        }
+        return drawStatus(position);
+    }
+
+    // The draw rules, for a position where the side to move has a legal move.
+    static GameStatus drawStatus(Position position) {
+        if (position.halfmoveClock() >= 100) {
+            return GameStatus.DRAW_FIFTY_MOVES;
+        }
+        if (position.isThreefoldRepetition()) {
+            return GameStatus.DRAW_REPETITION;
+        }
+        if (isInsufficientMaterial(position)) {
+            return GameStatus.DRAW_INSUFFICIENT_MATERIAL;
+        }
+        return GameStatus.ONGOING;
+    }
+
+    // Bare kings, or a single minor piece against a bare king.
+    public static boolean isInsufficientMaterial(Position position) {
+        long heavy = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            heavy |= position.pieces(color, Position.PAWN) | position.pieces(color, Position.ROOK)
+                    | position.pieces(color, Position.QUEEN);
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        return Long.bitCount(position.occupied()) <= 3;
+    }
+
+    public String fen() {
+        return position.toFen();
+    }
+}
\ No newline at end of file
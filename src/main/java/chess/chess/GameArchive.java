@@ -0,0 +1,354 @@
+package chess.chess;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Read-only, memory-mapped game archive. Moves are stored as their 16-bit
+// encoding, about 2 bytes per move against 50+ for a move_history row, and
+// nothing is deserialized up front: every accessor reads straight from the
+// mapping, so any game or ply can be opened in constant time.
+//
+// Layout, little-endian:
+//   header  magic, version, flags, game count, index offset, move count (32 bytes)
+//   games   id (8), result (1), start FEN, white, black (each a 2-byte length
+//           plus UTF-8), ply count (4), moves (2 each)
+//   index   file offset of every game (8 each)
+// A single mapping limits an archive to 2 GB, roughly ten million games.
+public class GameArchive implements AutoCloseable {
+    static final int MAGIC = 0x41474843; // "CHGA"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int FLAG_SORTED = 1;
+
+    private static final String[] RESULTS = {"*", "1-0", "1/2-1/2", "0-1"};
+    private static final int CHUNK_GAMES = 256;
+    private static final String EXPORT_MOVES =
+            "SELECT m.game_id, m.move, g.white, g.black, g.result, g.start_fen "
+                    + "FROM move_history m LEFT JOIN games g ON g.id = m.game_id "
+                    + "WHERE m.game_id IS NOT NULL AND m.move IS NOT NULL ORDER BY m.game_id, m.ply";
+
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int gameCount;
+    private final long moveCount;
+    private final int indexOffset;
+    private final boolean sorted;
+
+    private GameArchive(FileChannel channel, MappedByteBuffer data) throws IOException {
+        this.channel = channel;
+        this.data = data;
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a game archive");
+        }
+        if (data.getShort(4) != VERSION) {
+            throw new IOException("Unsupported archive version " + data.getShort(4));
+        }
+        sorted = (data.getShort(6) & FLAG_SORTED) != 0;
+        gameCount = data.getInt(8);
+        indexOffset = (int) data.getLong(16);
+        moveCount = data.getLong(24);
+        if (indexOffset < HEADER_SIZE || indexOffset + (long) gameCount * 8 > data.capacity()) {
+            throw new IOException("Archive index is truncated");
+        }
+    }
+
+    public static GameArchive open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archive larger than 2 GB: " + file);
+            }
+            return new GameArchive(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // GameArchive export <file> | import <file> | scan <file>
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length < 2) {
+            System.err.println("usage: GameArchive export|import|scan <file>");
+            return;
+        }
+        Path file = Paths.get(args[1]);
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "export" -> {
+                try {
+                    int games = export(DatabaseManager.getPool(), file);
+                    System.out.printf("Exported %,d games to %s (%,d bytes) in %d ms%n",
+                            games, file, Files.size(file), (System.nanoTime() - start) / 1_000_000);
+                } finally {
+                    DatabaseManager.shutdown();
+                }
+            }
+            case "import" -> {
+                DatabaseManager.initializeDatabase();
+                try (GameArchive archive = open(file)) {
+                    int games = archive.importInto(DatabaseManager.getPool());
+                    System.out.printf("Imported %,d new games of %,d in %d ms%n",
+                            games, archive.gameCount(), (System.nanoTime() - start) / 1_000_000);
+                } finally {
+                    DatabaseManager.shutdown();
+                }
+            }
+            case "scan" -> {
+                try (GameArchive archive = open(file)) {
+                    long[] captures = new long[1];
+                    archive.forEachMove((game, ply, move) -> {
+                        if (Move.isCapture(move)) {
+                            captures[0]++;
+                        }
+                    });
+                    long nanos = System.nanoTime() - start;
+                    System.out.printf("%,d games, %,d moves, %,d captures; %.1f bytes/move; %,.0f moves/s, %.0f MB/s%n",
+                            archive.gameCount(), archive.moveCount(), captures[0],
+                            (double) archive.sizeInBytes() / Math.max(1, archive.moveCount()),
+                            archive.moveCount() * 1e9 / nanos, archive.sizeInBytes() * 1e3 / nanos);
+                }
+            }
+            default -> System.err.println("Unknown command " + args[0]);
+        }
+    }
+
+    public int gameCount() {
+        return gameCount;
+    }
+
+    public long moveCount() {
+        return moveCount;
+    }
+
+    public long sizeInBytes() {
+        return data.capacity();
+    }
+
+    public long gameId(int game) {
+        return data.getLong(offset(game));
+    }
+
+    public String result(int game) {
+        return RESULTS[data.get(offset(game) + 8) & 3];
+    }
+
+    public String startFen(int game) {
+        return string(offset(game) + 9);
+    }
+
+    public String white(int game) {
+        int at = skipString(offset(game) + 9);
+        return string(at);
+    }
+
+    public String black(int game) {
+        int at = skipString(skipString(offset(game) + 9));
+        return string(at);
+    }
+
+    public int plyCount(int game) {
+        return data.getInt(movesHeader(game));
+    }
+
+    public int move(int game, int ply) {
+        return data.getShort(movesHeader(game) + 4 + ply * 2) & 0xFFFF;
+    }
+
+    // Index of the game with this id, or -1. Binary search when the archive
+    // was written in id order, which export always does.
+    public int find(long gameId) {
+        if (sorted) {
+            int low = 0;
+            int high = gameCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long id = gameId(middle);
+                if (id < gameId) {
+                    low = middle + 1;
+                } else if (id > gameId) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+        for (int game = 0; game < gameCount; game++) {
+            if (gameId(game) == gameId) {
+                return game;
+            }
+        }
+        return -1;
+    }
+
+    public StoredGame game(int game) {
+        int at = movesHeader(game);
+        int[] moves = new int[data.getInt(at)];
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = data.getShort(at + 4 + ply * 2) & 0xFFFF;
+        }
+        return new StoredGame(new GameRecord(gameId(game), white(game), black(game), result(game), startFen(game)),
+                moves);
+    }
+
+    // The position before the given ply is played.
+    public Position position(int game, int ply) {
+        String fen = startFen(game);
+        Position position = fen == null ? Position.startPosition() : Position.fromFen(fen);
+        int at = movesHeader(game) + 4;
+        for (int i = 0; i < ply; i++) {
+            position.makeMove(data.getShort(at + i * 2) & 0xFFFF);
+        }
+        return position;
+    }
+
+    // Visits every move of every game in file order without allocating.
+    public void forEachMove(MoveVisitor visitor) {
+        for (int game = 0; game < gameCount; game++) {
+            int at = movesHeader(game);
+            int plies = data.getInt(at);
+            at += 4;
+            for (int ply = 0; ply < plies; ply++) {
+                visitor.visit(game, ply, data.getShort(at) & 0xFFFF);
+                at += 2;
+            }
+        }
+    }
+
+    // Replays every game to rebuild the position hashes and stores it with
+    // GameBatch. Games already in the database are skipped. Returns the number
+    // of games added.
+    public int importInto(ConnectionPool pool) throws SQLException {
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        GameBatch batch = new GameBatch();
+        int added = 0;
+        for (int game = 0; game < gameCount; game++) {
+            StoredGame stored = game(game);
+            Position position = stored.startPosition();
+            List<MoveRecord> records = new ArrayList<>(stored.moves().length);
+            for (int move : stored.moves()) {
+                if (!isLegal(position, move, legal)) {
+                    System.err.println("Skipping game " + stored.game().id() + ": illegal move "
+                            + Move.toUci(move) + " at ply " + records.size());
+                    records = null;
+                    break;
+                }
+                records.add(MoveRecord.of(stored.game().id(), position, move));
+                position.makeMove(move);
+            }
+            if (records != null) {
+                batch.add(stored.game(), records);
+            }
+            if (batch.size() == CHUNK_GAMES || game == gameCount - 1) {
+                added += batch.write(pool);
+                batch.clear();
+            }
+        }
+        return added;
+    }
+
+    // Streams every game with encoded moves out of move_history into a new
+    // archive, in game id order. Returns the number of games written. If the
+    // export fails, an existing archive at file is left as it was.
+    public static int export(ConnectionPool pool, Path file) throws SQLException, IOException {
+        Connection connection = pool.borrow();
+        try (GameArchiveWriter writer = new GameArchiveWriter(file)) {
+            // a cursor only streams inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(EXPORT_MOVES)) {
+                statement.setFetchSize(10_000);
+                try (ResultSet rows = statement.executeQuery()) {
+                    int[] moves = new int[256];
+                    int count = 0;
+                    GameRecord current = null;
+                    while (rows.next()) {
+                        long id = rows.getLong(1);
+                        if (current == null || current.id() != id) {
+                            if (current != null) {
+                                writer.add(current, moves, count);
+                            }
+                            String result = rows.getString(5);
+                            current = new GameRecord(id, rows.getString(3), rows.getString(4),
+                                    result == null ? "*" : result, rows.getString(6));
+                            count = 0;
+                        }
+                        if (count == moves.length) {
+                            moves = Arrays.copyOf(moves, moves.length * 2);
+                        }
+                        moves[count++] = rows.getInt(2);
+                    }
+                    if (current != null) {
+                        writer.add(current, moves, count);
+                    }
+                }
+            }
+            writer.commit();
+            connection.commit();
+            connection.setAutoCommit(true);
+            pool.release(connection);
+            return writer.gameCount();
+        } catch (SQLException | IOException e) {
+            pool.discard(connection);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int offset(int game) {
+        if (game < 0 || game >= gameCount) {
+            throw new IndexOutOfBoundsException("Game " + game + " of " + gameCount);
+        }
+        return (int) data.getLong(indexOffset + game * 8);
+    }
+
+    private int movesHeader(int game) {
+        return skipString(skipString(skipString(offset(game) + 9)));
+    }
+
+    private int skipString(int at) {
+        return at + 2 + (data.getShort(at) & 0xFFFF);
+    }
+
+    private String string(int at) {
+        int length = data.getShort(at) & 0xFFFF;
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isLegal(Position position, int move, int[] legal) {
+        int count = MoveGenerator.generate(position, legal);
+        for (int i = 0; i < count; i++) {
+            if (legal[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public interface MoveVisitor {
+        void visit(int game, int ply, int move);
+    }
+}
\ No newline at end of file
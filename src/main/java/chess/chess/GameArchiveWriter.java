@@ -0,0 +1,144 @@
+package chess.chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Writes the archive format read by GameArchive. Games are appended through a
+// buffer to a temporary file next to the target; commit() writes the offset
+// index and the header and moves the file into place. Closing without a
+// commit, e.g. when the export fails halfway, deletes the temporary file and
+// leaves any existing archive untouched.
+public class GameArchiveWriter implements AutoCloseable {
+    private final Path file;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    // file offset of the first byte in the buffer
+    private long flushedBytes = GameArchive.HEADER_SIZE;
+    private long[] offsets = new long[1024];
+    private int gameCount;
+    private long moveCount;
+    private long lastId = Long.MIN_VALUE;
+    private boolean sorted = true;
+    private boolean committed;
+
+    public GameArchiveWriter(Path file) throws IOException {
+        this.file = file;
+        temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        channel.position(GameArchive.HEADER_SIZE);
+    }
+
+    public void add(StoredGame game) throws IOException {
+        add(game.game(), game.moves(), game.moves().length);
+    }
+
+    public void add(GameRecord game, int[] moves, int count) throws IOException {
+        byte[] fen = bytes(game.startFen());
+        byte[] white = bytes(game.white());
+        byte[] black = bytes(game.black());
+        int size = 8 + 1 + 6 + fen.length + white.length + black.length + 4 + count * 2;
+        if (size > buffer.remaining()) {
+            flush();
+            if (size > buffer.capacity()) {
+                throw new IOException("Game " + game.id() + " is too large for the archive");
+            }
+        }
+
+        if (gameCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[gameCount++] = flushedBytes + buffer.position();
+        sorted &= game.id() > lastId;
+        lastId = game.id();
+        moveCount += count;
+
+        buffer.putLong(game.id());
+        buffer.put((byte) PositionStats.outcomeIndex(game.result()));
+        putString(fen);
+        putString(white);
+        putString(black);
+        buffer.putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putShort((short) moves[i]);
+        }
+    }
+
+    public int gameCount() {
+        return gameCount;
+    }
+
+    // Finishes the archive and replaces the target file with it.
+    public void commit() throws IOException {
+        if (committed) {
+            throw new IllegalStateException("Archive " + file + " is already committed");
+        }
+        try {
+            flush();
+            long indexOffset = flushedBytes;
+            for (int i = 0; i < gameCount; i++) {
+                if (buffer.remaining() < 8) {
+                    flush();
+                }
+                buffer.putLong(offsets[i]);
+            }
+            flush();
+
+            ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(GameArchive.MAGIC);
+            header.putShort((short) GameArchive.VERSION);
+            header.putShort((short) (sorted ? GameArchive.FLAG_SORTED : 0));
+            header.putInt(gameCount);
+            header.putInt(0);
+            header.putLong(indexOffset);
+            header.putLong(moveCount);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    // Discards the archive unless it was committed.
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushedBytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putString(byte[] value) {
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+    }
+
+    // null and empty strings are stored the same way and read back as null
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length > 0xFFFF ? Arrays.copyOf(bytes, 0xFFFF) : bytes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package chess.chess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Complete games collected for one bulk write: their games rows, move_history
+// rows and position_stats totals go out in a single transaction. A game whose
+// id is already stored is skipped, so loading the same games twice stores
+// them once.
+public class GameBatch {
+    public static final int JDBC_BATCH_SIZE = 1000;
+
+    private final List<GameRecord> games = new ArrayList<>();
+    private final List<List<MoveRecord>> moves = new ArrayList<>();
+    private final PositionStats stats = new PositionStats();
+    private long moveCount;
+
+    public void add(GameRecord game, List<MoveRecord> gameMoves) {
+        games.add(game);
+        moves.add(gameMoves);
+        moveCount += gameMoves.size();
+    }
+
+    public int size() {
+        return games.size();
+    }
+
+    public long moveCount() {
+        return moveCount;
+    }
+
+    public void clear() {
+        games.clear();
+        moves.clear();
+        moveCount = 0;
+    }
+
+    // Returns how many of the games were new.
+    public int write(ConnectionPool pool) throws SQLException {
+        if (games.isEmpty()) {
+            return 0;
+        }
+        Connection connection = pool.borrow();
+        try {
+            connection.setAutoCommit(false);
+            int[] inserted;
+            try (PreparedStatement statement = connection.prepareStatement(DatabaseManager.INSERT_GAME)) {
+                for (GameRecord game : games) {
+                    DatabaseManager.bindGame(statement, game);
+                    statement.addBatch();
+                }
+                inserted = statement.executeBatch();
+            }
+
+            stats.clear();
+            int newGames = 0;
+            try (PreparedStatement statement = connection.prepareStatement(DatabaseManager.INSERT_MOVE)) {
+                int pending = 0;
+                for (int i = 0; i < games.size(); i++) {
+                    // 0 means ON CONFLICT skipped the row; drivers may also report
+                    // SUCCESS_NO_INFO, which counts as inserted
+                    if (inserted[i] == 0) {
+                        continue;
+                    }
+                    newGames++;
+                    stats.add(games.get(i), moves.get(i));
+                    for (MoveRecord move : moves.get(i)) {
+                        DatabaseManager.bindMove(statement, move);
+                        statement.addBatch();
+                        if (++pending == JDBC_BATCH_SIZE) {
+                            statement.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+            }
+            stats.write(connection, JDBC_BATCH_SIZE);
+            connection.commit();
+            connection.setAutoCommit(true);
+            pool.release(connection);
+            return newGames;
+        } catch (SQLException e) {
+            pool.discard(connection);
+            throw e;
+        }
+    }
+}
\ No newline at end of file
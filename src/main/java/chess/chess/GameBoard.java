@@ -2,32 +2,39 @@ package chess.chess;
 
 public class GameBoard {
     private static final int BOARD_SIZE = 8;
+    public static Position position = new Position();
     public static ChessPiece[][] board = new ChessPiece[BOARD_SIZE][BOARD_SIZE];
+    public static AttackMap attacks = new AttackMap(position);
 
     public static void initializeBoard() {
-        board[0] = new ChessPiece[] {
-                new ChessPiece("r", false), new ChessPiece("n", false), new ChessPiece("b", false),
-                new ChessPiece("q", false), new ChessPiece("k", false), new ChessPiece("b", false),
-                new ChessPiece("n", false), new ChessPiece("r", false)
-        };
-        board[1] = fillRow("p", false);
-        board[6] = fillRow("P", true);
-        board[7] = new ChessPiece[] {
-                new ChessPiece("R", true), new ChessPiece("N", true), new ChessPiece("B", true),
-                new ChessPiece("Q", true), new ChessPiece("K", true), new ChessPiece("B", true),
-                new ChessPiece("N", true), new ChessPiece("R", true)
-        };
+        position = Position.startPosition();
+        attacks = new AttackMap(position);
+        syncBoard();
+    }
 
-        for (int i = 2; i < 6; i++) {
-            board[i] = new ChessPiece[8];
-        }
+    // Plays a legal move on the position and keeps the attack map and the
+    // row/col view in step with it.
+    public static void makeMove(int move) {
+        position.makeMove(move);
+        attacks.update(move);
+        syncBoard();
+    }
+
+    // Replaces the game with a copy of the given position, history included,
+    // e.g. a game loaded from the database.
+    public static void setPosition(Position source) {
+        position.copyFrom(source);
+        attacks.reset();
+        syncBoard();
     }
 
-    private static ChessPiece[] fillRow(String type, boolean isWhite) {
-        ChessPiece[] row = new ChessPiece[8];
-        for (int i = 0; i < 8; i++) {
-            row[i] = new ChessPiece(type, isWhite);
+    // Rebuilds the row/col view of the bitboard position for the UI. Pieces are
+    // shared instances, so this does not allocate.
+    public static void syncBoard() {
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int col = 0; col < BOARD_SIZE; col++) {
+                board[row][col] = ChessPiece.of(position.pieceAt(row, col));
+            }
         }
-        return row;
     }
 }
\ No newline at end of file
@@ -0,0 +1,5 @@
+package chess.chess;
+
+// One row of the games table. startFen is null for the standard start position.
+public record GameRecord(long id, String white, String black, String result, String startFen) {
+}
\ No newline at end of file
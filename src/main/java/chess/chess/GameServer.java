@@ -0,0 +1,167 @@
+package chess.chess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Headless multi-game server. Every connection is a session with its own Game
+// and runs on its own virtual thread, so thousands of concurrent games cost
+// little more than their positions. Nothing here touches JavaFX or the database.
+//
+// Line protocol, one command per line, one reply line per command:
+//   new [fen]    start a new game                -> ok <fen>
+//   move <uci>   play a move                     -> ok <status> <fen> | illegal <uci>
+//   legal        list legal moves                -> ok <uci> <uci> ...
+//   fen          current position                -> ok <fen>
+//   status       game status                     -> ok <status>
+//   quit         close the session               -> ok bye
+// Malformed input, such as an invalid FEN or square, gets "error <reason>"
+// and the session carries on.
+public class GameServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 5555;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong gamesFinished = new AtomicLong();
+    private final AtomicLong movesPlayed = new AtomicLong();
+
+    public GameServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 4096, InetAddress.getLoopbackAddress());
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        try (GameServer server = new GameServer(port)) {
+            System.out.println("Chess server listening on " + server.getPort());
+            server.serve();
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public long getGamesFinished() {
+        return gamesFinished.get();
+    }
+
+    public long getMovesPlayed() {
+        return movesPlayed.get();
+    }
+
+    // Accepts connections until the server is closed.
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            sessions.execute(() -> runSession(socket));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdownNow();
+    }
+
+    private void runSession(Socket socket) {
+        activeSessions.incrementAndGet();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            Game game = new Game();
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.equals("quit")) {
+                    out.write("ok bye\n");
+                    out.flush();
+                    break;
+                }
+                String reply;
+                // a bad command costs the client an error line, not the session
+                try {
+                    if (line.equals("new") || line.startsWith("new ")) {
+                        String fen = line.length() > 4 ? line.substring(4) : Position.START_FEN;
+                        game = new Game(fen);
+                        reply = "ok " + game.fen();
+                    } else {
+                        reply = handle(game, line, moves);
+                    }
+                } catch (IllegalArgumentException e) {
+                    reply = "error " + e.getMessage();
+                } catch (RuntimeException e) {
+                    System.err.println("Session command '" + line + "' failed: " + e);
+                    reply = "error internal " + e.getClass().getSimpleName();
+                }
+                reply(out, reply);
+            }
+        } catch (IOException e) {
+            // client went away; the session simply ends
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    private String handle(Game game, String command, int[] moves) {
+        if (command.startsWith("move ")) {
+            String uci = command.substring(5).trim();
+            if (game.status().isOver() || game.play(uci) == Move.NONE) {
+                return "illegal " + uci;
+            }
+            movesPlayed.incrementAndGet();
+            GameStatus status = game.status();
+            if (status.isOver()) {
+                gamesFinished.incrementAndGet();
+            }
+            return "ok " + status + " " + game.fen();
+        }
+        switch (command) {
+            case "legal": {
+                StringBuilder reply = new StringBuilder("ok");
+                int count = game.legalMoves(moves);
+                for (int i = 0; i < count; i++) {
+                    reply.append(' ').append(Move.toUci(moves[i]));
+                }
+                return reply.toString();
+            }
+            case "fen":
+                return "ok " + game.fen();
+            case "status":
+                return "ok " + game.status();
+            default:
+                return "error unknown command";
+        }
+    }
+
+    private static void reply(Writer out, String reply) throws IOException {
+        out.write(reply);
+        out.write('\n');
+        out.flush();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package chess.chess;
+
+public enum GameStatus {
+    ONGOING,
+    WHITE_WINS,
+    BLACK_WINS,
+    STALEMATE,
+    DRAW_FIFTY_MOVES,
+    DRAW_REPETITION,
+    DRAW_INSUFFICIENT_MATERIAL;
+
+    public boolean isOver() {
+        return this != ONGOING;
+    }
+
+    // Result string as used in PGN.
+    public String result() {
+        switch (this) {
+            case ONGOING:
+                return "*";
+            case WHITE_WINS:
+                return "1-0";
+            case BLACK_WINS:
+                return "0-1";
+            default:
+                return "1/2-1/2";
+        }
+    }
+}
\ No newline at end of file
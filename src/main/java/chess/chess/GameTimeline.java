@@ -0,0 +1,108 @@
+package chess.chess;
+
+import java.util.Arrays;
+
+// The moves of one game plus a compact snapshot of the position every
+// SNAPSHOT_INTERVAL plies, so any ply can be shown without replaying the game
+// from its start. seek() restores the nearest snapshot at or before the ply
+// and replays the few moves after it. When the repetition rule looks further
+// back than that snapshot, the seek starts from the one before the last
+// capture or pawn move instead, at most FIFTY_MOVE_PLIES back: past that the
+// fifty-move rule has drawn the game anyway. Either way a seek costs the same
+// at ply 10 as at ply 10,000.
+//
+// Snapshots live back to back in one byte array, Position.SNAPSHOT_SIZE bytes
+// each, and the timeline keeps the position after its last move to append to.
+public class GameTimeline {
+    public static final int SNAPSHOT_INTERVAL = 16;
+    private static final int FIFTY_MOVE_PLIES = 100;
+
+    private final Position end;
+    private int[] moves = new int[256];
+    private int length;
+    private byte[] snapshots = new byte[16 * Position.SNAPSHOT_SIZE];
+
+    public GameTimeline(Position start) {
+        end = start.copy();
+        end.writeSnapshot(snapshots, 0);
+    }
+
+    // Replays a stored game. Throws IllegalArgumentException at the first
+    // move that is not legal, which can only come from a damaged row.
+    public static GameTimeline of(StoredGame game) {
+        GameTimeline timeline = new GameTimeline(game.startPosition());
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        for (int move : game.moves()) {
+            int count = MoveGenerator.generate(timeline.end, legal);
+            if (!contains(legal, count, move)) {
+                throw new IllegalArgumentException("Game " + game.game().id() + " has an illegal move "
+                        + Move.toUci(move) + " at ply " + timeline.length);
+            }
+            timeline.append(move);
+        }
+        return timeline;
+    }
+
+    // Adds a legal move of the position after the last one.
+    public void append(int move) {
+        if (length == moves.length) {
+            moves = Arrays.copyOf(moves, length * 2);
+        }
+        moves[length++] = move;
+        end.makeMove(move);
+        if (length % SNAPSHOT_INTERVAL == 0) {
+            int offset = length / SNAPSHOT_INTERVAL * Position.SNAPSHOT_SIZE;
+            if (offset == snapshots.length) {
+                snapshots = Arrays.copyOf(snapshots, offset * 2);
+            }
+            end.writeSnapshot(snapshots, offset);
+        }
+    }
+
+    // Number of moves; plies run from 0, the start, to length().
+    public int length() {
+        return length;
+    }
+
+    // The move played from the given ply.
+    public int move(int ply) {
+        return moves[ply];
+    }
+
+    // Copies the position after the last move, with its whole history, into
+    // target.
+    public void copyEndTo(Position target) {
+        target.copyFrom(end);
+    }
+
+    // Sets target up as the position at the given ply, with enough history
+    // for the draw rules.
+    public void seek(int ply, Position target) {
+        if (ply < 0 || ply > length) {
+            throw new IndexOutOfBoundsException("Ply " + ply + " of a " + length + "-ply game");
+        }
+        int from = restore(ply - ply % SNAPSHOT_INTERVAL, ply, target);
+        int window = Math.min(target.halfmoveClock(), FIFTY_MOVE_PLIES);
+        if (from > 0 && window > ply - from) {
+            int start = Math.max(0, ply - window);
+            restore(start - start % SNAPSHOT_INTERVAL, ply, target);
+        }
+    }
+
+    private int restore(int snapshotPly, int ply, Position target) {
+        target.readSnapshot(snapshots, snapshotPly / SNAPSHOT_INTERVAL * Position.SNAPSHOT_SIZE);
+        for (int i = snapshotPly; i < ply; i++) {
+            target.makeMove(moves[i]);
+        }
+        return snapshotPly;
+    }
+
+    private static boolean contains(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
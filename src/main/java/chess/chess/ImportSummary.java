@@ -0,0 +1,18 @@
+package chess.chess;
+
+// Totals of one bulk import. Rejected games are not part of games or moves.
+public record ImportSummary(long games, long moves, long rejected, long elapsedMillis) {
+    public double gamesPerSecond() {
+        return games * 1000.0 / Math.max(1, elapsedMillis);
+    }
+
+    public double movesPerSecond() {
+        return moves * 1000.0 / Math.max(1, elapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d games, %,d moves, %,d rejected in %.1f s (%,.0f games/s, %,.0f moves/s)",
+                games, moves, rejected, elapsedMillis / 1000.0, gamesPerSecond(), movesPerSecond());
+    }
+}
\ No newline at end of file
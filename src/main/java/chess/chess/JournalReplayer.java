@@ -0,0 +1,156 @@
+package chess.chess;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Drains a MoveJournal into move_history on a background thread. Every row
+// carries its journal sequence number and duplicates are ignored by the
+// database, so replaying a batch again after a crash or a failed commit is
+// harmless. While PostgreSQL is down or slow the moves simply wait in the
+// journal; the replayer retries with a growing pause and reports the outage
+// once instead of on every attempt. The first batch, and the first one after
+// every failure, creates the schema first, so moves journaled while the
+// database was unreachable at startup still find their table.
+public class JournalReplayer implements AutoCloseable {
+    public static final int BATCH_SIZE = 500;
+    private static final long IDLE_WAIT_MS = 200;
+    private static final long MIN_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 5000;
+
+    static final String INSERT_JOURNALED_MOVE =
+            "INSERT INTO move_history (" + DatabaseManager.MOVE_COLUMNS + ", journal_seq) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (journal_seq) DO NOTHING";
+
+    private final MoveJournal journal;
+    private final ConnectionPool pool;
+    private Thread thread;
+    private final Object progressLock = new Object();
+    private long replayedSeq;
+    // replayer thread only; false until the schema is known to be in place
+    private boolean schemaReady;
+    private volatile boolean running = true;
+
+    private JournalReplayer(MoveJournal journal, ConnectionPool pool) {
+        this.journal = journal;
+        this.pool = pool;
+        replayedSeq = Math.max(journal.checkpointSeq(), journal.firstSeq() - 1);
+    }
+
+    // Starts replaying from the journal's checkpoint on a daemon thread.
+    public static JournalReplayer start(MoveJournal journal, ConnectionPool pool) {
+        JournalReplayer replayer = new JournalReplayer(journal, pool);
+        replayer.thread = new Thread(replayer::replayLoop, "journal-replayer");
+        replayer.thread.setDaemon(true);
+        replayer.thread.start();
+        return replayer;
+    }
+
+    public long replayedSeq() {
+        synchronized (progressLock) {
+            return replayedSeq;
+        }
+    }
+
+    // Blocks until every entry up to seq is in the database, or the timeout
+    // elapses. Returns whether it got there.
+    public boolean awaitReplayed(long seq, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (progressLock) {
+            while (replayedSeq < seq) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                progressLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    // Stops after the batch in progress. Whatever is not replayed yet stays in
+    // the journal for the next start.
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void replayLoop() {
+        long backoff = MIN_BACKOFF_MS;
+        boolean failing = false;
+        while (running) {
+            try {
+                long next = replayedSeq() + 1;
+                List<MoveJournal.Entry> entries = journal.read(next, BATCH_SIZE);
+                if (entries.isEmpty()) {
+                    journal.awaitDurableAppend(next - 1, IDLE_WAIT_MS);
+                    continue;
+                }
+                write(entries);
+                long last = entries.get(entries.size() - 1).seq();
+                journal.checkpoint(last);
+                synchronized (progressLock) {
+                    replayedSeq = last;
+                    progressLock.notifyAll();
+                }
+                if (failing) {
+                    System.err.println("Database reachable again, replaying the move journal");
+                    failing = false;
+                }
+                backoff = MIN_BACKOFF_MS;
+            } catch (SQLException | IOException e) {
+                Metrics.error("journal replay", e);
+                if (!failing) {
+                    System.err.println("Cannot store moves (" + e.getMessage() + "), keeping them in the journal");
+                    failing = true;
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void write(List<MoveJournal.Entry> entries) throws SQLException {
+        Metrics.ReplayBatchEvent event = Metrics.beginReplay();
+        long start = Metrics.start();
+        Connection connection = pool.borrow();
+        try {
+            if (!schemaReady) {
+                DatabaseManager.createSchema(connection);
+                schemaReady = true;
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_JOURNALED_MOVE)) {
+                for (MoveJournal.Entry entry : entries) {
+                    DatabaseManager.bindMove(statement, entry.move());
+                    statement.setLong(10, entry.seq());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+            pool.release(connection);
+            Metrics.replayed(event, start, entries.size());
+        } catch (SQLException e) {
+            pool.discard(connection);
+            schemaReady = false;
+            throw e;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package chess.chess;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free latency histogram with logarithmic buckets: each power of two of
+// nanoseconds is split into SUB_BUCKETS linear steps, which keeps the relative
+// error of any reported percentile under 1/SUB_BUCKETS.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (65 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(Math.max(0, nanos)));
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Upper bound in nanoseconds of the bucket holding the given percentile (0-100).
+    public long percentile(double percentile) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    public String summary() {
+        return String.format("count=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max<=%.1fus",
+                count(), percentile(50) / 1000.0, percentile(90) / 1000.0, percentile(99) / 1000.0,
+                percentile(99.9) / 1000.0, percentile(100) / 1000.0);
+    }
+
+    // The same percentiles for values that are not times, e.g. sizes.
+    public String valueSummary() {
+        return String.format("count=%d p50=%d p90=%d p99=%d max<=%d",
+                count(), percentile(50), percentile(90), percentile(99), percentile(100));
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, magnitude * SUB_BUCKETS + subBucket);
+    }
+
+    private static long upperBound(int index) {
+        int magnitude = index / SUB_BUCKETS;
+        int subBucket = index % SUB_BUCKETS;
+        if (magnitude == 0) {
+            return subBucket;
+        }
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (magnitude - 1)) - 1;
+    }
+}
\ No newline at end of file
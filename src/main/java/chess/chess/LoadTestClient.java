@@ -0,0 +1,106 @@
+package chess.chess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drives a GameServer with many concurrent sessions, each playing random games
+// to the end, and reports games per second and per-request latency percentiles.
+//
+// Usage: LoadTestClient [port] [sessions] [gamesPerSession]
+public class LoadTestClient {
+    private static final int MAX_PLIES = 300;
+
+    private final int port;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public LoadTestClient(int port) {
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int gamesPerSession = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        new LoadTestClient(port).run(sessions, gamesPerSession);
+    }
+
+    public void run(int sessions, int gamesPerSession) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(sessions);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                executor.execute(() -> {
+                    try {
+                        playSession(gamesPerSession);
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("sessions=%d games=%d moves=%d failures=%d time=%.2fs%n",
+                sessions, games.get(), moves.get(), failures.get(), seconds);
+        System.out.printf("games/s=%.1f moves/s=%.1f%n", games.get() / seconds, moves.get() / seconds);
+        System.out.println("request latency " + latencies.summary());
+    }
+
+    private void playSession(int gamesPerSession) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            for (int g = 0; g < gamesPerSession; g++) {
+                request(in, out, "new");
+                for (int ply = 0; ply < MAX_PLIES; ply++) {
+                    String[] legal = request(in, out, "legal").split(" ");
+                    if (legal.length <= 1) {
+                        break;
+                    }
+                    String move = legal[1 + ThreadLocalRandom.current().nextInt(legal.length - 1)];
+                    String reply = request(in, out, "move " + move);
+                    if (!reply.startsWith("ok ")) {
+                        throw new IOException("Server rejected " + move + ": " + reply);
+                    }
+                    moves.incrementAndGet();
+                    if (!reply.startsWith("ok ONGOING")) {
+                        break;
+                    }
+                }
+                games.incrementAndGet();
+            }
+            request(in, out, "quit");
+        }
+    }
+
+    private String request(BufferedReader in, Writer out, String command) throws IOException {
+        long start = System.nanoTime();
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        latencies.record(System.nanoTime() - start);
+        if (reply == null) {
+            throw new IOException("Server closed the connection");
+        }
+        return reply;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+package chess.chess;
+
+// Running win/draw/loss count of one engine against another, with the Elo
+// difference it implies and the log-likelihood ratio of a sequential
+// probability ratio test between two Elo hypotheses. Safe to update from
+// several game threads.
+//
+// The LLR is the generalised SPRT approximation over the trinomial outcome:
+// with mean score s, per-game variance v and n games it is
+//   n * ((s - s0)^2 - (s - s1)^2) / (2 v)
+// where s0 and s1 are the expected scores under elo0 and elo1.
+public class MatchScore {
+    // two-sided 95% interval
+    private static final double Z95 = 1.959964;
+
+    private long wins;
+    private long draws;
+    private long losses;
+
+    // score is 1, 0.5 or 0 from the first engine's point of view
+    public synchronized void add(double score) {
+        if (score > 0.5) {
+            wins++;
+        } else if (score < 0.5) {
+            losses++;
+        } else {
+            draws++;
+        }
+    }
+
+    public synchronized long games() {
+        return wins + draws + losses;
+    }
+
+    public synchronized double score() {
+        long games = games();
+        return games == 0 ? 0.5 : (wins + draws * 0.5) / games;
+    }
+
+    public synchronized double elo() {
+        return elo(score());
+    }
+
+    // Half the width of the 95% confidence interval of elo().
+    public synchronized double eloError() {
+        long games = games();
+        if (games < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double margin = Z95 * Math.sqrt(variance() / games);
+        double score = score();
+        return (elo(Math.min(1, score + margin)) - elo(Math.max(0, score - margin))) / 2;
+    }
+
+    public synchronized double llr(double elo0, double elo1) {
+        double variance = variance();
+        if (variance == 0) {
+            return 0;
+        }
+        double score = score();
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return games() * (s1 - s0) * (2 * score - s0 - s1) / (2 * variance);
+    }
+
+    // H0 is accepted when the LLR falls to the lower bound, H1 when it rises
+    // to the upper one.
+    public static double lowerBound(double alpha, double beta) {
+        return Math.log(beta / (1 - alpha));
+    }
+
+    public static double upperBound(double alpha, double beta) {
+        return Math.log((1 - beta) / alpha);
+    }
+
+    public static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    public static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    public synchronized String summary() {
+        String elo = Double.isFinite(eloError()) ? String.format("Elo %.1f +- %.1f", elo(), eloError()) : "Elo n/a";
+        return String.format("+%d -%d =%d  score %.1f%%  %s", wins, losses, draws, score() * 100, elo);
+    }
+
+    private double variance() {
+        long games = games();
+        if (games == 0) {
+            return 0;
+        }
+        double score = score();
+        return (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score)
+                + losses * score * score) / games;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,413 @@
+package chess.chess;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Timings and counts of the hot paths: board refresh, move validation, the
+// move journal, its replay into the database and connection setup, plus
+// every database error.
+//
+// Two independent layers, both cheap enough to leave on:
+//  - Histograms and counters, on with -Dchess.metrics=true. ENABLED is a
+//    constant, so when it is off the JIT drops the clock reads and the
+//    recording altogether. When on they are published over JMX as
+//    chess:type=Metrics and printed every chess.metrics.dump seconds
+//    (default 60, 0 for never).
+//  - JFR events under the "Chess" category, which cost nothing unless a
+//    flight recording enables them, e.g. -XX:StartFlightRecording.
+//
+// JFR sets itself up the first time any event class is used, some 600
+// classes and a few hundred milliseconds even with no recording, so events
+// are only created once the recorder is running; before that the begin
+// methods return null and the rest skips them. A timed call site takes the
+// event from its begin method and start(), and hands both to the matching
+// method here once done.
+public final class Metrics implements MetricsMXBean {
+    public static final boolean ENABLED = Boolean.getBoolean("chess.metrics");
+    static final long DUMP_INTERVAL_SECONDS = Long.getLong("chess.metrics.dump", 60);
+
+    static final LatencyHistogram REFRESH_NANOS = new LatencyHistogram();
+    static final LatencyHistogram REFRESH_NODES = new LatencyHistogram();
+    static final LatencyHistogram VALIDATION_NANOS = new LatencyHistogram();
+    static final LatencyHistogram JOURNAL_APPEND_NANOS = new LatencyHistogram();
+    static final LatencyHistogram REPLAY_ROWS = new LatencyHistogram();
+    static final LatencyHistogram REPLAY_INSERT_NANOS = new LatencyHistogram();
+    static final LatencyHistogram CONNECT_NANOS = new LatencyHistogram();
+    private static final Map<String, LongAdder> ERRORS = new ConcurrentHashMap<>();
+
+    static {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                FlightRecorder.addPeriodicEvent(JournalBacklogEvent.class, () -> {
+                    JournalBacklogEvent event = new JournalBacklogEvent();
+                    event.backlog = DatabaseManager.journalBacklog();
+                    event.commit();
+                });
+            }
+        });
+        if (ENABLED) {
+            register();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    // Start time for a timed section, 0 when the counters are off.
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    static RefreshEvent beginRefresh() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        RefreshEvent event = new RefreshEvent();
+        event.begin();
+        return event;
+    }
+
+    static MoveValidationEvent beginValidation() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        MoveValidationEvent event = new MoveValidationEvent();
+        event.begin();
+        return event;
+    }
+
+    static JournalAppendEvent beginJournalAppend() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        JournalAppendEvent event = new JournalAppendEvent();
+        event.begin();
+        return event;
+    }
+
+    static ReplayBatchEvent beginReplay() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        ReplayBatchEvent event = new ReplayBatchEvent();
+        event.begin();
+        return event;
+    }
+
+    static ConnectEvent beginConnect() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        ConnectEvent event = new ConnectEvent();
+        event.begin();
+        return event;
+    }
+
+    static void refreshed(RefreshEvent event, long start, int nodesTouched) {
+        if (ENABLED) {
+            REFRESH_NANOS.record(System.nanoTime() - start);
+            REFRESH_NODES.record(nodesTouched);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.nodesTouched = nodesTouched;
+            event.commit();
+        }
+    }
+
+    // to is NO_SQUARE for a destination off the board.
+    static void validated(MoveValidationEvent event, long start, int from, int to, boolean valid) {
+        if (ENABLED) {
+            VALIDATION_NANOS.record(System.nanoTime() - start);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.from = Position.squareName(from);
+            event.to = to == Position.NO_SQUARE ? "-" : Position.squareName(to);
+            event.valid = valid;
+            event.commit();
+        }
+    }
+
+    static void journalAppended(JournalAppendEvent event, long start, long gameId, int ply) {
+        if (ENABLED) {
+            JOURNAL_APPEND_NANOS.record(System.nanoTime() - start);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.gameId = gameId;
+            event.ply = ply;
+            event.commit();
+        }
+    }
+
+    static void replayed(ReplayBatchEvent event, long start, int rows) {
+        if (ENABLED) {
+            REPLAY_INSERT_NANOS.record(System.nanoTime() - start);
+            REPLAY_ROWS.record(rows);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.rows = rows;
+            event.commit();
+        }
+    }
+
+    static void connected(ConnectEvent event, long start) {
+        if (ENABLED) {
+            CONNECT_NANOS.record(System.nanoTime() - start);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    // Counts a failure of the named operation, e.g. "journal replay".
+    public static void error(String operation, Exception exception) {
+        if (ENABLED) {
+            ERRORS.computeIfAbsent(operation, name -> new LongAdder()).increment();
+        }
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        DatabaseErrorEvent event = new DatabaseErrorEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.exception = exception.getClass().getName();
+            event.message = exception.getMessage();
+            event.commit();
+        }
+    }
+
+    public static String summary() {
+        StringBuilder text = new StringBuilder();
+        text.append("board refresh    ").append(REFRESH_NANOS.summary()).append('\n');
+        text.append("nodes touched    ").append(REFRESH_NODES.valueSummary()).append('\n');
+        text.append("move validation  ").append(VALIDATION_NANOS.summary()).append('\n');
+        text.append("journal append   ").append(JOURNAL_APPEND_NANOS.summary()).append('\n');
+        text.append("journal backlog  ").append(DatabaseManager.journalBacklog()).append(" moves\n");
+        text.append("replay batch     ").append(REPLAY_ROWS.valueSummary()).append('\n');
+        text.append("replay insert    ").append(REPLAY_INSERT_NANOS.summary()).append('\n');
+        text.append("db connect       ").append(CONNECT_NANOS.summary()).append('\n');
+        text.append("errors           ");
+        Map<String, Long> errors = new TreeMap<>();
+        ERRORS.forEach((operation, count) -> errors.put(operation, count.sum()));
+        text.append(errors.isEmpty() ? "none" : errors.toString());
+        return text.toString();
+    }
+
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(), new ObjectName("chess:type=Metrics"));
+        } catch (JMException e) {
+            System.err.println("Cannot publish metrics over JMX: " + e.getMessage());
+        }
+        if (DUMP_INTERVAL_SECONDS > 0) {
+            ScheduledExecutorService dump = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dump.scheduleWithFixedDelay(() -> System.out.println("Metrics\n" + summary()),
+                    DUMP_INTERVAL_SECONDS, DUMP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public long getRefreshCount() {
+        return REFRESH_NANOS.count();
+    }
+
+    @Override
+    public double getRefreshP50Micros() {
+        return REFRESH_NANOS.percentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getRefreshP99Micros() {
+        return REFRESH_NANOS.percentile(99) / 1000.0;
+    }
+
+    @Override
+    public long getNodesTouchedP50() {
+        return REFRESH_NODES.percentile(50);
+    }
+
+    @Override
+    public long getNodesTouchedMax() {
+        return REFRESH_NODES.percentile(100);
+    }
+
+    @Override
+    public long getValidationCount() {
+        return VALIDATION_NANOS.count();
+    }
+
+    @Override
+    public double getValidationP50Micros() {
+        return VALIDATION_NANOS.percentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getValidationP99Micros() {
+        return VALIDATION_NANOS.percentile(99) / 1000.0;
+    }
+
+    @Override
+    public long getJournalAppendCount() {
+        return JOURNAL_APPEND_NANOS.count();
+    }
+
+    @Override
+    public double getJournalAppendP99Micros() {
+        return JOURNAL_APPEND_NANOS.percentile(99) / 1000.0;
+    }
+
+    @Override
+    public long getJournalBacklog() {
+        return DatabaseManager.journalBacklog();
+    }
+
+    @Override
+    public long getReplayBatchCount() {
+        return REPLAY_ROWS.count();
+    }
+
+    @Override
+    public long getReplayBatchRowsP50() {
+        return REPLAY_ROWS.percentile(50);
+    }
+
+    @Override
+    public double getReplayInsertP50Micros() {
+        return REPLAY_INSERT_NANOS.percentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getReplayInsertP99Micros() {
+        return REPLAY_INSERT_NANOS.percentile(99) / 1000.0;
+    }
+
+    @Override
+    public long getConnectCount() {
+        return CONNECT_NANOS.count();
+    }
+
+    @Override
+    public double getConnectP99Micros() {
+        return CONNECT_NANOS.percentile(99) / 1000.0;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long total = 0;
+        for (LongAdder count : ERRORS.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public String getSummary() {
+        return summary();
+    }
+
+    @Override
+    public void reset() {
+        REFRESH_NANOS.reset();
+        REFRESH_NODES.reset();
+        VALIDATION_NANOS.reset();
+        JOURNAL_APPEND_NANOS.reset();
+        REPLAY_ROWS.reset();
+        REPLAY_INSERT_NANOS.reset();
+        CONNECT_NANOS.reset();
+        ERRORS.clear();
+    }
+
+    @Name("chess.BoardRefresh")
+    @Label("Board Refresh")
+    @Category({"Chess", "UI"})
+    @StackTrace(false)
+    static final class RefreshEvent extends Event {
+        @Label("Nodes Touched")
+        int nodesTouched;
+    }
+
+    @Name("chess.MoveValidation")
+    @Label("Move Validation")
+    @Category({"Chess", "Rules"})
+    @StackTrace(false)
+    static final class MoveValidationEvent extends Event {
+        @Label("From")
+        String from;
+        @Label("To")
+        String to;
+        @Label("Valid")
+        boolean valid;
+    }
+
+    @Name("chess.JournalAppend")
+    @Label("Journal Append")
+    @Category({"Chess", "Persistence"})
+    @StackTrace(false)
+    static final class JournalAppendEvent extends Event {
+        @Label("Game Id")
+        long gameId;
+        @Label("Ply")
+        int ply;
+    }
+
+    @Name("chess.ReplayBatch")
+    @Label("Journal Replay Batch")
+    @Description("One transaction moving journaled moves into move_history")
+    @Category({"Chess", "Persistence"})
+    @StackTrace(false)
+    static final class ReplayBatchEvent extends Event {
+        @Label("Rows")
+        int rows;
+    }
+
+    @Name("chess.DatabaseConnect")
+    @Label("Database Connect")
+    @Category({"Chess", "Persistence"})
+    static final class ConnectEvent extends Event {
+    }
+
+    @Name("chess.DatabaseError")
+    @Label("Database Error")
+    @Category({"Chess", "Persistence"})
+    static final class DatabaseErrorEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Exception")
+        String exception;
+        @Label("Message")
+        String message;
+    }
+
+    @Name("chess.JournalBacklog")
+    @Label("Journal Backlog")
+    @Description("Moves journaled but not yet in the database")
+    @Category({"Chess", "Persistence"})
+    @Period("1 s")
+    @StackTrace(false)
+    static final class JournalBacklogEvent extends Event {
+        @Label("Backlog")
+        long backlog;
+    }
+}
\ No newline at end of file
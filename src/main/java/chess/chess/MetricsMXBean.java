@@ -0,0 +1,45 @@
+package chess.chess;
+
+// What Metrics exposes over JMX, as chess:type=Metrics. Times are in
+// microseconds; percentiles are bucket upper bounds, see LatencyHistogram.
+public interface MetricsMXBean {
+    long getRefreshCount();
+
+    double getRefreshP50Micros();
+
+    double getRefreshP99Micros();
+
+    long getNodesTouchedP50();
+
+    long getNodesTouchedMax();
+
+    long getValidationCount();
+
+    double getValidationP50Micros();
+
+    double getValidationP99Micros();
+
+    long getJournalAppendCount();
+
+    double getJournalAppendP99Micros();
+
+    long getJournalBacklog();
+
+    long getReplayBatchCount();
+
+    long getReplayBatchRowsP50();
+
+    double getReplayInsertP50Micros();
+
+    double getReplayInsertP99Micros();
+
+    long getConnectCount();
+
+    double getConnectP99Micros();
+
+    long getErrorCount();
+
+    String getSummary();
+
+    void reset();
+}
\ No newline at end of file
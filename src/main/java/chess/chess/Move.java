@@ -0,0 +1,83 @@
+package chess.chess;
+
+// Moves are packed into the low 16 bits of an int: from square (6 bits),
+// to square (6 bits) and a 4 bit flag.
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EP_CAPTURE = 5;
+    // promotion flags: 8 + (promoted type - KNIGHT), plus CAPTURE when taking a piece
+    public static final int PROMOTION = 8;
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 12);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flag(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (flag(move) & PROMOTION) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        int flag = flag(move);
+        return flag == KING_CASTLE || flag == QUEEN_CASTLE;
+    }
+
+    public static int promotionType(int move) {
+        return (flag(move) & 3) + Position.KNIGHT;
+    }
+
+    public static String toUci(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        String uci = Position.squareName(from(move)) + Position.squareName(to(move));
+        if (isPromotion(move)) {
+            uci += "nbrq".charAt(promotionType(move) - Position.KNIGHT);
+        }
+        return uci;
+    }
+
+    // The legal move written in UCI notation, or NONE if there is no such move
+    // here. Throws IllegalArgumentException for notation that names no move
+    // at all, such as "i1a3" or "0000".
+    public static int fromUci(Position position, String uci) {
+        if (uci.length() != 4 && uci.length() != 5) {
+            throw new IllegalArgumentException("Invalid UCI move: " + uci);
+        }
+        int from = Position.square(uci.substring(0, 2));
+        int to = Position.square(uci.substring(2, 4));
+        int promotion = Position.QUEEN;
+        if (uci.length() == 5) {
+            promotion = "nbrq".indexOf(uci.charAt(4));
+            if (promotion < 0) {
+                throw new IllegalArgumentException("Invalid promotion in UCI move: " + uci);
+            }
+            promotion += Position.KNIGHT;
+        }
+        return MoveGenerator.findMove(position, from, to, promotion);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,224 @@
+package chess.chess;
+
+// Fully legal move generation. Pins and checks are resolved up front with
+// bitboard masks, so every move written to the buffer is legal without having
+// to be played out first.
+public final class MoveGenerator {
+    public static final int MAX_MOVES = 256;
+
+    private MoveGenerator() {
+    }
+
+    public static int generate(Position position, int[] moves) {
+        return generate(position, moves, -1L);
+    }
+
+    public static int generate(Position position, int[] moves, long fromMask) {
+        int us = position.sideToMove();
+        int them = us ^ 1;
+        long ours = position.colorPieces(us);
+        long theirs = position.colorPieces(them);
+        long occupied = ours | theirs;
+        int kingSquare = position.kingSquare(us);
+        int count = 0;
+
+        long checkers = Attacks.attackersTo(position, kingSquare, occupied) & theirs;
+
+        if ((fromMask & Bitboards.bit(kingSquare)) != 0) {
+            long withoutKing = occupied ^ Bitboards.bit(kingSquare);
+            long targets = Attacks.king(kingSquare) & ~ours;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (!Attacks.isAttacked(position, to, them, withoutKing)) {
+                    moves[count++] = Move.encode(kingSquare, to, (theirs & Bitboards.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET);
+                }
+            }
+            if (checkers == 0) {
+                count = generateCastling(position, moves, count, us, occupied);
+            }
+        }
+
+        if (Long.bitCount(checkers) > 1) {
+            return count;
+        }
+
+        // squares that resolve a single check: capture the checker or block it
+        long checkMask = checkers == 0 ? -1L
+                : checkers | Bitboards.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+        long pinned = pinnedPieces(position, us, kingSquare, ours, theirs, occupied);
+        long targetMask = ~ours & checkMask;
+
+        long knights = position.pieces(us, Position.KNIGHT) & ~pinned & fromMask;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(moves, count, from, Attacks.knight(from) & targetMask, theirs);
+        }
+
+        long queens = position.pieces(us, Position.QUEEN);
+        long diagonal = (position.pieces(us, Position.BISHOP) | queens) & fromMask;
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            long attacks = Attacks.bishop(from, occupied) & targetMask;
+            if ((pinned & Bitboards.bit(from)) != 0) {
+                attacks &= Bitboards.line(kingSquare, from);
+            }
+            count = addMoves(moves, count, from, attacks, theirs);
+        }
+
+        long straight = (position.pieces(us, Position.ROOK) | queens) & fromMask;
+        while (straight != 0) {
+            int from = Long.numberOfTrailingZeros(straight);
+            straight &= straight - 1;
+            long attacks = Attacks.rook(from, occupied) & targetMask;
+            if ((pinned & Bitboards.bit(from)) != 0) {
+                attacks &= Bitboards.line(kingSquare, from);
+            }
+            count = addMoves(moves, count, from, attacks, theirs);
+        }
+
+        return generatePawnMoves(position, moves, count, us, kingSquare, theirs, occupied, checkMask, pinned, fromMask);
+    }
+
+    public static int countLegalMoves(Position position) {
+        return generate(position, new int[MAX_MOVES]);
+    }
+
+    public static boolean isInCheck(Position position) {
+        int us = position.sideToMove();
+        return Attacks.isAttacked(position, position.kingSquare(us), us ^ 1, position.occupied());
+    }
+
+    // Returns the legal move between the two squares, or Move.NONE. Promotions
+    // resolve to the requested piece type.
+    public static int findMove(Position position, int from, int to, int promotionType) {
+        int[] moves = new int[32];
+        int count = generate(position, moves, Bitboards.bit(from));
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Move.to(move) == to && (!Move.isPromotion(move) || Move.promotionType(move) == promotionType)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    private static int addMoves(int[] moves, int count, int from, long targets, long theirs) {
+        long captures = targets & theirs;
+        long quiets = targets & ~theirs;
+        while (captures != 0) {
+            int to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            moves[count++] = Move.encode(from, to, Move.CAPTURE);
+        }
+        while (quiets != 0) {
+            int to = Long.numberOfTrailingZeros(quiets);
+            quiets &= quiets - 1;
+            moves[count++] = Move.encode(from, to, Move.QUIET);
+        }
+        return count;
+    }
+
+    private static long pinnedPieces(Position position, int us, int kingSquare, long ours, long theirs, long occupied) {
+        int them = us ^ 1;
+        long queens = position.pieces(them, Position.QUEEN);
+        long snipers = (Attacks.rook(kingSquare, theirs) & (position.pieces(them, Position.ROOK) | queens))
+                | (Attacks.bishop(kingSquare, theirs) & (position.pieces(them, Position.BISHOP) | queens));
+        long pinned = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.between(kingSquare, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & ours;
+            }
+        }
+        return pinned;
+    }
+
+    private static int generateCastling(Position position, int[] moves, int count, int us, long occupied) {
+        int rights = position.castlingRights();
+        int them = us ^ 1;
+        if (us == Position.WHITE) {
+            if ((rights & Position.WHITE_KINGSIDE) != 0 && (occupied & 0x60L) == 0
+                    && !Attacks.isAttacked(position, 5, them, occupied) && !Attacks.isAttacked(position, 6, them, occupied)) {
+                moves[count++] = Move.encode(4, 6, Move.KING_CASTLE);
+            }
+            if ((rights & Position.WHITE_QUEENSIDE) != 0 && (occupied & 0x0EL) == 0
+                    && !Attacks.isAttacked(position, 3, them, occupied) && !Attacks.isAttacked(position, 2, them, occupied)) {
+                moves[count++] = Move.encode(4, 2, Move.QUEEN_CASTLE);
+            }
+        } else {
+            if ((rights & Position.BLACK_KINGSIDE) != 0 && (occupied & (0x60L << 56)) == 0
+                    && !Attacks.isAttacked(position, 61, them, occupied) && !Attacks.isAttacked(position, 62, them, occupied)) {
+                moves[count++] = Move.encode(60, 62, Move.KING_CASTLE);
+            }
+            if ((rights & Position.BLACK_QUEENSIDE) != 0 && (occupied & (0x0EL << 56)) == 0
+                    && !Attacks.isAttacked(position, 59, them, occupied) && !Attacks.isAttacked(position, 58, them, occupied)) {
+                moves[count++] = Move.encode(60, 58, Move.QUEEN_CASTLE);
+            }
+        }
+        return count;
+    }
+
+    private static int generatePawnMoves(Position position, int[] moves, int count, int us, int kingSquare,
+                                         long theirs, long occupied, long checkMask, long pinned, long fromMask) {
+        long pawns = position.pieces(us, Position.PAWN) & fromMask;
+        int forward = us == Position.WHITE ? 8 : -8;
+        long startRank = us == Position.WHITE ? Bitboards.RANK_2 : Bitboards.RANK_7;
+        long lastRank = us == Position.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long allowed = checkMask;
+            if ((pinned & Bitboards.bit(from)) != 0) {
+                allowed &= Bitboards.line(kingSquare, from);
+            }
+
+            int oneStep = from + forward;
+            if ((occupied & Bitboards.bit(oneStep)) == 0) {
+                if ((allowed & Bitboards.bit(oneStep)) != 0) {
+                    count = addPawnMove(moves, count, from, oneStep, Move.QUIET, lastRank);
+                }
+                int twoSteps = oneStep + forward;
+                if ((startRank & Bitboards.bit(from)) != 0 && (occupied & Bitboards.bit(twoSteps)) == 0
+                        && (allowed & Bitboards.bit(twoSteps)) != 0) {
+                    moves[count++] = Move.encode(from, twoSteps, Move.DOUBLE_PAWN_PUSH);
+                }
+            }
+
+            long captures = Attacks.pawn(us, from) & theirs & allowed;
+            while (captures != 0) {
+                int to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                count = addPawnMove(moves, count, from, to, Move.CAPTURE, lastRank);
+            }
+
+            int ep = position.epSquare();
+            if (ep != Position.NO_SQUARE && (Attacks.pawn(us, from) & Bitboards.bit(ep)) != 0) {
+                int capturedSquare = ep - forward;
+                // play the capture out on the occupancy: removing two pawns from one
+                // rank can expose the king to a slider that no pin mask catches
+                long after = (occupied ^ Bitboards.bit(from) ^ Bitboards.bit(capturedSquare)) | Bitboards.bit(ep);
+                if (!Attacks.isAttacked(position, kingSquare, us ^ 1, after)) {
+                    moves[count++] = Move.encode(from, ep, Move.EP_CAPTURE);
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int[] moves, int count, int from, int to, int flag, long lastRank) {
+        if ((lastRank & Bitboards.bit(to)) != 0) {
+            for (int type = Position.QUEEN; type >= Position.KNIGHT; type--) {
+                moves[count++] = Move.encode(from, to, flag | Move.PROMOTION | (type - Position.KNIGHT));
+            }
+            return count;
+        }
+        moves[count++] = Move.encode(from, to, flag);
+        return count;
+    }
+}
\ No newline at end of file
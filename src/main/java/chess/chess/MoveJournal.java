@@ -0,0 +1,431 @@
+package chess.chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+// Append-only write-ahead log for moves. Every move gets the next sequence
+// number and is written to the current segment file before append() returns,
+// so a move survives the process dying the moment the call comes back; a
+// background thread fsyncs whatever has been appended since its last fsync
+// (group commit), which also covers power loss for everything up to
+// durableSeq(). JournalReplayer drains the durable part of the journal into
+// PostgreSQL and checkpoints what it has stored, after which whole segments
+// are deleted; the database never gets a move that power loss could still
+// take out of the journal.
+//
+// Records are fixed-size, so a sequence number maps straight to a file offset:
+//   seq (8), game id (8), position hash (8), ply (4), move (2), piece (1),
+//   unused (1), CRC32C of the preceding 32 bytes (4)
+// A torn record at the end of the last segment is cut off on open.
+//
+// One journal owns its directory: it holds an exclusive lock on the lock file
+// until close(), and a second opener, in this process or another, fails
+// instead of appending over the first one's sequence numbers.
+public class MoveJournal implements AutoCloseable {
+    static final int RECORD_SIZE = 36;
+    public static final long SEGMENT_BYTES = 64L << 20;
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String LOCK_FILE = "lock";
+
+    public record Entry(long seq, MoveRecord move) {
+    }
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final Object lock = new Object();
+    // first sequence number of every segment on disk -> its file
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+    private final Thread syncThread;
+
+    private FileChannel segment;
+    private long segmentFirstSeq;
+    private long nextSeq;
+    private long writtenSeq;
+    private long durableSeq;
+    private long checkpointSeq;
+    private boolean closed;
+    private IOException syncFailure;
+
+    // reader side, only used by the replayer thread
+    private FileChannel readChannel;
+    private long readSegmentFirstSeq = -1;
+
+    public MoveJournal(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        lockChannel = lockDirectory(directory);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+        syncThread = new Thread(this::syncLoop, "journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    // Writes the move to the journal and returns its sequence number. Costs
+    // one local write; it never waits for an fsync or the database.
+    public long append(MoveRecord move) throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("Move journal is closed");
+            }
+            long seq = nextSeq;
+            record.clear();
+            record.putLong(seq);
+            record.putLong(move.gameId());
+            record.putLong(move.positionHash());
+            record.putInt(move.ply());
+            record.putShort((short) move.move());
+            record.put((byte) move.piece().charAt(0));
+            record.put((byte) 0);
+            crc.reset();
+            crc.update(record.array(), 0, RECORD_SIZE - 4);
+            record.putInt((int) crc.getValue());
+            record.flip();
+            while (record.hasRemaining()) {
+                segment.write(record);
+            }
+            nextSeq = seq + 1;
+            writtenSeq = seq;
+            if ((nextSeq - segmentFirstSeq) * RECORD_SIZE >= SEGMENT_BYTES) {
+                rotate();
+            }
+            lock.notifyAll();
+            return seq;
+        }
+    }
+
+    // Blocks until the move with this sequence number is on stable storage.
+    public boolean awaitDurable(long seq, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (durableSeq < seq) {
+                if (syncFailure != null) {
+                    throw syncFailure;
+                }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                lock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    // Waits until a move after afterSeq is durable, or the timeout passes.
+    public void awaitDurableAppend(long afterSeq, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            long remaining;
+            while (durableSeq <= afterSeq && !closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                lock.wait(remaining);
+            }
+        }
+    }
+
+    // Highest sequence number appended so far.
+    public long lastSeq() {
+        synchronized (lock) {
+            return writtenSeq;
+        }
+    }
+
+    public long durableSeq() {
+        synchronized (lock) {
+            return durableSeq;
+        }
+    }
+
+    // Oldest sequence number still on disk.
+    public long firstSeq() {
+        synchronized (lock) {
+            return segments.firstKey();
+        }
+    }
+
+    // Highest sequence number the replayer has stored in the database.
+    public long checkpointSeq() {
+        synchronized (lock) {
+            return checkpointSeq;
+        }
+    }
+
+    // Reads up to max durable entries starting at fromSeq, never past the end
+    // of the segment that holds fromSeq. Only called by the replayer.
+    public List<Entry> read(long fromSeq, int max) throws IOException {
+        Path file;
+        long firstSeq;
+        long lastSeq;
+        synchronized (lock) {
+            if (fromSeq > durableSeq) {
+                return List.of();
+            }
+            Map.Entry<Long, Path> holder = segments.floorEntry(fromSeq);
+            if (holder == null) {
+                throw new IOException("Journal entry " + fromSeq + " is no longer on disk");
+            }
+            firstSeq = holder.getKey();
+            file = holder.getValue();
+            Long nextFirst = segments.higherKey(firstSeq);
+            lastSeq = Math.min(durableSeq, nextFirst == null ? Long.MAX_VALUE : nextFirst - 1);
+        }
+
+        if (readSegmentFirstSeq != firstSeq) {
+            if (readChannel != null) {
+                readChannel.close();
+            }
+            readChannel = FileChannel.open(file, StandardOpenOption.READ);
+            readSegmentFirstSeq = firstSeq;
+        }
+        int count = (int) Math.min(max, lastSeq - fromSeq + 1);
+        ByteBuffer buffer = ByteBuffer.allocate(count * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long position = (fromSeq - firstSeq) * RECORD_SIZE;
+        while (buffer.hasRemaining()) {
+            if (readChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Journal segment " + file + " ends before entry " + lastSeq);
+            }
+        }
+
+        CRC32C check = new CRC32C();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int offset = i * RECORD_SIZE;
+            check.reset();
+            check.update(buffer.array(), offset, RECORD_SIZE - 4);
+            if ((int) check.getValue() != buffer.getInt(offset + RECORD_SIZE - 4)
+                    || buffer.getLong(offset) != fromSeq + i) {
+                throw new IOException("Corrupt journal entry " + (fromSeq + i) + " in " + file);
+            }
+            entries.add(new Entry(fromSeq + i, decode(buffer, offset)));
+        }
+        return entries;
+    }
+
+    // Records that everything up to seq is in the database and deletes the
+    // segments that are no longer needed. Entries at or below the checkpoint
+    // are not replayed again after a restart.
+    public void checkpoint(long seq) throws IOException {
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.write(temporary, Long.toString(seq).getBytes());
+        Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> obsolete = new ArrayList<>();
+        synchronized (lock) {
+            checkpointSeq = Math.max(checkpointSeq, seq);
+            while (segments.size() > 1) {
+                Map.Entry<Long, Path> oldest = segments.firstEntry();
+                long nextFirst = segments.higherKey(oldest.getKey());
+                if (nextFirst - 1 > checkpointSeq) {
+                    break;
+                }
+                segments.pollFirstEntry();
+                obsolete.add(oldest.getValue());
+            }
+        }
+        for (Path file : obsolete) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            syncThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            synchronized (lock) {
+                segment.force(false);
+                segment.close();
+                durableSeq = writtenSeq;
+            }
+            if (readChannel != null) {
+                readChannel.close();
+            }
+        } finally {
+            // releases the directory lock
+            lockChannel.close();
+        }
+    }
+
+    private static FileChannel lockDirectory(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.tryLock() != null) {
+                return channel;
+            }
+        } catch (OverlappingFileLockException e) {
+            // held by another journal in this process
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+        throw new IOException("Move journal " + directory + " is in use by another instance");
+    }
+
+    private void syncLoop() {
+        while (true) {
+            FileChannel channel;
+            long target;
+            synchronized (lock) {
+                while (durableSeq >= writtenSeq && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (durableSeq >= writtenSeq) {
+                    return;
+                }
+                channel = segment;
+                target = writtenSeq;
+            }
+            // outside the lock, so appends continue while the disk syncs and
+            // all of them are covered by the next fsync
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // rotated away; rotate() forced the segment before closing it
+            } catch (IOException e) {
+                synchronized (lock) {
+                    syncFailure = e;
+                    lock.notifyAll();
+                }
+                System.err.println("Move journal fsync failed: " + e.getMessage());
+                return;
+            }
+            synchronized (lock) {
+                durableSeq = Math.max(durableSeq, target);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Called with the lock held once the current segment is full.
+    private void rotate() throws IOException {
+        segment.force(false);
+        segment.close();
+        durableSeq = writtenSeq;
+        openSegment(nextSeq);
+    }
+
+    private void openSegment(long firstSeq) throws IOException {
+        Path file = directory.resolve(String.format("journal-%020d.log", firstSeq));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segment.position(segment.size());
+        segmentFirstSeq = firstSeq;
+        segments.put(firstSeq, file);
+    }
+
+    private void recover() throws IOException {
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        checkpointSeq = Files.exists(checkpointFile)
+                ? Long.parseLong(new String(Files.readAllBytes(checkpointFile)).trim()) : -1;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(8, name.length() - 4)), file);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            // sequence numbers are the dedupe key in move_history, so a fresh
+            // journal starts from the clock like game ids do instead of from 0
+            long first = checkpointSeq >= 0 ? checkpointSeq + 1 : System.currentTimeMillis() << 20;
+            openSegment(first);
+            nextSeq = first;
+        } else {
+            Map.Entry<Long, Path> last = segments.lastEntry();
+            long valid = validRecords(last.getValue(), last.getKey());
+            if (last.getKey() + valid > checkpointSeq) {
+                try (FileChannel channel = FileChannel.open(last.getValue(), StandardOpenOption.WRITE)) {
+                    channel.truncate(valid * RECORD_SIZE);
+                }
+                segments.remove(last.getKey());
+                openSegment(last.getKey());
+                nextSeq = last.getKey() + valid;
+            } else {
+                // the disk lost entries the database already has; numbering
+                // resumes after the checkpoint, since the database ignores
+                // sequence numbers it has seen and the replayer skips them
+                for (Path file : segments.values()) {
+                    Files.deleteIfExists(file);
+                }
+                segments.clear();
+                openSegment(checkpointSeq + 1);
+                nextSeq = checkpointSeq + 1;
+            }
+        }
+        writtenSeq = nextSeq - 1;
+        durableSeq = writtenSeq;
+    }
+
+    // Number of intact records at the start of the segment; a crash can only
+    // leave a partial or garbled record at the very end.
+    private static long validRecords(Path file, long firstSeq) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long count = channel.size() / RECORD_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32C check = new CRC32C();
+            while (count > 0) {
+                buffer.clear();
+                channel.read(buffer, (count - 1) * RECORD_SIZE);
+                check.reset();
+                check.update(buffer.array(), 0, RECORD_SIZE - 4);
+                if ((int) check.getValue() == buffer.getInt(RECORD_SIZE - 4)
+                        && buffer.getLong(0) == firstSeq + count - 1) {
+                    break;
+                }
+                count--;
+            }
+            return count;
+        }
+    }
+
+    private static MoveRecord decode(ByteBuffer buffer, int offset) {
+        long gameId = buffer.getLong(offset + 8);
+        long hash = buffer.getLong(offset + 16);
+        int ply = buffer.getInt(offset + 24);
+        int move = buffer.getShort(offset + 28) & 0xFFFF;
+        char piece = (char) buffer.get(offset + 30);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        return new MoveRecord(gameId, ply, hash, move, String.valueOf(piece),
+                Position.rowOf(from), Position.colOf(from), Position.rowOf(to), Position.colOf(to));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package chess.chess;
+
+// One move as it is stored in move_history: the game and ply it belongs to,
+// the Zobrist hash of the position it was played from, the encoded move, and
+// the piece/square columns of the original schema.
+public record MoveRecord(long gameId, int ply, long positionHash, int move,
+                         String piece, int fromRow, int fromCol, int toRow, int toCol) {
+    // Builds the record from the position before the move is made.
+    public static MoveRecord of(long gameId, Position position, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        return new MoveRecord(gameId, position.ply(), position.hash(), move,
+                String.valueOf(Position.pieceSymbol(position.pieceAt(from))),
+                Position.rowOf(from), Position.colOf(from), Position.rowOf(to), Position.colOf(to));
+    }
+}
\ No newline at end of file
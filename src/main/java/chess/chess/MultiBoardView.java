@@ -0,0 +1,202 @@
+package chess.chess;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.scene.Scene;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.TilePane;
+import javafx.stage.Stage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Spectator view of many engine games at once, one BoardCanvas per game.
+// Worker threads, one per core but the one left to the UI, each play their
+// share of the games with a small node budget per move and publish every
+// position as a Position snapshot. Once a frame the FX thread takes the
+// newest snapshot of each game, so a game that moved twice in one frame is
+// drawn once, and the boards repaint only the squares that changed. A
+// finished game stays on screen for a moment and then starts over from
+// another opening. The window title shows frames and moves per second.
+//
+// Usage: MultiBoardView [--boards=N] [--size=PX] [--nodes=N] [--delay=MS] [--seed=N]
+public class MultiBoardView extends Application {
+    public static final int DEFAULT_BOARDS = 50;
+    public static final int DEFAULT_BOARD_SIZE = 160;
+    public static final int DEFAULT_NODES = 2_000;
+    // pause between two moves of the same game
+    public static final long DEFAULT_DELAY_MS = 250;
+    private static final long RESTART_DELAY_MS = 2_000;
+    private static final int MAX_PLIES = 300;
+    private static final int OPENINGS = 256;
+    private static final int HASH_MB = 1;
+    private static final int GAP = 4;
+    private static final long SECOND_NANOS = 1_000_000_000L;
+
+    // a game's position after the move, NONE for a fresh start
+    private record Update(byte[] snapshot, int move) {
+    }
+
+    // one game, owned by the worker that plays it
+    private static final class SpectatedGame {
+        final int index;
+        Position position;
+        int plies;
+        boolean over;
+        long nextMoveNanos;
+
+        SpectatedGame(int index) {
+            this.index = index;
+        }
+    }
+
+    private final LongAdder moves = new LongAdder();
+    private final List<Thread> workers = new ArrayList<>();
+    private AtomicReferenceArray<Update> updates;
+    private BoardCanvas[] boards;
+    private Position[] shown;
+    private volatile boolean running = true;
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+
+    @Override
+    public void start(Stage stage) {
+        Map<String, String> named = getParameters().getNamed();
+        int count = Integer.parseInt(named.getOrDefault("boards", String.valueOf(DEFAULT_BOARDS)));
+        int size = Integer.parseInt(named.getOrDefault("size", String.valueOf(DEFAULT_BOARD_SIZE)));
+        long nodes = Long.parseLong(named.getOrDefault("nodes", String.valueOf(DEFAULT_NODES)));
+        long delayNanos = Long.parseLong(named.getOrDefault("delay", String.valueOf(DEFAULT_DELAY_MS))) * 1_000_000;
+        long seed = Long.parseLong(named.getOrDefault("seed", String.valueOf(System.nanoTime())));
+
+        updates = new AtomicReferenceArray<>(count);
+        boards = new BoardCanvas[count];
+        shown = new Position[count];
+        TilePane tiles = new TilePane(GAP, GAP);
+        // about 16:9 worth of boards
+        int columns = (int) Math.ceil(Math.sqrt(count * 16 / 9.0));
+        tiles.setPrefColumns(columns);
+        for (int i = 0; i < count; i++) {
+            boards[i] = new BoardCanvas(size);
+            shown[i] = new Position();
+            tiles.getChildren().add(boards[i]);
+        }
+
+        List<Tournament.Opening> openings = Tournament.randomOpenings(OPENINGS, seed);
+        int workerCount = Math.max(1, Math.min(count, Runtime.getRuntime().availableProcessors() - 1));
+        List<List<SpectatedGame>> shares = new ArrayList<>();
+        for (int w = 0; w < workerCount; w++) {
+            shares.add(new ArrayList<>());
+        }
+        for (int i = 0; i < count; i++) {
+            shares.get(i % workerCount).add(new SpectatedGame(i));
+        }
+        for (int w = 0; w < workerCount; w++) {
+            List<SpectatedGame> share = shares.get(w);
+            Random random = new Random(seed + w);
+            Thread worker = new Thread(() -> play(share, openings, random, nodes, delayNanos), "spectator-" + w);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+
+        new AnimationTimer() {
+            private long secondStart;
+            private int frames;
+
+            @Override
+            public void handle(long now) {
+                for (int i = 0; i < boards.length; i++) {
+                    Update update = updates.getAndSet(i, null);
+                    if (update != null) {
+                        shown[i].readSnapshot(update.snapshot(), 0);
+                        boards[i].show(shown[i], update.move());
+                    }
+                }
+                frames++;
+                if (secondStart == 0) {
+                    secondStart = now;
+                } else if (now - secondStart >= SECOND_NANOS) {
+                    double seconds = (now - secondStart) / (double) SECOND_NANOS;
+                    stage.setTitle(String.format("Chess - %d boards, %.0f fps, %.0f moves/s", boards.length,
+                            frames / seconds, moves.sumThenReset() / seconds));
+                    secondStart = now;
+                    frames = 0;
+                }
+            }
+        }.start();
+
+        ScrollPane scroll = new ScrollPane(tiles);
+        int width = columns * (size + GAP) + GAP;
+        int rows = (count + columns - 1) / columns;
+        stage.setScene(new Scene(scroll, width, Math.min(rows * (size + GAP) + GAP, 1000)));
+        stage.setTitle("Chess - " + count + " boards");
+        stage.show();
+        workers.forEach(Thread::start);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        workers.forEach(LockSupport::unpark);
+    }
+
+    private void play(List<SpectatedGame> games, List<Tournament.Opening> openings, Random random, long nodes,
+                      long delayNanos) {
+        SearchLimits limits = new SearchLimits().nodes(nodes);
+        try (Engine engine = new Engine(1, HASH_MB)) {
+            for (SpectatedGame game : games) {
+                restart(game, openings, random);
+            }
+            while (running) {
+                long now = System.nanoTime();
+                long next = Long.MAX_VALUE;
+                for (SpectatedGame game : games) {
+                    if (game.nextMoveNanos > now) {
+                        next = Math.min(next, game.nextMoveNanos);
+                        continue;
+                    }
+                    if (game.over) {
+                        engine.newGame();
+                        restart(game, openings, random);
+                    } else {
+                        int move = engine.search(game.position, limits).bestMove();
+                        game.position.makeMove(move);
+                        game.plies++;
+                        game.over = Game.status(game.position).isOver() || game.plies >= MAX_PLIES;
+                        publish(game, move);
+                        moves.increment();
+                    }
+                    now = System.nanoTime();
+                    game.nextMoveNanos = now + (game.over ? RESTART_DELAY_MS * 1_000_000 : delayNanos);
+                    next = Math.min(next, game.nextMoveNanos);
+                }
+                if (next > now) {
+                    LockSupport.parkNanos(next - now);
+                }
+            }
+        }
+    }
+
+    private void restart(SpectatedGame game, List<Tournament.Opening> openings, Random random) {
+        Position position = Position.startPosition();
+        for (String uci : openings.get(random.nextInt(openings.size())).moves()) {
+            position.makeMove(Move.fromUci(position, uci));
+        }
+        game.position = position;
+        game.plies = 0;
+        game.over = false;
+        publish(game, Move.NONE);
+    }
+
+    private void publish(SpectatedGame game, int move) {
+        byte[] snapshot = new byte[Position.SNAPSHOT_SIZE];
+        game.position.writeSnapshot(snapshot, 0);
+        updates.set(game.index, new Update(snapshot, move));
+    }
+}
\ No newline at end of file
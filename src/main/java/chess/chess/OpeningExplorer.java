@@ -0,0 +1,190 @@
+package chess.chess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Read side of the position-indexed tables. Every lookup is an index probe by
+// Zobrist hash, so the cost does not grow with the number of stored games:
+// continuations come pre-aggregated from position_stats for the opening and
+// are added up from move_history's (position_hash, ply) index past it, the
+// games themselves are found through the same index, and a game's moves
+// through its (game_id, ply) index.
+public class OpeningExplorer {
+    private static final String CONTINUATIONS =
+            "SELECT move, games, white_wins, draws, black_wins FROM position_stats "
+                    + "WHERE position_hash = ? ORDER BY games DESC";
+    // Occurrences from PositionStats.MAX_PLY on are rare enough to aggregate on
+    // the fly. Like position_stats, a game counts once per move, and not at all
+    // if position_stats already counted it for that move.
+    private static final String LATE_CONTINUATIONS =
+            "SELECT move, COUNT(*), "
+                    + "SUM(CASE WHEN result = '1-0' THEN 1 ELSE 0 END), "
+                    + "SUM(CASE WHEN result = '1/2-1/2' THEN 1 ELSE 0 END), "
+                    + "SUM(CASE WHEN result = '0-1' THEN 1 ELSE 0 END) "
+                    + "FROM (SELECT DISTINCT m.game_id, m.move, g.result "
+                    + "FROM move_history m JOIN games g ON g.id = m.game_id "
+                    + "WHERE m.position_hash = ? AND m.ply >= " + PositionStats.MAX_PLY + " "
+                    + "AND NOT EXISTS (SELECT 1 FROM move_history e WHERE e.position_hash = m.position_hash "
+                    + "AND e.ply < " + PositionStats.MAX_PLY + " AND e.game_id = m.game_id AND e.move = m.move)) late "
+                    + "GROUP BY move";
+    private static final String GAMES_REACHING =
+            "SELECT game_id FROM move_history WHERE position_hash = ? AND game_id IS NOT NULL LIMIT ?";
+    private static final String GAME = "SELECT white, black, result, start_fen FROM games WHERE id = ?";
+    private static final String GAME_MOVES = "SELECT move FROM move_history WHERE game_id = ? ORDER BY ply";
+
+    private final ConnectionPool pool;
+
+    public OpeningExplorer(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        Position position = Position.startPosition();
+        for (String token : args) {
+            int move = San.parse(position, token);
+            if (move == Move.NONE) {
+                try {
+                    move = Move.fromUci(position, token);
+                } catch (IllegalArgumentException e) {
+                    // neither SAN nor UCI, reported below
+                }
+            }
+            if (move == Move.NONE) {
+                System.err.println("Illegal move " + token);
+                return;
+            }
+            position.makeMove(move);
+        }
+
+        // also opens the first pooled connection, so the timing below is the query alone
+        DatabaseManager.initializeDatabase();
+        OpeningExplorer explorer = new OpeningExplorer(DatabaseManager.getPool());
+        try {
+            long start = System.nanoTime();
+            List<Continuation> continuations = explorer.continuations(position);
+            long micros = (System.nanoTime() - start) / 1000;
+            System.out.println(position.toFen());
+            for (Continuation continuation : continuations) {
+                System.out.printf("%-8s %,10d games  %5.1f%%  (+%d =%d -%d)%n",
+                        San.toSan(position, continuation.move()), continuation.games(), continuation.whiteScore(),
+                        continuation.whiteWins(), continuation.draws(), continuation.blackWins());
+            }
+            System.out.println(continuations.size() + " continuations in " + micros / 1000.0 + " ms");
+        } finally {
+            DatabaseManager.shutdown();
+        }
+    }
+
+    // Known moves from this position, most played first, counting the games
+    // that reached it at any ply. Moves that are not legal here can only come
+    // from a hash collision and are left out.
+    public List<Continuation> continuations(Position position) throws SQLException {
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int legalCount = MoveGenerator.generate(position, legal);
+        Map<Integer, Continuation> byMove = new HashMap<>();
+        Connection connection = pool.borrow();
+        try {
+            readContinuations(connection, CONTINUATIONS, position.hash(), legal, legalCount, byMove);
+            readContinuations(connection, LATE_CONTINUATIONS, position.hash(), legal, legalCount, byMove);
+        } finally {
+            pool.release(connection);
+        }
+        List<Continuation> continuations = new ArrayList<>(byMove.values());
+        continuations.sort(Comparator.comparingLong(Continuation::games).reversed());
+        return continuations;
+    }
+
+    // Ids of up to limit games that passed through this position with a move
+    // still to play.
+    public List<Long> gamesReaching(Position position, int limit) throws SQLException {
+        Set<Long> ids = new LinkedHashSet<>();
+        Connection connection = pool.borrow();
+        try (PreparedStatement statement = connection.prepareStatement(GAMES_REACHING)) {
+            statement.setLong(1, position.hash());
+            statement.setInt(2, limit);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    ids.add(rows.getLong(1));
+                }
+            }
+        } finally {
+            pool.release(connection);
+        }
+        return new ArrayList<>(ids);
+    }
+
+    // Returns null when nothing is stored under the id. Games that were never
+    // finished have moves but no games row and come back with result "*".
+    public StoredGame loadGame(long gameId) throws SQLException {
+        GameRecord game = null;
+        List<Integer> moves = new ArrayList<>();
+        Connection connection = pool.borrow();
+        try {
+            try (PreparedStatement statement = connection.prepareStatement(GAME)) {
+                statement.setLong(1, gameId);
+                try (ResultSet rows = statement.executeQuery()) {
+                    if (rows.next()) {
+                        game = new GameRecord(gameId, rows.getString(1), rows.getString(2), rows.getString(3),
+                                rows.getString(4));
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(GAME_MOVES)) {
+                statement.setLong(1, gameId);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        moves.add(rows.getInt(1));
+                    }
+                }
+            }
+        } finally {
+            pool.release(connection);
+        }
+        if (game == null && moves.isEmpty()) {
+            return null;
+        }
+        if (game == null) {
+            game = new GameRecord(gameId, null, null, "*", null);
+        }
+        return new StoredGame(game, moves.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static void readContinuations(Connection connection, String sql, long hash, int[] legal, int legalCount,
+                                          Map<Integer, Continuation> byMove) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, hash);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    int move = rows.getInt(1);
+                    if (contains(legal, legalCount, move)) {
+                        byMove.merge(move, new Continuation(move, rows.getLong(2), rows.getLong(3),
+                                rows.getLong(4), rows.getLong(5)), OpeningExplorer::add);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Continuation add(Continuation a, Continuation b) {
+        return new Continuation(a.move(), a.games() + b.games(), a.whiteWins() + b.whiteWins(),
+                a.draws() + b.draws(), a.blackWins() + b.blackWins());
+    }
+
+    private static boolean contains(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
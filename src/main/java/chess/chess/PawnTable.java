@@ -0,0 +1,61 @@
+package chess.chess;
+
+import java.util.Arrays;
+
+// Cache of pawn-structure scores keyed by Position.pawnHash(). Pawn moves are
+// a small share of all moves, so nearly every evaluation finds its entry here.
+// Not thread-safe: every search thread owns one through its Evaluation.
+public class PawnTable {
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+
+    private final long[] keys;
+    // packed middlegame and endgame scores, see Evaluation.packed
+    private final int[] scores;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    public PawnTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        keys = new long[size];
+        scores = new int[size];
+        mask = size - 1;
+    }
+
+    // Empty slots hold key 0, which is the key of a board without pawns, and
+    // score 0, which is that board's correct pawn-structure score.
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(scores, 0);
+    }
+
+    // Slot holding this key, or -1.
+    public int probe(long key) {
+        int index = (int) key & mask;
+        if (keys[index] == key) {
+            hits++;
+            return index;
+        }
+        misses++;
+        return -1;
+    }
+
+    // Packed middlegame and endgame score stored in the slot.
+    public int score(int index) {
+        return scores[index];
+    }
+
+    public void store(long key, int score) {
+        int index = (int) key & mask;
+        keys[index] = key;
+        scores[index] = score;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+}
\ No newline at end of file
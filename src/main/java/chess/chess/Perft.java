@@ -0,0 +1,43 @@
+package chess.chess;
+
+import java.util.Arrays;
+
+// Counts leaf nodes of the legal move tree. Known totals for standard test
+// positions make this the correctness check for move generation and make-move.
+public class Perft {
+    private static final int MAX_DEPTH = 64;
+
+    private final int[][] moves = new int[MAX_DEPTH][MoveGenerator.MAX_MOVES];
+
+    public long perft(Position position, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        return perft(position, 0, depth);
+    }
+
+    private long perft(Position position, int ply, int depth) {
+        int[] buffer = moves[ply];
+        int count = MoveGenerator.generate(position, buffer);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(buffer[i]);
+            nodes += perft(position, ply + 1, depth - 1);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        String fen = args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length)) : Position.START_FEN;
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        long start = System.nanoTime();
+        long nodes = new Perft().perft(Position.fromFen(fen), depth);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        System.out.println("perft(" + depth + ") = " + nodes + " in " + elapsed / 1_000_000 + " ms, "
+                + nodes * 1_000_000_000L / elapsed + " nodes/s");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,314 @@
+package chess.chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Bulk loader for PGN archives. The file is streamed line by line and cut at
+// game boundaries on the calling thread; chunks of games are replayed against
+// the move generator on a fork-join pool, and every legal game is written in
+// file order as a games row, its move_history rows and its share of
+// position_stats, as one GameBatch per chunk. A game with an illegal or unreadable
+// move is rejected as a whole and reported with the line it failed on.
+public class PgnImporter implements AutoCloseable {
+    public static final int CHUNK_GAMES = 256;
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+
+    private final ConnectionPool pool;
+    private final ForkJoinPool workers;
+    private final int maxInFlight;
+    private final PrintStream log;
+    private final GameBatch batch = new GameBatch();
+
+    private long games;
+    private long moves;
+    private long rejected;
+    private long startNanos;
+    private long lastProgressNanos;
+
+    // A null pool only parses and validates, which is handy to check a file
+    // before loading it.
+    public PgnImporter(ConnectionPool pool, int threads, PrintStream log) {
+        this.pool = pool;
+        this.workers = new ForkJoinPool(Math.max(1, threads));
+        // bounds the memory held by parsed but unwritten chunks
+        this.maxInFlight = Math.max(1, threads) * 4;
+        this.log = log;
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length == 0) {
+            System.err.println("usage: PgnImporter <file.pgn> [--threads=N] [--dry-run]");
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean dryRun = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(args[i].substring("--threads=".length()));
+            } else if (args[i].equals("--dry-run")) {
+                dryRun = true;
+            }
+        }
+
+        if (!dryRun) {
+            DatabaseManager.initializeDatabase();
+        }
+        try (PgnImporter importer = new PgnImporter(dryRun ? null : DatabaseManager.getPool(), threads, System.out)) {
+            ImportSummary summary = importer.importFile(Paths.get(args[0]));
+            System.out.println("Imported " + summary);
+        } finally {
+            if (!dryRun) {
+                DatabaseManager.shutdown();
+            }
+        }
+    }
+
+    public ImportSummary importFile(Path file) throws IOException, SQLException {
+        games = 0;
+        moves = 0;
+        rejected = 0;
+        startNanos = System.nanoTime();
+        lastProgressNanos = startNanos;
+
+        ArrayDeque<ForkJoinTask<List<ReplayedGame>>> inFlight = new ArrayDeque<>();
+        // ISO-8859-1 maps every byte to a char, so odd encodings in tag values
+        // cannot abort the import; movetext itself is plain ASCII
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            List<RawGame> chunk = new ArrayList<>(CHUNK_GAMES);
+            List<String> lines = new ArrayList<>();
+            long gameNumber = 0;
+            int lineNumber = 0;
+            int firstLine = 0;
+            boolean inMovetext = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                // a tag pair after movetext starts the next game
+                if (inMovetext && line.startsWith("[")) {
+                    chunk.add(new RawGame(++gameNumber, firstLine, lines.toArray(new String[0])));
+                    lines.clear();
+                    inMovetext = false;
+                    if (chunk.size() == CHUNK_GAMES) {
+                        submit(chunk, inFlight);
+                        chunk = new ArrayList<>(CHUNK_GAMES);
+                    }
+                }
+                if (lines.isEmpty()) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    firstLine = lineNumber;
+                }
+                lines.add(line);
+                inMovetext |= !line.startsWith("[");
+            }
+            if (!lines.isEmpty()) {
+                chunk.add(new RawGame(++gameNumber, firstLine, lines.toArray(new String[0])));
+            }
+            if (!chunk.isEmpty()) {
+                submit(chunk, inFlight);
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll().join());
+            }
+        } finally {
+            for (ForkJoinTask<?> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+        return summary();
+    }
+
+    public ImportSummary summary() {
+        return new ImportSummary(games, moves, rejected, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private void submit(List<RawGame> chunk, ArrayDeque<ForkJoinTask<List<ReplayedGame>>> inFlight)
+            throws SQLException {
+        inFlight.add(workers.submit(() -> replayChunk(chunk)));
+        // write the oldest chunk while the workers keep parsing newer ones
+        while (inFlight.size() > maxInFlight) {
+            write(inFlight.poll().join());
+        }
+    }
+
+    private static List<ReplayedGame> replayChunk(List<RawGame> chunk) {
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        List<ReplayedGame> replayed = new ArrayList<>(chunk.size());
+        for (RawGame game : chunk) {
+            replayed.add(replay(game, buffer));
+        }
+        return replayed;
+    }
+
+    // Replays the main line of one game. Comments, variations, NAGs and move
+    // numbers are skipped; a FEN tag sets the starting position.
+    static ReplayedGame replay(RawGame game, int[] buffer) {
+        long gameId = DatabaseManager.newGameId();
+        Position position = Position.startPosition();
+        String startFen = null;
+        String white = null;
+        String black = null;
+        String result = null;
+        List<MoveRecord> records = new ArrayList<>(96);
+        boolean inComment = false;
+        int variationDepth = 0;
+        for (int index = 0; index < game.lines().length; index++) {
+            String line = game.lines()[index];
+            int lineNumber = game.firstLine() + index;
+            if (!inComment && line.startsWith("[")) {
+                String value = tagValue(line);
+                if (line.startsWith("[FEN ")) {
+                    try {
+                        position = Position.fromFen(value);
+                        startFen = value;
+                    } catch (RuntimeException e) {
+                        return game.rejected("invalid FEN tag at line " + lineNumber);
+                    }
+                } else if (line.startsWith("[White ")) {
+                    white = value;
+                } else if (line.startsWith("[Black ")) {
+                    black = value;
+                } else if (line.startsWith("[Result ")) {
+                    result = value;
+                }
+                continue;
+            }
+            if (line.startsWith("%")) {
+                continue;
+            }
+
+            int length = line.length();
+            int i = 0;
+            while (i < length) {
+                char c = line.charAt(i);
+                if (inComment) {
+                    inComment = c != '}';
+                    i++;
+                    continue;
+                }
+                if (c == ';') {
+                    break;
+                }
+                if (c == '{' || c == '(' || c == ')' || Character.isWhitespace(c)) {
+                    inComment = c == '{';
+                    variationDepth += c == '(' ? 1 : c == ')' ? -1 : 0;
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < length && !isDelimiter(line.charAt(i))) {
+                    i++;
+                }
+                if (variationDepth > 0) {
+                    continue;
+                }
+
+                String token = line.substring(start, i);
+                if (isResult(token)) {
+                    result = result == null ? token : result;
+                    continue;
+                }
+                if (token.charAt(0) == '$') {
+                    continue;
+                }
+                token = stripMoveNumber(token);
+                if (token.isEmpty()) {
+                    continue;
+                }
+                int move = San.parse(position, token, buffer);
+                if (move == Move.NONE) {
+                    return game.rejected("illegal or ambiguous move '" + token + "' at line " + lineNumber);
+                }
+                records.add(MoveRecord.of(gameId, position, move));
+                position.makeMove(move);
+            }
+        }
+        GameRecord record = new GameRecord(gameId, white, black, result == null ? "*" : result, startFen);
+        return new ReplayedGame(game, record, records, null);
+    }
+
+    private void write(List<ReplayedGame> chunk) throws SQLException {
+        List<ReplayedGame> accepted = new ArrayList<>(chunk.size());
+        for (ReplayedGame game : chunk) {
+            if (game.error() != null) {
+                rejected++;
+                log.println("Rejected game " + game.source().number() + " starting at line "
+                        + game.source().firstLine() + ": " + game.error());
+            } else {
+                accepted.add(game);
+            }
+        }
+        batch.clear();
+        for (ReplayedGame game : accepted) {
+            batch.add(game.game(), game.moves());
+        }
+        // one transaction per chunk, so a chunk is either stored whole or not at all
+        if (pool != null) {
+            batch.write(pool);
+        }
+        games += batch.size();
+        moves += batch.moveCount();
+
+        long now = System.nanoTime();
+        if (now - lastProgressNanos >= PROGRESS_INTERVAL_NANOS) {
+            lastProgressNanos = now;
+            log.println("Progress: " + summary());
+        }
+    }
+
+    // The quoted value of a tag pair such as [White "Carlsen, Magnus"].
+    private static String tagValue(String line) {
+        int open = line.indexOf('"');
+        int close = line.lastIndexOf('"');
+        return open >= 0 && close > open ? line.substring(open + 1, close) : "";
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '{' || c == '(' || c == ')' || c == ';' || Character.isWhitespace(c);
+    }
+
+    private static boolean isResult(String token) {
+        return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+    }
+
+    // "12.e4", "12...e5" and a bare "12." all carry a move number to drop.
+    private static String stripMoveNumber(String token) {
+        int i = 0;
+        while (i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        }
+        if (i == token.length() || token.charAt(i) != '.') {
+            return i == token.length() ? "" : token;
+        }
+        while (i < token.length() && token.charAt(i) == '.') {
+            i++;
+        }
+        return token.substring(i);
+    }
+
+    record RawGame(long number, int firstLine, String[] lines) {
+        ReplayedGame rejected(String error) {
+            return new ReplayedGame(this, null, List.of(), error);
+        }
+    }
+
+    record ReplayedGame(RawGame source, GameRecord game, List<MoveRecord> moves, String error) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,125 @@
+package chess.chess;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The twelve piece images scaled once to one square size and laid side by
+// side in a single image, piece code i in the square-sized cell at
+// x = i * squareSize. A board then draws every piece as a 1:1 copy of a
+// cell, with no scaling and no switching between images. The PNGs are
+// decoded once, to MASTER_SIZE, and every atlas is averaged down from those
+// pixels, so a window being resized does not decode anything. Atlases are
+// shared per square size, the last few sizes only; use them on the FX thread.
+public final class PieceAtlas {
+    // share of the square a piece covers, as on the tile board
+    static final double PIECE_SCALE = 0.8;
+    // side of the decoded piece images; 4x the PNGs, smoothly upscaled
+    static final int MASTER_SIZE = 240;
+    private static final int CACHED_SIZES = 4;
+    private static final String[] TYPE_NAMES = {"pawn", "knight", "bishop", "rook", "queen", "king"};
+    private static final Map<Integer, PieceAtlas> BY_SIZE = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, PieceAtlas> eldest) {
+            return size() > CACHED_SIZES;
+        }
+    };
+    // ARGB pixels of every piece at MASTER_SIZE, by piece code
+    private static int[][] masters;
+
+    private final int squareSize;
+    private final WritableImage image;
+
+    private PieceAtlas(int squareSize) {
+        this.squareSize = squareSize;
+        image = new WritableImage(12 * squareSize, squareSize);
+        int pieceSize = Math.max(1, (int) Math.round(squareSize * PIECE_SCALE));
+        int[][] sources = masters();
+        int offset = (squareSize - pieceSize) / 2;
+        for (int piece = 0; piece < 12; piece++) {
+            image.getPixelWriter().setPixels(piece * squareSize + offset, offset, pieceSize, pieceSize,
+                    PixelFormat.getIntArgbInstance(), scale(sources[piece], pieceSize), 0, pieceSize);
+        }
+    }
+
+    public static PieceAtlas forSquareSize(int squareSize) {
+        return BY_SIZE.computeIfAbsent(squareSize, PieceAtlas::new);
+    }
+
+    public Image image() {
+        return image;
+    }
+
+    public int squareSize() {
+        return squareSize;
+    }
+
+    // Left edge of the piece's cell in image().
+    public int cellX(int piece) {
+        return piece * squareSize;
+    }
+
+    private static int[][] masters() {
+        if (masters == null) {
+            int[][] pixels = new int[12][MASTER_SIZE * MASTER_SIZE];
+            for (int piece = 0; piece < 12; piece++) {
+                load(piece, MASTER_SIZE).getPixelReader().getPixels(0, 0, MASTER_SIZE, MASTER_SIZE,
+                        PixelFormat.getIntArgbInstance(), pixels[piece], 0, MASTER_SIZE);
+            }
+            masters = pixels;
+        }
+        return masters;
+    }
+
+    // Averages each target pixel over the master pixels it covers, weighting
+    // colors by alpha so transparent edges do not darken; above MASTER_SIZE
+    // it repeats pixels instead.
+    private static int[] scale(int[] master, int size) {
+        int[] pixels = new int[size * size];
+        for (int y = 0; y < size; y++) {
+            int top = y * MASTER_SIZE / size;
+            int bottom = Math.max(top + 1, (y + 1) * MASTER_SIZE / size);
+            for (int x = 0; x < size; x++) {
+                int left = x * MASTER_SIZE / size;
+                int right = Math.max(left + 1, (x + 1) * MASTER_SIZE / size);
+                long alpha = 0;
+                long red = 0;
+                long green = 0;
+                long blue = 0;
+                for (int row = top; row < bottom; row++) {
+                    for (int col = left; col < right; col++) {
+                        int argb = master[row * MASTER_SIZE + col];
+                        int a = argb >>> 24;
+                        alpha += a;
+                        red += a * ((argb >> 16) & 0xFF);
+                        green += a * ((argb >> 8) & 0xFF);
+                        blue += a * (argb & 0xFF);
+                    }
+                }
+                int count = (bottom - top) * (right - left);
+                pixels[y * size + x] = alpha == 0 ? 0 : (int) (alpha / count) << 24
+                        | (int) (red / alpha) << 16 | (int) (green / alpha) << 8 | (int) (blue / alpha);
+            }
+        }
+        return pixels;
+    }
+
+    private static Image load(int piece, int size) {
+        String path = "/images/" + TYPE_NAMES[Position.typeOf(piece)] + "_"
+                + (Position.colorOf(piece) == Position.WHITE ? "white" : "black") + ".png";
+        try (InputStream in = PieceAtlas.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing piece image " + path);
+            }
+            // decoded straight to the target size, smoothly
+            return new Image(in, size, size, true, true);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read piece image " + path, e);
+        }
+    }
+}
\ No newline at end of file
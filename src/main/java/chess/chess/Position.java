@@ -0,0 +1,693 @@
+package chess.chess;
+
+import java.util.Arrays;
+
+public class Position {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    // piece codes are color * 6 + type, so 0..5 are white and 6..11 are black
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_SYMBOLS = "PNBRQKpnbrqk";
+
+    // enough for a long game plus a search on top of it; longer histories grow
+    // the stack, and every search thread's copy pays for this up front
+    private static final int INITIAL_UNDO_CAPACITY = 256;
+
+    // bytes written by writeSnapshot: the mailbox, then side to move,
+    // castling rights, en passant square + 1, halfmove clock and fullmove
+    // number as little-endian shorts, and one byte of padding
+    static final int SNAPSHOT_SIZE = 72;
+
+    // castling rights that survive a move touching the given square
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[square("e1")] = ~(WHITE_KINGSIDE | WHITE_QUEENSIDE) & 15;
+        CASTLING_MASK[square("h1")] = ~WHITE_KINGSIDE & 15;
+        CASTLING_MASK[square("a1")] = ~WHITE_QUEENSIDE & 15;
+        CASTLING_MASK[square("e8")] = ~(BLACK_KINGSIDE | BLACK_QUEENSIDE) & 15;
+        CASTLING_MASK[square("h8")] = ~BLACK_KINGSIDE & 15;
+        CASTLING_MASK[square("a8")] = ~BLACK_QUEENSIDE & 15;
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private final byte[] mailbox = new byte[64];
+    private int sideToMove = WHITE;
+    private int castlingRights;
+    private int epSquare = NO_SQUARE;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private long hash;
+    // evaluation sums kept up to date by put/remove; see Evaluation
+    private int psqScore;
+    private int phase;
+    private long pawnHash;
+
+    // Undo stack, one entry per made move: the move itself, the captured piece
+    // and irreversible state packed into an int, and the hash before the move.
+    private int[] undoMoves = new int[INITIAL_UNDO_CAPACITY];
+    private int[] undoStates = new int[INITIAL_UNDO_CAPACITY];
+    private long[] undoHashes = new long[INITIAL_UNDO_CAPACITY];
+    private int ply;
+
+    public Position() {
+        Arrays.fill(mailbox, (byte) NO_PIECE);
+    }
+
+    public static Position startPosition() {
+        return fromFen(START_FEN);
+    }
+
+    // Parses Forsyth-Edwards Notation; the two move counters may be left out.
+    // Anything the engine could not play from is rejected with an
+    // IllegalArgumentException saying what is wrong: malformed fields, a king
+    // count other than one per side, pawns on a back rank, castling rights
+    // without king and rook at home, an en passant square no pawn can have
+    // skipped, or a side to move that could capture the other king.
+    public static Position fromFen(String fen) {
+        String[] parts = fen.trim().split("\\s+");
+        if (parts.length < 4 || parts.length > 6) {
+            throw invalidFen(fen, "expected 4 to 6 fields");
+        }
+        Position position = new Position();
+
+        String[] ranks = parts[0].split("/", -1);
+        if (ranks.length != 8) {
+            throw invalidFen(fen, "expected 8 ranks");
+        }
+        int[] kings = new int[2];
+        for (int i = 0; i < 8; i++) {
+            int rank = 7 - i;
+            int file = 0;
+            for (char c : ranks[i].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    file += c - '0';
+                } else {
+                    int piece = PIECE_SYMBOLS.indexOf(c);
+                    if (piece < 0) {
+                        throw invalidFen(fen, "unknown piece '" + c + "'");
+                    }
+                    if (typeOf(piece) == PAWN && (rank == 0 || rank == 7)) {
+                        throw invalidFen(fen, "pawn on rank " + (rank + 1));
+                    }
+                    if (typeOf(piece) == KING) {
+                        kings[colorOf(piece)]++;
+                    }
+                    if (file < 8) {
+                        position.put(piece, rank * 8 + file);
+                    }
+                    file++;
+                }
+                if (file > 8) {
+                    break;
+                }
+            }
+            if (file != 8) {
+                throw invalidFen(fen, "rank " + (rank + 1) + " does not have 8 squares");
+            }
+        }
+        if (kings[WHITE] != 1 || kings[BLACK] != 1) {
+            throw invalidFen(fen, "each side needs exactly one king");
+        }
+
+        switch (parts[1]) {
+            case "w" -> position.sideToMove = WHITE;
+            case "b" -> position.sideToMove = BLACK;
+            default -> throw invalidFen(fen, "side to move must be w or b");
+        }
+
+        if (!parts[2].equals("-")) {
+            for (char c : parts[2].toCharArray()) {
+                int right = switch (c) {
+                    case 'K' -> WHITE_KINGSIDE;
+                    case 'Q' -> WHITE_QUEENSIDE;
+                    case 'k' -> BLACK_KINGSIDE;
+                    case 'q' -> BLACK_QUEENSIDE;
+                    default -> throw invalidFen(fen, "unknown castling right '" + c + "'");
+                };
+                if ((position.castlingRights & right) != 0) {
+                    throw invalidFen(fen, "castling right '" + c + "' given twice");
+                }
+                int color = Character.isUpperCase(c) ? WHITE : BLACK;
+                int backRank = color == WHITE ? 0 : 56;
+                int rookSquare = backRank + (Character.toLowerCase(c) == 'k' ? 7 : 0);
+                if (position.pieceAt(backRank + 4) != makePiece(color, KING)
+                        || position.pieceAt(rookSquare) != makePiece(color, ROOK)) {
+                    throw invalidFen(fen, "castling right '" + c + "' without king and rook on their squares");
+                }
+                position.castlingRights |= right;
+            }
+        }
+
+        if (!parts[3].equals("-")) {
+            int square = parseSquare(fen, parts[3]);
+            // the square the pawn of the side that just moved skipped
+            int them = position.sideToMove ^ 1;
+            int pawnSquare = them == WHITE ? square + 8 : square - 8;
+            if (square >>> 3 != (them == WHITE ? 2 : 5) || position.pieceAt(square) != NO_PIECE
+                    || position.pieceAt(pawnSquare) != makePiece(them, PAWN)) {
+                throw invalidFen(fen, "no pawn can have skipped en passant square " + parts[3]);
+            }
+            position.epSquare = square;
+        }
+        position.halfmoveClock = parts.length > 4 ? parseCounter(fen, parts[4], 0) : 0;
+        position.fullmoveNumber = parts.length > 5 ? parseCounter(fen, parts[5], 1) : 1;
+
+        int waiting = position.sideToMove ^ 1;
+        if (Attacks.isAttacked(position, position.kingSquare(waiting), position.sideToMove, position.occupied())) {
+            throw invalidFen(fen, "the side not to move is in check");
+        }
+        position.hash = Zobrist.compute(position);
+        return position;
+    }
+
+    private static int parseSquare(String fen, String name) {
+        try {
+            return square(name);
+        } catch (IllegalArgumentException e) {
+            throw invalidFen(fen, e.getMessage());
+        }
+    }
+
+    private static int parseCounter(String fen, String value, int min) {
+        try {
+            int counter = Integer.parseInt(value);
+            if (counter >= min) {
+                return counter;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw invalidFen(fen, "move counter " + value + " is not a number of at least " + min);
+    }
+
+    private static IllegalArgumentException invalidFen(String fen, String reason) {
+        return new IllegalArgumentException("Invalid FEN '" + fen + "': " + reason);
+    }
+
+    // A bare board has no history, so castling is allowed wherever king and
+    // rook still stand on their home squares, there is no en passant square
+    // and the clocks start at zero. Throws IllegalArgumentException for a
+    // board that is not a position: a side without exactly one king, a pawn on
+    // a back rank, or the side not to move in check.
+    public static Position fromBoard(ChessPiece[][] board, boolean whiteToMove) {
+        Position position = new Position();
+        int[] kings = new int[2];
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                ChessPiece piece = board[row][col];
+                if (piece != null && piece.getPieceCode() != NO_PIECE) {
+                    int code = piece.getPieceCode();
+                    if (typeOf(code) == PAWN && (row == 0 || row == 7)) {
+                        throw new IllegalArgumentException("Invalid board: pawn on a back rank");
+                    }
+                    if (typeOf(code) == KING) {
+                        kings[colorOf(code)]++;
+                    }
+                    position.put(code, square(row, col));
+                }
+            }
+        }
+        if (kings[WHITE] != 1 || kings[BLACK] != 1) {
+            throw new IllegalArgumentException("Invalid board: each side needs exactly one king");
+        }
+        position.sideToMove = whiteToMove ? WHITE : BLACK;
+        for (int color = WHITE; color <= BLACK; color++) {
+            int backRank = color == WHITE ? 0 : 56;
+            if (position.pieceAt(backRank + 4) == makePiece(color, KING)) {
+                if (position.pieceAt(backRank + 7) == makePiece(color, ROOK)) {
+                    position.castlingRights |= color == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+                }
+                if (position.pieceAt(backRank) == makePiece(color, ROOK)) {
+                    position.castlingRights |= color == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+                }
+            }
+        }
+        int waiting = position.sideToMove ^ 1;
+        if (Attacks.isAttacked(position, position.kingSquare(waiting), position.sideToMove, position.occupied())) {
+            throw new IllegalArgumentException("Invalid board: the side not to move is in check");
+        }
+        position.hash = Zobrist.compute(position);
+        return position;
+    }
+
+    public String toFen() {
+        StringBuilder fen = new StringBuilder();
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = mailbox[rank * 8 + file];
+                if (piece == NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(PIECE_SYMBOLS.charAt(piece));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (rank > 0) {
+                fen.append('/');
+            }
+        }
+        fen.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        } else {
+            if ((castlingRights & WHITE_KINGSIDE) != 0) fen.append('K');
+            if ((castlingRights & WHITE_QUEENSIDE) != 0) fen.append('Q');
+            if ((castlingRights & BLACK_KINGSIDE) != 0) fen.append('k');
+            if ((castlingRights & BLACK_QUEENSIDE) != 0) fen.append('q');
+        }
+        fen.append(' ').append(epSquare == NO_SQUARE ? "-" : squareName(epSquare));
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    public Position copy() {
+        Position position = new Position();
+        position.copyFrom(this);
+        return position;
+    }
+
+    public void copyFrom(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, 12);
+        System.arraycopy(other.colors, 0, colors, 0, 2);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        hash = other.hash;
+        psqScore = other.psqScore;
+        phase = other.phase;
+        pawnHash = other.pawnHash;
+        ply = other.ply;
+        if (undoMoves.length < ply) {
+            growUndoStack(other.undoMoves.length);
+        }
+        System.arraycopy(other.undoMoves, 0, undoMoves, 0, ply);
+        System.arraycopy(other.undoStates, 0, undoStates, 0, ply);
+        System.arraycopy(other.undoHashes, 0, undoHashes, 0, ply);
+    }
+
+    // Empties the board and history so one instance can be reused for many
+    // positions set up piece by piece with put().
+    void clear(int sideToMove) {
+        Arrays.fill(pieces, 0);
+        Arrays.fill(colors, 0);
+        Arrays.fill(mailbox, (byte) NO_PIECE);
+        this.sideToMove = sideToMove;
+        castlingRights = 0;
+        epSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        hash = sideToMove == BLACK ? Zobrist.sideToMove() : 0;
+        psqScore = 0;
+        phase = 0;
+        pawnHash = 0;
+        ply = 0;
+    }
+
+    // Packs what a FEN holds into SNAPSHOT_SIZE bytes at offset. The move
+    // history is not part of it.
+    void writeSnapshot(byte[] buffer, int offset) {
+        System.arraycopy(mailbox, 0, buffer, offset, 64);
+        buffer[offset + 64] = (byte) sideToMove;
+        buffer[offset + 65] = (byte) castlingRights;
+        buffer[offset + 66] = (byte) (epSquare + 1);
+        buffer[offset + 67] = (byte) halfmoveClock;
+        buffer[offset + 68] = (byte) (halfmoveClock >>> 8);
+        buffer[offset + 69] = (byte) fullmoveNumber;
+        buffer[offset + 70] = (byte) (fullmoveNumber >>> 8);
+    }
+
+    // Sets this instance up as the snapshotted position with an empty
+    // history, as fromFen would.
+    void readSnapshot(byte[] buffer, int offset) {
+        clear(buffer[offset + 64]);
+        for (int square = 0; square < 64; square++) {
+            int piece = buffer[offset + square];
+            if (piece != NO_PIECE) {
+                put(piece, square);
+            }
+        }
+        castlingRights = buffer[offset + 65];
+        epSquare = buffer[offset + 66] - 1;
+        halfmoveClock = (buffer[offset + 67] & 0xFF) | (buffer[offset + 68] & 0xFF) << 8;
+        fullmoveNumber = (buffer[offset + 69] & 0xFF) | (buffer[offset + 70] & 0xFF) << 8;
+        hash = Zobrist.compute(this);
+    }
+
+    public void put(int piece, int square) {
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        colors[colorOf(piece)] |= bit;
+        mailbox[square] = (byte) piece;
+        hash ^= Zobrist.piece(piece, square);
+        psqScore += Evaluation.PSQ[piece][square];
+        phase += Evaluation.PHASE_WEIGHTS[piece];
+        pawnHash ^= Zobrist.pawn(piece, square);
+    }
+
+    public void remove(int square) {
+        int piece = mailbox[square];
+        if (piece == NO_PIECE) {
+            return;
+        }
+        long bit = 1L << square;
+        pieces[piece] &= ~bit;
+        colors[colorOf(piece)] &= ~bit;
+        mailbox[square] = (byte) NO_PIECE;
+        hash ^= Zobrist.piece(piece, square);
+        psqScore -= Evaluation.PSQ[piece][square];
+        phase -= Evaluation.PHASE_WEIGHTS[piece];
+        pawnHash ^= Zobrist.pawn(piece, square);
+    }
+
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int piece = mailbox[from];
+        int captured = flag == Move.EP_CAPTURE ? mailbox[to ^ 8] : mailbox[to];
+
+        if (ply == undoMoves.length) {
+            growUndoStack(ply * 2);
+        }
+        undoMoves[ply] = move;
+        undoStates[ply] = (captured + 1) | (castlingRights << 4) | ((epSquare + 1) << 8) | (halfmoveClock << 15);
+        undoHashes[ply] = hash;
+        ply++;
+
+        if (isEpCapturable()) {
+            hash ^= Zobrist.enPassant(epSquare);
+        }
+        hash ^= Zobrist.castling(castlingRights);
+        if (flag == Move.EP_CAPTURE) {
+            remove(to ^ 8);
+        } else if (flag == Move.KING_CASTLE) {
+            remove(to + 1);
+            put(makePiece(sideToMove, ROOK), to - 1);
+        } else if (flag == Move.QUEEN_CASTLE) {
+            remove(to - 2);
+            put(makePiece(sideToMove, ROOK), to + 1);
+        }
+        remove(to);
+        remove(from);
+        put((flag & Move.PROMOTION) != 0 ? makePiece(sideToMove, Move.promotionType(move)) : piece, to);
+
+        epSquare = flag == Move.DOUBLE_PAWN_PUSH ? (from + to) >>> 1 : NO_SQUARE;
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        halfmoveClock = (typeOf(piece) == PAWN || captured != NO_PIECE) ? 0 : halfmoveClock + 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+        hash ^= Zobrist.castling(castlingRights) ^ Zobrist.sideToMove();
+        if (isEpCapturable()) {
+            hash ^= Zobrist.enPassant(epSquare);
+        }
+    }
+
+    public void unmakeMove() {
+        ply--;
+        int move = undoMoves[ply];
+        int state = undoStates[ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int captured = (state & 15) - 1;
+
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+        if (move == Move.NONE) {
+            epSquare = ((state >>> 8) & 127) - 1;
+            halfmoveClock = state >>> 15;
+            hash = undoHashes[ply];
+            return;
+        }
+        int piece = (flag & Move.PROMOTION) != 0 ? makePiece(sideToMove, PAWN) : mailbox[to];
+        remove(to);
+        put(piece, from);
+        if (flag == Move.EP_CAPTURE) {
+            put(captured, to ^ 8);
+        } else if (captured != NO_PIECE) {
+            put(captured, to);
+        } else if (flag == Move.KING_CASTLE) {
+            remove(to - 1);
+            put(makePiece(sideToMove, ROOK), to + 1);
+        } else if (flag == Move.QUEEN_CASTLE) {
+            remove(to + 1);
+            put(makePiece(sideToMove, ROOK), to - 2);
+        }
+
+        castlingRights = (state >>> 4) & 15;
+        epSquare = ((state >>> 8) & 127) - 1;
+        halfmoveClock = state >>> 15;
+        hash = undoHashes[ply];
+    }
+
+    // Passes the turn without moving, for null-move pruning in search. Undone by
+    // unmakeMove like any other move.
+    public void makeNullMove() {
+        if (ply == undoMoves.length) {
+            growUndoStack(ply * 2);
+        }
+        undoMoves[ply] = Move.NONE;
+        undoStates[ply] = (castlingRights << 4) | ((epSquare + 1) << 8) | (halfmoveClock << 15);
+        undoHashes[ply] = hash;
+        ply++;
+
+        if (isEpCapturable()) {
+            hash ^= Zobrist.enPassant(epSquare);
+        }
+        epSquare = NO_SQUARE;
+        // positions before a null move cannot repeat after it
+        halfmoveClock = 0;
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+        hash ^= Zobrist.sideToMove();
+    }
+
+    public boolean hasNonPawnMaterial(int color) {
+        return (colors[color] & ~pieces[color * 6 + PAWN] & ~pieces[color * 6 + KING]) != 0;
+    }
+
+    public int ply() {
+        return ply;
+    }
+
+    public int lastMove() {
+        return ply == 0 ? Move.NONE : undoMoves[ply - 1];
+    }
+
+    // True if the current position already occurred since the last capture or
+    // pawn move. Search treats a single repetition as a draw.
+    public boolean isRepetition() {
+        return repetitionCount() > 0;
+    }
+
+    public boolean isThreefoldRepetition() {
+        return repetitionCount() >= 2;
+    }
+
+    // True if any position since the last capture or pawn move, the current
+    // one included, occurred twice in that stretch.
+    public boolean hasRepetitionSinceIrreversibleMove() {
+        int oldest = Math.max(0, ply - halfmoveClock);
+        for (int i = ply; i >= oldest + 2; i--) {
+            long key = i == ply ? hash : undoHashes[i];
+            for (int j = i - 2; j >= oldest; j -= 2) {
+                if (undoHashes[j] == key) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int repetitionCount() {
+        int count = 0;
+        int oldest = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 2; i >= oldest; i -= 2) {
+            if (undoHashes[i] == hash) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void growUndoStack(int capacity) {
+        undoMoves = Arrays.copyOf(undoMoves, capacity);
+        undoStates = Arrays.copyOf(undoStates, capacity);
+        undoHashes = Arrays.copyOf(undoHashes, capacity);
+    }
+
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    public int pieceAt(int row, int col) {
+        return mailbox[square(row, col)];
+    }
+
+    public long pieces(int piece) {
+        return pieces[piece];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[color * 6 + type];
+    }
+
+    public long colorPieces(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return colors[WHITE] | colors[BLACK];
+    }
+
+    public int kingSquare(int color) {
+        return Long.numberOfTrailingZeros(pieces[color * 6 + KING]);
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public boolean isWhiteToMove() {
+        return sideToMove == WHITE;
+    }
+
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    public int epSquare() {
+        return epSquare;
+    }
+
+    // The en passant square only enters the hash when a pawn could actually take
+    // there; otherwise the same position would get two keys.
+    public boolean isEpCapturable() {
+        return epSquare != NO_SQUARE
+                && (Attacks.pawn(sideToMove ^ 1, epSquare) & pieces[sideToMove * 6 + PAWN]) != 0;
+    }
+
+    public long hash() {
+        return hash;
+    }
+
+    // Material plus piece-square values, white minus black, for the middlegame
+    // and the endgame.
+    public int mgScore() {
+        return Evaluation.mgOf(psqScore);
+    }
+
+    public int egScore() {
+        return Evaluation.egOf(psqScore);
+    }
+
+    // Both of the above in one int, see Evaluation.packed.
+    public int psqScore() {
+        return psqScore;
+    }
+
+    // 24 with all minor and major pieces on the board, 0 with none.
+    public int phase() {
+        return phase;
+    }
+
+    // Zobrist hash of the pawns alone, the key for pawn-structure caches.
+    public long pawnHash() {
+        return pawnHash;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public static int makePiece(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int colorOf(int piece) {
+        return piece >= 6 ? BLACK : WHITE;
+    }
+
+    public static int typeOf(int piece) {
+        return piece >= 6 ? piece - 6 : piece;
+    }
+
+    public static char pieceSymbol(int piece) {
+        return PIECE_SYMBOLS.charAt(piece);
+    }
+
+    public static int pieceFromSymbol(char symbol) {
+        return PIECE_SYMBOLS.indexOf(symbol);
+    }
+
+    // GameBoard rows run from black's back rank (row 0) down to white's (row 7)
+    public static int square(int row, int col) {
+        return (7 - row) * 8 + col;
+    }
+
+    // A square in algebraic notation, e.g. "e4".
+    public static int square(String name) {
+        if (name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h'
+                || name.charAt(1) < '1' || name.charAt(1) > '8') {
+            throw new IllegalArgumentException("Invalid square: " + name);
+        }
+        return (name.charAt(1) - '1') * 8 + (name.charAt(0) - 'a');
+    }
+
+    public static int rowOf(int square) {
+        return 7 - (square >>> 3);
+    }
+
+    public static int colOf(int square) {
+        return square & 7;
+    }
+
+    public static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('1' + (square >>> 3));
+    }
+
+    @Override
+    public String toString() {
+        return toFen();
+    }
+}
\ No newline at end of file
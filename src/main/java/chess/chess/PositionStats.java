@@ -0,0 +1,117 @@
+package chess.chess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Per (position, move) totals for the opening explorer, aggregated in memory
+// and then added to position_stats in one batch. A game counts once per
+// position and move even if it repeats them. Only the first MAX_PLY plies are
+// aggregated: past the opening almost every position is unique to one game,
+// so the table would just duplicate move_history, and OpeningExplorer adds
+// the later occurrences from move_history directly.
+public class PositionStats {
+    public static final int MAX_PLY = 40;
+
+    private static final String ADD_ON_CONFLICT =
+            "ON CONFLICT (position_hash, move) DO UPDATE SET "
+                    + "games = position_stats.games + EXCLUDED.games, "
+                    + "white_wins = position_stats.white_wins + EXCLUDED.white_wins, "
+                    + "draws = position_stats.draws + EXCLUDED.draws, "
+                    + "black_wins = position_stats.black_wins + EXCLUDED.black_wins";
+    private static final String UPSERT_STATS =
+            "INSERT INTO position_stats (position_hash, move, games, white_wins, draws, black_wins) "
+                    + "VALUES (?, ?, ?, ?, ?, ?) " + ADD_ON_CONFLICT;
+    private static final String ADD_STORED_GAME =
+            "INSERT INTO position_stats (position_hash, move, games, white_wins, draws, black_wins) "
+                    + "SELECT DISTINCT position_hash, move, 1, ?, ?, ? FROM move_history WHERE game_id = ? AND ply < " + MAX_PLY + " "
+                    + ADD_ON_CONFLICT;
+
+    // games, white wins, draws, black wins
+    private final Map<Key, long[]> totals = new HashMap<>();
+
+    public void add(GameRecord game, List<MoveRecord> moves) {
+        int outcome = outcomeIndex(game.result());
+        Set<Key> seen = new HashSet<>();
+        for (MoveRecord move : moves) {
+            if (move.ply() >= MAX_PLY) {
+                continue;
+            }
+            Key key = new Key(move.positionHash(), move.move());
+            if (!seen.add(key)) {
+                continue;
+            }
+            long[] counts = totals.computeIfAbsent(key, k -> new long[4]);
+            counts[0]++;
+            if (outcome > 0) {
+                counts[outcome]++;
+            }
+        }
+    }
+
+    public int size() {
+        return totals.size();
+    }
+
+    public void clear() {
+        totals.clear();
+    }
+
+    // Adds the totals to position_stats inside the caller's transaction.
+    public void write(Connection connection, int batchSize) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_STATS)) {
+            int pending = 0;
+            for (Map.Entry<Key, long[]> entry : totals.entrySet()) {
+                long[] counts = entry.getValue();
+                statement.setLong(1, entry.getKey().positionHash());
+                statement.setInt(2, entry.getKey().move());
+                statement.setLong(3, counts[0]);
+                statement.setLong(4, counts[1]);
+                statement.setLong(5, counts[2]);
+                statement.setLong(6, counts[3]);
+                statement.addBatch();
+                if (++pending == batchSize) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    // Adds a game whose moves are already in move_history, without reading
+    // them back to the client.
+    public static void addStoredGame(Connection connection, long gameId, String result) throws SQLException {
+        int outcome = outcomeIndex(result);
+        try (PreparedStatement statement = connection.prepareStatement(ADD_STORED_GAME)) {
+            statement.setInt(1, outcome == 1 ? 1 : 0);
+            statement.setInt(2, outcome == 2 ? 1 : 0);
+            statement.setInt(3, outcome == 3 ? 1 : 0);
+            statement.setLong(4, gameId);
+            statement.executeUpdate();
+        }
+    }
+
+    // 1 for a white win, 2 for a draw, 3 for a black win, 0 when unfinished.
+    static int outcomeIndex(String result) {
+        if (result == null) {
+            return 0;
+        }
+        return switch (result) {
+            case "1-0" -> 1;
+            case "1/2-1/2" -> 2;
+            case "0-1" -> 3;
+            default -> 0;
+        };
+    }
+
+    private record Key(long positionHash, int move) {
+    }
+}
\ No newline at end of file
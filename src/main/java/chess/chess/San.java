@@ -0,0 +1,165 @@
+package chess.chess;
+
+// Standard algebraic notation (SAN) as used in PGN files, e.g. "Nbd7",
+// "exd5", "e8=Q+", "O-O-O". Parsing is lenient about check/annotation
+// suffixes and "0-0" castling but otherwise requires an exact, unambiguous
+// match against the legal moves of the position.
+public final class San {
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private San() {
+    }
+
+    public static int parse(Position position, String san) {
+        return parse(position, san, new int[MoveGenerator.MAX_MOVES]);
+    }
+
+    // Returns the legal move the SAN string denotes, or Move.NONE if it is
+    // illegal, ambiguous or not SAN at all. The buffer is scratch space for
+    // move generation so bulk callers can avoid allocating one per move.
+    public static int parse(Position position, String san, int[] buffer) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end < 2) {
+            return Move.NONE;
+        }
+
+        int count = MoveGenerator.generate(position, buffer);
+        if (san.charAt(0) == 'O' || san.charAt(0) == '0') {
+            String castle = san.substring(0, end).replace('0', 'O');
+            int flag = castle.equals("O-O") ? Move.KING_CASTLE : castle.equals("O-O-O") ? Move.QUEEN_CASTLE : -1;
+            for (int i = 0; i < count; i++) {
+                if (Move.flag(buffer[i]) == flag) {
+                    return buffer[i];
+                }
+            }
+            return Move.NONE;
+        }
+
+        int promotion = Position.NO_PIECE;
+        char last = san.charAt(end - 1);
+        if ("NBRQ".indexOf(last) >= 0) {
+            promotion = PIECE_LETTERS.indexOf(last);
+            end--;
+            if (end > 0 && san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        if (end < 2) {
+            return Move.NONE;
+        }
+
+        int start = 0;
+        int type = Position.PAWN;
+        int letter = PIECE_LETTERS.indexOf(san.charAt(0));
+        if (letter > 0) {
+            type = letter;
+            start = 1;
+        }
+
+        char toFile = san.charAt(end - 2);
+        char toRank = san.charAt(end - 1);
+        if (toFile < 'a' || toFile > 'h' || toRank < '1' || toRank > '8') {
+            return Move.NONE;
+        }
+        int to = (toRank - '1') * 8 + (toFile - 'a');
+
+        // whatever sits between the piece letter and the target square is a
+        // capture marker and/or disambiguation
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return Move.NONE;
+            }
+        }
+
+        int match = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            int from = Move.from(move);
+            if (Move.to(move) != to || Position.typeOf(position.pieceAt(from)) != type) {
+                continue;
+            }
+            if ((fromFile >= 0 && (from & 7) != fromFile) || (fromRank >= 0 && (from >>> 3) != fromRank)) {
+                continue;
+            }
+            if (Move.isPromotion(move) ? Move.promotionType(move) != promotion : promotion != Position.NO_PIECE) {
+                continue;
+            }
+            if (match != Move.NONE) {
+                return Move.NONE;
+            }
+            match = move;
+        }
+        return match;
+    }
+
+    public static String toSan(Position position, int move) {
+        return toSan(position, move, new int[MoveGenerator.MAX_MOVES]);
+    }
+
+    // Formats a legal move of the position, including the minimal
+    // disambiguation and the check or mate suffix.
+    public static String toSan(Position position, int move, int[] buffer) {
+        StringBuilder san = new StringBuilder(8);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Position.typeOf(position.pieceAt(from));
+
+        if (Move.flag(move) == Move.KING_CASTLE) {
+            san.append("O-O");
+        } else if (Move.flag(move) == Move.QUEEN_CASTLE) {
+            san.append("O-O-O");
+        } else if (type == Position.PAWN) {
+            if (Move.isCapture(move)) {
+                san.append((char) ('a' + (from & 7))).append('x');
+            }
+            san.append(Position.squareName(to));
+            if (Move.isPromotion(move)) {
+                san.append('=').append(PIECE_LETTERS.charAt(Move.promotionType(move)));
+            }
+        } else {
+            san.append(PIECE_LETTERS.charAt(type));
+            boolean ambiguous = false;
+            boolean sameFile = false;
+            boolean sameRank = false;
+            int count = MoveGenerator.generate(position, buffer);
+            for (int i = 0; i < count; i++) {
+                int other = Move.from(buffer[i]);
+                if (other != from && Move.to(buffer[i]) == to && Position.typeOf(position.pieceAt(other)) == type) {
+                    ambiguous = true;
+                    sameFile |= (other & 7) == (from & 7);
+                    sameRank |= (other >>> 3) == (from >>> 3);
+                }
+            }
+            if (ambiguous) {
+                if (!sameFile) {
+                    san.append((char) ('a' + (from & 7)));
+                } else if (!sameRank) {
+                    san.append((char) ('1' + (from >>> 3)));
+                } else {
+                    san.append(Position.squareName(from));
+                }
+            }
+            if (Move.isCapture(move)) {
+                san.append('x');
+            }
+            san.append(Position.squareName(to));
+        }
+
+        position.makeMove(move);
+        if (MoveGenerator.isInCheck(position)) {
+            san.append(MoveGenerator.countLegalMoves(position) == 0 ? '#' : '+');
+        }
+        position.unmakeMove();
+        return san.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,362 @@
+package chess.chess;
+
+import java.util.Arrays;
+
+// One alpha-beta worker. Engine runs several of these on copies of the same
+// position; they only talk to each other through the shared transposition
+// table and the stop flag (Lazy SMP).
+final class Search {
+    static final int MAX_PLY = 128;
+    static final int INFINITY = 32000;
+    static final int MATE = 31000;
+    // Scores at or beyond this are mates: found by the search within MAX_PLY
+    // plies, or by the endgame tables up to 255 plies further on.
+    static final int MATE_BOUND = MATE - MAX_PLY - 255;
+
+    private static final int CHECK_INTERVAL = 2047;
+
+    private final Engine engine;
+    private final TranspositionTable table;
+    private final int threadId;
+    private final Position position = new Position();
+    private final Evaluation evaluation = new Evaluation();
+
+    private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] moveScores = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[12][64];
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+
+    private long nodes;
+    // set once a stop cuts the current iteration short
+    private boolean aborted;
+    // largest piece count the endgame tables cover, read once per search
+    private int tablebasePieces;
+    // nodes as last published for other threads; written every CHECK_INTERVAL nodes
+    volatile long publishedNodes;
+    private SearchResult result;
+
+    Search(Engine engine, TranspositionTable table, int threadId) {
+        this.engine = engine;
+        this.table = table;
+        this.threadId = threadId;
+    }
+
+    SearchResult run(Position root, SearchLimits limits, long startNanos) {
+        position.copyFrom(root);
+        nodes = 0;
+        tablebasePieces = Tablebases.maxPieces();
+        publishedNodes = 0;
+        result = null;
+        for (int[] pair : killers) {
+            pair[0] = Move.NONE;
+            pair[1] = Move.NONE;
+        }
+        for (int[] row : history) {
+            Arrays.fill(row, 0);
+        }
+
+        // helpers on odd ids start one ply deeper so the threads spread out
+        // over different depths instead of all searching the same tree
+        int startDepth = 1 + (threadId & 1);
+        for (int depth = startDepth; depth <= limits.getDepth(); depth++) {
+            aborted = false;
+            int score = negamax(-INFINITY, INFINITY, depth, 0, true);
+            // a partial iteration's move and score are not trustworthy
+            if (aborted) {
+                break;
+            }
+            if (pvLength[0] > 0) {
+                int[] line = Arrays.copyOf(pv[0], pvLength[0]);
+                long elapsed = (System.nanoTime() - startNanos) / 1_000_000;
+                result = new SearchResult(line[0], score, depth, nodes, elapsed, line);
+                publishedNodes = nodes;
+                if (threadId == 0) {
+                    engine.iterationCompleted(result);
+                }
+            }
+            if (engine.isStopped()) {
+                break;
+            }
+            if (Math.abs(score) >= MATE_BOUND && depth > MATE - Math.abs(score)) {
+                break;
+            }
+        }
+        publishedNodes = nodes;
+        return result;
+    }
+
+    SearchResult result() {
+        return result;
+    }
+
+    private int negamax(int alpha, int beta, int depth, int ply, boolean allowNull) {
+        pvLength[ply] = 0;
+        boolean rootNode = ply == 0;
+        boolean pvNode = beta - alpha > 1;
+
+        if (!rootNode) {
+            if (position.isRepetition() || position.halfmoveClock() >= 100) {
+                return 0;
+            }
+            // mate distance pruning
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if (alpha >= beta) {
+                return alpha;
+            }
+            // the endgame tables know the exact outcome, mate distance included
+            if (Long.bitCount(position.occupied()) <= tablebasePieces) {
+                int tablebase = Tablebases.probe(position);
+                if (tablebase != Tablebases.NOT_FOUND) {
+                    return tablebaseScore(tablebase, ply);
+                }
+            }
+        }
+
+        boolean inCheck = MoveGenerator.isInCheck(position);
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return evaluation.evaluate(position);
+        }
+
+        long key = position.hash();
+        long entry = table.probe(key);
+        int ttMove = TranspositionTable.move(entry);
+        if (entry != 0 && !pvNode && TranspositionTable.depth(entry) >= depth) {
+            int ttScore = fromTableScore(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER && ttScore >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER && ttScore <= alpha)) {
+                return ttScore;
+            }
+        }
+
+        if (allowNull && !pvNode && !inCheck && depth >= 3 && position.hasNonPawnMaterial(position.sideToMove())
+                && evaluation.evaluate(position) >= beta) {
+            int reduction = depth > 6 ? 3 : 2;
+            position.makeNullMove();
+            int score = -negamax(-beta, -beta + 1, depth - 1 - reduction, ply + 1, false);
+            position.unmakeMove();
+            if (stopped()) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score >= MATE_BOUND ? beta : score;
+            }
+        }
+
+        int[] buffer = moves[ply];
+        int count = MoveGenerator.generate(position, buffer);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(ply, count, ttMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(ply, i, count);
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+
+            position.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(-beta, -alpha, depth - 1, ply + 1, true);
+            } else {
+                // late quiet moves are searched shallower first and only get
+                // the full depth back if they beat alpha
+                int reduction = (depth >= 3 && i >= 4 && quiet && !inCheck) ? (i >= 12 ? 2 : 1) : 0;
+                score = -negamax(-alpha - 1, -alpha, depth - 1 - reduction, ply + 1, true);
+                if (score > alpha && reduction > 0) {
+                    score = -negamax(-alpha - 1, -alpha, depth - 1, ply + 1, true);
+                }
+                if (score > alpha && score < beta) {
+                    score = -negamax(-beta, -alpha, depth - 1, ply + 1, true);
+                }
+            }
+            position.unmakeMove();
+
+            if (stopped()) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (quiet) {
+                            updateQuietStats(ply, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMove, toTableScore(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return evaluation.evaluate(position);
+        }
+
+        boolean inCheck = MoveGenerator.isInCheck(position);
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            bestScore = evaluation.evaluate(position);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        int[] buffer = moves[ply];
+        int count = MoveGenerator.generate(position, buffer);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : bestScore;
+        }
+        scoreMoves(ply, count, Move.NONE);
+
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(ply, i, count);
+            // out of check every evasion is searched; otherwise only tactical moves
+            if (!inCheck && !Move.isCapture(move) && !Move.isPromotion(move)) {
+                continue;
+            }
+            position.makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            position.unmakeMove();
+            if (stopped()) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    // Counts the node and periodically publishes progress and checks limits.
+    // Returns true when the search has to stop.
+    private boolean countNode() {
+        nodes++;
+        if ((nodes & CHECK_INTERVAL) == 0) {
+            publishedNodes = nodes;
+            if (threadId == 0) {
+                engine.checkLimits();
+            }
+        }
+        return stopped();
+    }
+
+    private boolean stopped() {
+        if (!aborted && engine.isStopped()) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    private void scoreMoves(int ply, int count, int ttMove) {
+        int[] buffer = moves[ply];
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            int score;
+            if (move == ttMove) {
+                score = 1_000_000;
+            } else if (Move.isCapture(move)) {
+                int victim = Move.flag(move) == Move.EP_CAPTURE ? Position.PAWN : Position.typeOf(position.pieceAt(Move.to(move)));
+                int attacker = Position.typeOf(position.pieceAt(Move.from(move)));
+                score = 500_000 + victim * 100 - attacker + (Move.isPromotion(move) ? Move.promotionType(move) * 1000 : 0);
+            } else if (Move.isPromotion(move)) {
+                score = 400_000 + Move.promotionType(move);
+            } else if (move == killers[ply][0]) {
+                score = 300_000;
+            } else if (move == killers[ply][1]) {
+                score = 290_000;
+            } else {
+                score = history[position.pieceAt(Move.from(move))][Move.to(move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    // Selection sort step: moves the best remaining move to index i.
+    private int pickNext(int ply, int i, int count) {
+        int[] buffer = moves[ply];
+        int[] scores = moveScores[ply];
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        int move = buffer[best];
+        int score = scores[best];
+        buffer[best] = buffer[i];
+        scores[best] = scores[i];
+        buffer[i] = move;
+        scores[i] = score;
+        return move;
+    }
+
+    private void updateQuietStats(int ply, int move, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] row = history[position.pieceAt(Move.from(move))];
+        row[Move.to(move)] = Math.min(200_000, row[Move.to(move)] + depth * depth);
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        int childLength = ply + 1 < MAX_PLY ? pvLength[ply + 1] : 0;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, childLength);
+        pvLength[ply] = childLength + 1;
+    }
+
+    private static int tablebaseScore(int result, int ply) {
+        return switch (Tablebases.wdl(result)) {
+            case Tablebases.WIN -> MATE - ply - Tablebases.dtm(result);
+            case Tablebases.LOSS -> -MATE + ply + Tablebases.dtm(result);
+            default -> 0;
+        };
+    }
+
+    // Mate scores are stored relative to the node so they stay correct when
+    // the same position is reached at a different ply.
+    private static int toTableScore(int score, int ply) {
+        if (score >= MATE_BOUND) return score + ply;
+        if (score <= -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromTableScore(int score, int ply) {
+        if (score >= MATE_BOUND) return score - ply;
+        if (score <= -MATE_BOUND) return score + ply;
+        return score;
+    }
+}
\ No newline at end of file
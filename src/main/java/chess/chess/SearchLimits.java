@@ -0,0 +1,36 @@
+package chess.chess;
+
+// What bounds a search. Unset limits do not apply; with none set the search
+// runs until stopped.
+public class SearchLimits {
+    private int depth = Search.MAX_PLY - 1;
+    private long moveTimeMillis;
+    private long nodes;
+
+    public SearchLimits depth(int depth) {
+        this.depth = Math.max(1, Math.min(depth, Search.MAX_PLY - 1));
+        return this;
+    }
+
+    public SearchLimits moveTime(long millis) {
+        this.moveTimeMillis = millis;
+        return this;
+    }
+
+    public SearchLimits nodes(long nodes) {
+        this.nodes = nodes;
+        return this;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package chess.chess;
+
+// Outcome of one completed iteration; the last one is the result of the search.
+public record SearchResult(int bestMove, int score, int depth, long nodes, long elapsedMillis, int[] pv) {
+    public long nodesPerSecond() {
+        return nodes * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    // Moves to mate, negative when the side to move is being mated.
+    public int mateIn() {
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    public String pvString() {
+        StringBuilder builder = new StringBuilder();
+        for (int move : pv) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(Move.toUci(move));
+        }
+        return builder.toString();
+    }
+}
\ No newline at end of file
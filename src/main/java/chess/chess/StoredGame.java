@@ -0,0 +1,8 @@
+package chess.chess;
+
+// A game read back from the database: its games row and its moves in ply order.
+public record StoredGame(GameRecord game, int[] moves) {
+    public Position startPosition() {
+        return game.startFen() == null ? Position.startPosition() : Position.fromFen(game.startFen());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,361 @@
+package chess.chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Endgame table for one material set such as KRK or KQKR: win, draw or loss
+// and distance to mate for every position with those pieces, written by
+// TablebaseGenerator and read straight from a memory-mapped file.
+//
+// The side listed first is stored as white; Tablebases flips the colors of
+// positions where black has that material. Positions are numbered by side to
+// move and the square of every piece, after a symmetry has moved the white
+// king into a fixed part of the board: the a1-d1-d4 triangle when there are
+// no pawns (eight symmetries), files a-d otherwise (only the left-right
+// mirror keeps pawns moving the same way). Of the equivalent numberings the
+// smallest is used. Castling rights and en passant are not part of a table.
+//
+// Layout, little-endian:
+//   header  magic, version, piece count, entry count, material (32 bytes)
+//   wdl     2 bits per entry, 4 entries per byte: ILLEGAL, DRAW, WIN, LOSS
+//   dtm     1 byte per entry: plies to mate for wins and losses, else 0
+public class Tablebase implements AutoCloseable {
+    static final int MAGIC = 0x42544843; // "CHTB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int MAX_PIECES = 4;
+    static final String FILE_SUFFIX = ".tb";
+
+    static final int ILLEGAL = 0;
+    static final int DRAW = 1;
+    static final int WIN = 2;
+    static final int LOSS = 3;
+
+    // strongest first; the order pieces are listed in a material name
+    private static final String PIECE_LETTERS = "QRBNP";
+    private static final int[] LETTER_TYPES = {Position.QUEEN, Position.ROOK, Position.BISHOP, Position.KNIGHT, Position.PAWN};
+    private static final int MATERIAL_BYTES = 16;
+
+    // square images under the eight symmetries of the board; the first two
+    // are the identity and the left-right mirror
+    private static final int[][] TRANSFORMS = new int[8][64];
+    private static final int[] TRIANGLE = new int[64];
+    private static final int[] TRIANGLE_SQUARES = new int[10];
+    private static final int[] HALF = new int[64];
+    private static final int[] HALF_SQUARES = new int[32];
+    // per-thread slot squares and their transformed copy, so a probe from the
+    // search allocates nothing
+    private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[2][MAX_PIECES]);
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            int rank = square >>> 3;
+            for (int t = 0; t < 8; t++) {
+                int f = (t & 1) != 0 ? 7 - file : file;
+                int r = (t & 2) != 0 ? 7 - rank : rank;
+                TRANSFORMS[t][square] = (t & 4) != 0 ? f * 8 + r : r * 8 + f;
+            }
+        }
+        Arrays.fill(TRIANGLE, -1);
+        Arrays.fill(HALF, -1);
+        int triangle = 0;
+        int half = 0;
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            int rank = square >>> 3;
+            if (file < 4) {
+                HALF_SQUARES[half] = square;
+                HALF[square] = half++;
+                if (rank <= file) {
+                    TRIANGLE_SQUARES[triangle] = square;
+                    TRIANGLE[square] = triangle++;
+                }
+            }
+        }
+    }
+
+    private final String material;
+    // piece code of every slot: white king, black king, then the other pieces
+    // of white and of black, strongest first; equal pieces are neighbours
+    private final int[] slotPieces;
+    private final boolean pawns;
+    private final int[] region;
+    private final int[] regionSquares;
+    private final int transforms;
+    private final int positionsPerSide;
+    private final long materialKey;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int dtmOffset;
+
+    private Tablebase(String material, FileChannel channel, MappedByteBuffer data) {
+        this.material = material;
+        int second = material.indexOf('K', 1);
+        List<Integer> slots = new ArrayList<>();
+        slots.add(Position.makePiece(Position.WHITE, Position.KING));
+        slots.add(Position.makePiece(Position.BLACK, Position.KING));
+        for (int i = 1; i < material.length(); i++) {
+            if (i != second) {
+                int type = LETTER_TYPES[PIECE_LETTERS.indexOf(material.charAt(i))];
+                slots.add(Position.makePiece(i < second ? Position.WHITE : Position.BLACK, type));
+            }
+        }
+        slotPieces = slots.stream().mapToInt(Integer::intValue).toArray();
+        pawns = material.indexOf('P') >= 0;
+        region = pawns ? HALF : TRIANGLE;
+        regionSquares = pawns ? HALF_SQUARES : TRIANGLE_SQUARES;
+        transforms = pawns ? 2 : 8;
+        positionsPerSide = regionSquares.length << (6 * (slotPieces.length - 1));
+
+        long key = 0;
+        for (int piece : slotPieces) {
+            key += 1L << (piece * 4);
+        }
+        materialKey = key;
+
+        this.channel = channel;
+        this.data = data;
+        dtmOffset = HEADER_SIZE + (entryCount() + 3) / 4;
+    }
+
+    // Unmapped table used to number positions while the file is generated.
+    static Tablebase layout(String material) {
+        return new Tablebase(canonicalMaterial(material), null, null);
+    }
+
+    public static Tablebase open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+                throw new IOException("Not a tablebase: " + file);
+            }
+            if (data.getShort(4) != VERSION) {
+                throw new IOException("Unsupported tablebase version " + data.getShort(4));
+            }
+            byte[] name = new byte[MATERIAL_BYTES];
+            data.get(12, name);
+            Tablebase table = new Tablebase(new String(name, StandardCharsets.US_ASCII).trim(), channel, data);
+            if (data.getInt(8) != table.entryCount() || data.capacity() < table.fileSize()) {
+                throw new IOException("Tablebase is truncated: " + file);
+            }
+            return table;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Material name with the stronger side first and each side's pieces
+    // strongest first, e.g. "KRKQ" becomes "KQKR".
+    public static String canonicalMaterial(String material) {
+        String upper = material.toUpperCase();
+        int second = upper.indexOf('K', 1);
+        if (!upper.startsWith("K") || second < 0 || upper.length() > MAX_PIECES
+                || !upper.substring(1).replace("K", "").chars().allMatch(c -> PIECE_LETTERS.indexOf(c) >= 0)
+                || upper.indexOf('K', second + 1) >= 0) {
+            throw new IllegalArgumentException("Invalid material: " + material);
+        }
+        String first = sortPieces(upper.substring(1, second));
+        String other = sortPieces(upper.substring(second + 1));
+        return compareSides(first, other) >= 0 ? "K" + first + "K" + other : "K" + other + "K" + first;
+    }
+
+    // Materials one capture or promotion away, which the generator needs
+    // before it can build this table. Bare kings are left out.
+    List<String> successors() {
+        int second = material.indexOf('K', 1);
+        List<String> result = new ArrayList<>();
+        for (int i = 1; i < material.length(); i++) {
+            if (i == second) {
+                continue;
+            }
+            String removed = material.substring(0, i) + material.substring(i + 1);
+            if (removed.length() > 2) {
+                addUnique(result, canonicalMaterial(removed));
+            }
+            if (material.charAt(i) == 'P') {
+                for (char promotion : "QRBN".toCharArray()) {
+                    addUnique(result, canonicalMaterial(material.substring(0, i) + promotion + material.substring(i + 1)));
+                }
+            }
+        }
+        return result;
+    }
+
+    public String material() {
+        return material;
+    }
+
+    public int pieceCount() {
+        return slotPieces.length;
+    }
+
+    // One 4-bit count per piece code, the same key Tablebases computes for a
+    // position.
+    long materialKey() {
+        return materialKey;
+    }
+
+    int slotPiece(int slot) {
+        return slotPieces[slot];
+    }
+
+    int positionsPerSide() {
+        return positionsPerSide;
+    }
+
+    int entryCount() {
+        return positionsPerSide * 2;
+    }
+
+    long fileSize() {
+        return dtmOffset + (long) entryCount();
+    }
+
+    int dtmOffset() {
+        return dtmOffset;
+    }
+
+    // Entry of a position with exactly this material, with colors swapped
+    // first if flipped.
+    int index(Position position, boolean flipped) {
+        int[][] scratch = SCRATCH.get();
+        int[] squares = scratch[0];
+        int slot = 0;
+        while (slot < slotPieces.length) {
+            int piece = slotPieces[slot];
+            long bits = position.pieces(flipped ? swapColor(piece) : piece);
+            while (bits != 0) {
+                int square = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                squares[slot++] = flipped ? square ^ 56 : square;
+            }
+        }
+        return index(squares, flipped ? position.sideToMove() ^ 1 : position.sideToMove(), scratch[1]);
+    }
+
+    // Entry of the position with the given slot squares; every symmetric
+    // placement gets the same one.
+    int index(int[] squares, int sideToMove) {
+        return index(squares, sideToMove, SCRATCH.get()[1]);
+    }
+
+    // squares may be longer than the slots; mapped is scratch of the same size
+    private int index(int[] squares, int sideToMove, int[] mapped) {
+        int best = Integer.MAX_VALUE;
+        for (int t = 0; t < transforms; t++) {
+            int[] transform = TRANSFORMS[t];
+            int king = region[transform[squares[0]]];
+            if (king < 0) {
+                continue;
+            }
+            for (int slot = 1; slot < slotPieces.length; slot++) {
+                int square = transform[squares[slot]];
+                // equal pieces are interchangeable; keep them in ascending order
+                int i = slot;
+                while (i > 1 && slotPieces[i - 1] == slotPieces[slot] && mapped[i - 1] > square) {
+                    mapped[i] = mapped[i - 1];
+                    i--;
+                }
+                mapped[i] = square;
+            }
+            int index = king;
+            for (int slot = 1; slot < slotPieces.length; slot++) {
+                index = (index << 6) | mapped[slot];
+            }
+            best = Math.min(best, index);
+        }
+        return sideToMove * positionsPerSide + best;
+    }
+
+    // Slot squares of an entry; returns its side to move.
+    int decode(int entry, int[] squares) {
+        int index = entry % positionsPerSide;
+        for (int slot = squares.length - 1; slot > 0; slot--) {
+            squares[slot] = index & 63;
+            index >>>= 6;
+        }
+        squares[0] = regionSquares[index];
+        return entry / positionsPerSide;
+    }
+
+    // Value of an entry as Tablebases.result(wdl, dtm), or NOT_FOUND for an
+    // illegal one.
+    int probe(int entry) {
+        int wdl = (data.get(HEADER_SIZE + (entry >>> 2)) >>> ((entry & 3) * 2)) & 3;
+        int dtm = data.get(dtmOffset + entry) & 0xFF;
+        return switch (wdl) {
+            case WIN -> Tablebases.result(Tablebases.WIN, dtm);
+            case LOSS -> Tablebases.result(Tablebases.LOSS, dtm);
+            case DRAW -> Tablebases.result(Tablebases.DRAW, 0);
+            default -> Tablebases.NOT_FOUND;
+        };
+    }
+
+    static void writeHeader(ByteBuffer header, Tablebase layout) {
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putShort((short) VERSION);
+        header.putShort((short) layout.pieceCount());
+        header.putInt(layout.entryCount());
+        byte[] name = Arrays.copyOf(layout.material().getBytes(StandardCharsets.US_ASCII), MATERIAL_BYTES);
+        Arrays.fill(name, layout.material().length(), MATERIAL_BYTES, (byte) ' ');
+        header.put(name);
+        header.putInt(0);
+    }
+
+    static int swapColor(int piece) {
+        return piece < 6 ? piece + 6 : piece - 6;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private static String sortPieces(String pieces) {
+        char[] letters = pieces.toCharArray();
+        StringBuilder sorted = new StringBuilder();
+        for (char letter : PIECE_LETTERS.toCharArray()) {
+            for (char c : letters) {
+                if (c == letter) {
+                    sorted.append(c);
+                }
+            }
+        }
+        return sorted.toString();
+    }
+
+    // Positive when the first side's pieces are stronger: compared piece by
+    // piece from the strongest, and more pieces win a tie.
+    private static int compareSides(String first, String second) {
+        for (int i = 0; i < Math.min(first.length(), second.length()); i++) {
+            int difference = PIECE_LETTERS.indexOf(second.charAt(i)) - PIECE_LETTERS.indexOf(first.charAt(i));
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return first.length() - second.length();
+    }
+
+    private static void addUnique(List<String> materials, String material) {
+        if (!materials.contains(material)) {
+            materials.add(material);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,419 @@
+package chess.chess;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongBinaryOperator;
+
+// Builds endgame tables by retrograde analysis. Every position is examined
+// once going forward: mates and stalemates are final, captures and
+// promotions are looked up in the smaller tables they lead to, and the
+// remaining moves are only counted. Then the tables are filled backwards
+// one ply at a time: each position decided at distance n-1 un-moves to its
+// predecessors, which win at n if it was lost, and are lost at n once every
+// move they have leads to a win for the opponent. Positions never decided
+// are draws. Each ply is split over all cores; entries are claimed with
+// compare-and-set, so two threads can reach the same predecessor.
+//
+// TablebaseGenerator [material...], e.g. KQK KRK KPK KQKR; without arguments
+// every table up to four pieces. Missing smaller tables are built first.
+public class TablebaseGenerator implements AutoCloseable {
+    static final String[] ALL_MATERIALS = {
+            "KQK", "KRK", "KBK", "KNK", "KPK",
+            "KQQK", "KQRK", "KQBK", "KQNK", "KQPK", "KRRK", "KRBK", "KRNK", "KRPK",
+            "KBBK", "KBNK", "KBPK", "KNNK", "KNPK", "KPPK",
+            "KQKQ", "KQKR", "KQKB", "KQKN", "KQKP", "KRKR", "KRKB", "KRKN", "KRKP",
+            "KBKB", "KBKN", "KBKP", "KNKN", "KNKP", "KPKP"};
+
+    // per-entry state while generating, packed with the distance as
+    // state << 8 | dtm; SAFE is undecided but cannot lose, because a capture
+    // or promotion draws or wins
+    private static final int UNKNOWN = 0;
+    private static final int SAFE = 1;
+    private static final int DRAWN = 2;
+    private static final int WON = 3;
+    private static final int LOST = 4;
+    private static final int ILLEGAL = 5;
+
+    private static final int MAX_DTM = 255;
+    private static final int CHUNKS_PER_THREAD = 16;
+
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(short[].class);
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Path directory;
+    private final ForkJoinPool workers;
+
+    public TablebaseGenerator(Path directory, int threads) {
+        this.directory = directory;
+        this.workers = new ForkJoinPool(Math.max(1, threads));
+    }
+
+    public static void main(String[] args) throws IOException {
+        String[] materials = args.length > 0 ? args : ALL_MATERIALS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try (TablebaseGenerator generator = new TablebaseGenerator(Tablebases.DIRECTORY, threads)) {
+            Tablebases.load(Tablebases.DIRECTORY);
+            for (String material : materials) {
+                generator.generate(Tablebase.canonicalMaterial(material));
+            }
+        }
+    }
+
+    // Writes the table for the material unless it is already loaded, after
+    // the tables its captures and promotions lead to.
+    public Tablebase generate(String material) throws IOException {
+        Tablebase existing = Tablebases.find(material);
+        if (existing != null) {
+            return existing;
+        }
+        Tablebase layout = Tablebase.layout(material);
+        for (String successor : layout.successors()) {
+            generate(successor);
+        }
+
+        long start = System.nanoTime();
+        Build build = new Build(layout);
+        int maxPending = (int) forEachChunk(layout, build::initialize, Math::max);
+        int longest = 0;
+        for (int distance = 1; ; distance++) {
+            if (distance > MAX_DTM) {
+                throw new IllegalStateException(material + ": mate longer than " + MAX_DTM + " plies");
+            }
+            int level = distance;
+            long decided = forEachChunk(layout, (worker, from, to) -> build.retract(worker, from, to, level), Long::sum);
+            decided += forEachChunk(layout, (worker, from, to) -> build.settlePending(from, to, level), Long::sum);
+            if (decided > 0) {
+                longest = distance;
+            } else if (distance >= maxPending) {
+                break;
+            }
+        }
+
+        Path file = directory.resolve(material + Tablebase.FILE_SUFFIX);
+        long[] counts = build.write(file);
+        Tablebase table = Tablebase.open(file);
+        Tablebases.register(table);
+        System.out.printf("%s: %,d positions, %,d wins, %,d draws, %,d losses, longest mate %d plies, %d ms%n",
+                material, counts[Tablebase.WIN] + counts[Tablebase.DRAW] + counts[Tablebase.LOSS],
+                counts[Tablebase.WIN], counts[Tablebase.DRAW], counts[Tablebase.LOSS], longest,
+                (System.nanoTime() - start) / 1_000_000);
+        return table;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private interface RangeTask {
+        long run(Worker worker, int from, int to);
+    }
+
+    // Runs the task over all entries in chunks on the pool and combines what
+    // the chunks return.
+    private long forEachChunk(Tablebase layout, RangeTask task, LongBinaryOperator combine) {
+        int entries = layout.entryCount();
+        int chunks = workers.getParallelism() * CHUNKS_PER_THREAD;
+        int size = (entries + chunks - 1) / chunks;
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+        for (int from = 0; from < entries; from += size) {
+            int start = from;
+            int end = Math.min(entries, from + size);
+            tasks.add(workers.submit(() -> task.run(new Worker(layout.pieceCount()), start, end)));
+        }
+        long total = 0;
+        for (ForkJoinTask<Long> chunk : tasks) {
+            total = combine.applyAsLong(total, chunk.join());
+        }
+        return total;
+    }
+
+    // Scratch space of one chunk.
+    private static final class Worker {
+        final Position position = new Position();
+        final int[] squares;
+        final int[] predecessor;
+        final int[] moves = new int[MoveGenerator.MAX_MOVES];
+        final int[] found = new int[MoveGenerator.MAX_MOVES];
+
+        Worker(int pieces) {
+            squares = new int[pieces];
+            predecessor = new int[pieces];
+        }
+    }
+
+    // Working arrays of one table.
+    private static final class Build {
+        private final Tablebase layout;
+        private final short[] values;
+        // moves that stay in this table and are not yet known to lose
+        private final int[] counters;
+        // shortest win through a capture or promotion, 0 if none
+        private final byte[] exitWins;
+        // distance of the loss when every move loses, set by the slowest
+        // losing capture or promotion; 0 if none
+        private final byte[] lossFloors;
+
+        Build(Tablebase layout) {
+            this.layout = layout;
+            int entries = layout.entryCount();
+            values = new short[entries];
+            counters = new int[entries];
+            exitWins = new byte[entries];
+            lossFloors = new byte[entries];
+        }
+
+        // First pass: legality, mates, captures and promotions, move counts.
+        // Returns the longest pending distance in the chunk.
+        long initialize(Worker worker, int from, int to) {
+            long pending = 0;
+            Position position = worker.position;
+            int[] squares = worker.squares;
+            for (int entry = from; entry < to; entry++) {
+                int sideToMove = layout.decode(entry, squares);
+                if (!isLegal(entry, squares, sideToMove)) {
+                    values[entry] = value(ILLEGAL, 0);
+                    continue;
+                }
+                position.clear(sideToMove);
+                for (int slot = 0; slot < squares.length; slot++) {
+                    position.put(layout.slotPiece(slot), squares[slot]);
+                }
+                int count = MoveGenerator.generate(position, worker.moves);
+                if (count == 0) {
+                    values[entry] = MoveGenerator.isInCheck(position) ? value(LOST, 0) : value(DRAWN, 0);
+                    continue;
+                }
+
+                int children = 0;
+                int exitWin = 0;
+                int lossFloor = 0;
+                boolean safe = false;
+                for (int i = 0; i < count; i++) {
+                    int move = worker.moves[i];
+                    position.makeMove(move);
+                    if (Move.isCapture(move) || Move.isPromotion(move)) {
+                        int result = Tablebases.lookup(position);
+                        if (result == Tablebases.NOT_FOUND) {
+                            throw new IllegalStateException("No table for " + position.toFen());
+                        }
+                        int distance = Tablebases.dtm(result) + 1;
+                        switch (Tablebases.wdl(result)) {
+                            case Tablebases.LOSS -> {
+                                exitWin = exitWin == 0 ? distance : Math.min(exitWin, distance);
+                                safe = true;
+                            }
+                            case Tablebases.WIN -> lossFloor = Math.max(lossFloor, distance);
+                            default -> safe = true;
+                        }
+                    } else {
+                        worker.found[children++] = layout.index(position, false);
+                    }
+                    position.unmakeMove();
+                }
+                counters[entry] = distinct(worker.found, children);
+                exitWins[entry] = (byte) exitWin;
+                lossFloors[entry] = (byte) lossFloor;
+                values[entry] = value(safe ? SAFE : UNKNOWN, 0);
+                pending = Math.max(pending, Math.max(exitWin, lossFloor));
+            }
+            return pending;
+        }
+
+        // Un-moves every position decided at distance - 1 and decides the
+        // predecessors that follow from it. Returns how many it decided.
+        long retract(Worker worker, int from, int to, int distance) {
+            long decided = 0;
+            int[] squares = worker.squares;
+            int[] predecessor = worker.predecessor;
+            for (int entry = from; entry < to; entry++) {
+                int value = values[entry];
+                int state = value >>> 8;
+                if ((value & 0xFF) != distance - 1 || (state != WON && state != LOST)) {
+                    continue;
+                }
+                int sideToMove = layout.decode(entry, squares);
+                int mover = sideToMove ^ 1;
+                long occupied = occupancy(squares);
+                int count = 0;
+                for (int slot = 0; slot < squares.length; slot++) {
+                    int piece = layout.slotPiece(slot);
+                    if (Position.colorOf(piece) != mover) {
+                        continue;
+                    }
+                    long origins = unmoveOrigins(piece, squares[slot], occupied);
+                    while (origins != 0) {
+                        int origin = Long.numberOfTrailingZeros(origins);
+                        origins &= origins - 1;
+                        System.arraycopy(squares, 0, predecessor, 0, squares.length);
+                        predecessor[slot] = origin;
+                        long before = occupied ^ Bitboards.bit(squares[slot]) ^ Bitboards.bit(origin);
+                        // the side that just moved cannot have left the other king in check
+                        if (!attacks(predecessor, mover, predecessor[sideToMove], before)) {
+                            worker.found[count++] = layout.index(predecessor, mover);
+                        }
+                    }
+                }
+                count = distinct(worker.found, count);
+                for (int i = 0; i < count; i++) {
+                    int parent = worker.found[i];
+                    if (state == LOST) {
+                        if (claim(parent, UNKNOWN, WON, distance) || claim(parent, SAFE, WON, distance)) {
+                            decided++;
+                        }
+                    } else if ((int) COUNTERS.getAndAdd(counters, parent, -1) == 1
+                            && (lossFloors[parent] & 0xFF) <= distance && claim(parent, UNKNOWN, LOST, distance)) {
+                        decided++;
+                    }
+                }
+            }
+            return decided;
+        }
+
+        // Wins through a capture or promotion, and losses held back by a slow
+        // losing capture, that fall due at this distance.
+        long settlePending(int from, int to, int distance) {
+            long decided = 0;
+            for (int entry = from; entry < to; entry++) {
+                int state = values[entry] >>> 8;
+                if (state == UNKNOWN || state == SAFE) {
+                    if ((exitWins[entry] & 0xFF) == distance) {
+                        values[entry] = value(WON, distance);
+                        decided++;
+                    } else if (state == UNKNOWN && counters[entry] == 0 && (lossFloors[entry] & 0xFF) == distance) {
+                        values[entry] = value(LOST, distance);
+                        decided++;
+                    }
+                }
+            }
+            return decided;
+        }
+
+        // Writes the table through a mapping of a temporary file and moves it
+        // into place. Returns the number of entries per Tablebase value.
+        long[] write(Path file) throws IOException {
+            Files.createDirectories(file.getParent());
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            long[] counts = new long[4];
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_WRITE, 0, layout.fileSize());
+                Tablebase.writeHeader(data.slice(0, Tablebase.HEADER_SIZE), layout);
+                int packed = 0;
+                for (int entry = 0; entry < values.length; entry++) {
+                    int wdl = switch (values[entry] >>> 8) {
+                        case WON -> Tablebase.WIN;
+                        case LOST -> Tablebase.LOSS;
+                        case ILLEGAL -> Tablebase.ILLEGAL;
+                        default -> Tablebase.DRAW;
+                    };
+                    counts[wdl]++;
+                    packed |= wdl << ((entry & 3) * 2);
+                    if ((entry & 3) == 3 || entry == values.length - 1) {
+                        data.put(Tablebase.HEADER_SIZE + (entry >>> 2), (byte) packed);
+                        packed = 0;
+                    }
+                    boolean decisive = wdl == Tablebase.WIN || wdl == Tablebase.LOSS;
+                    data.put(layout.dtmOffset() + entry, (byte) (decisive ? values[entry] & 0xFF : 0));
+                }
+                data.force();
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return counts;
+        }
+
+        private boolean claim(int entry, int expected, int state, int distance) {
+            return VALUES.compareAndSet(values, entry, value(expected, 0), value(state, distance));
+        }
+
+        // Pieces on distinct squares, no pawn on the first or last rank, the
+        // side not to move not in check, and the canonical numbering of its
+        // symmetry class.
+        private boolean isLegal(int entry, int[] squares, int sideToMove) {
+            long occupied = occupancy(squares);
+            if (Long.bitCount(occupied) != squares.length) {
+                return false;
+            }
+            for (int slot = 2; slot < squares.length; slot++) {
+                int rank = squares[slot] >>> 3;
+                if (Position.typeOf(layout.slotPiece(slot)) == Position.PAWN && (rank == 0 || rank == 7)) {
+                    return false;
+                }
+            }
+            if (layout.index(squares, sideToMove) != entry) {
+                return false;
+            }
+            return !attacks(squares, sideToMove, squares[sideToMove ^ 1], occupied);
+        }
+
+        private boolean attacks(int[] squares, int color, int target, long occupied) {
+            for (int slot = 0; slot < squares.length; slot++) {
+                int piece = layout.slotPiece(slot);
+                if (Position.colorOf(piece) == color && (Attacks.pieceAttacks(Position.typeOf(piece), color,
+                        squares[slot], occupied) & Bitboards.bit(target)) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static short value(int state, int distance) {
+        return (short) (state << 8 | distance);
+    }
+
+    private static long occupancy(int[] squares) {
+        long occupied = 0;
+        for (int square : squares) {
+            occupied |= Bitboards.bit(square);
+        }
+        return occupied;
+    }
+
+    // Squares the piece can have come from without capturing. Pawns only
+    // step back, and two steps from their fourth rank.
+    static long unmoveOrigins(int piece, int square, long occupied) {
+        int color = Position.colorOf(piece);
+        int type = Position.typeOf(piece);
+        if (type != Position.PAWN) {
+            return Attacks.pieceAttacks(type, color, square, occupied) & ~occupied;
+        }
+        int back = color == Position.WHITE ? -8 : 8;
+        int origin = square + back;
+        int originRank = origin >>> 3;
+        if (originRank < 1 || originRank > 6 || (occupied & Bitboards.bit(origin)) != 0) {
+            return 0;
+        }
+        long origins = Bitboards.bit(origin);
+        int fourthRank = color == Position.WHITE ? 3 : 4;
+        if (square >>> 3 == fourthRank && (occupied & Bitboards.bit(origin + back)) == 0) {
+            origins |= Bitboards.bit(origin + back);
+        }
+        return origins;
+    }
+
+    // Sorts the first count values and drops duplicates; returns how many are
+    // left. Symmetric positions can reach the same entry by different moves.
+    private static int distinct(int[] values, int count) {
+        Arrays.sort(values, 0, count);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size == 0 || values[size - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return size;
+    }
+}
\ No newline at end of file
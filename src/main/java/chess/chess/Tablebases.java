@@ -0,0 +1,207 @@
+package chess.chess;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// The endgame tables available to the engine and the board, found in the
+// tablebase directory the first time anything is probed. A probe finds the
+// table for the position's material, swapping colors when black holds the
+// listed side, and reads one entry from its mapping.
+//
+// Results are packed ints: win, draw or loss for the side to move in the
+// high bits and the distance to mate in plies in the low byte; see wdl() and
+// dtm(). NOT_FOUND means no table covers the position.
+public final class Tablebases {
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+
+    static final Path DIRECTORY = Paths.get(System.getProperty("chess.tablebase.dir",
+            Paths.get(System.getProperty("user.home"), ".chess", "tablebases").toString()));
+
+    private record Entry(long key, Tablebase table, boolean flipped) {
+    }
+
+    private static volatile Entry[] entries = new Entry[0];
+    private static volatile int maxPieces;
+    private static volatile boolean loaded;
+
+    private Tablebases() {
+    }
+
+    // Value of the position for the side to move. Positions with castling
+    // rights or an en passant capture are not in any table.
+    public static int probe(Position position) {
+        if (Long.bitCount(position.occupied()) > maxPieces() || position.castlingRights() != 0
+                || position.isEpCapturable()) {
+            return NOT_FOUND;
+        }
+        return lookup(position);
+    }
+
+    // Largest number of pieces, kings included, any loaded table has; 0 when
+    // there are none.
+    public static int maxPieces() {
+        if (!loaded) {
+            loadDefault();
+        }
+        return maxPieces;
+    }
+
+    // Threads that get here during the first load wait for it, so none of
+    // them searches without the tables.
+    private static synchronized void loadDefault() {
+        if (!loaded) {
+            load(DIRECTORY);
+        }
+    }
+
+    // The move that wins fastest, draws, or loses slowest, or Move.NONE if
+    // the position is not covered.
+    public static int bestMove(Position position) {
+        if (probe(position) == NOT_FOUND) {
+            return Move.NONE;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(position, moves);
+        int best = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            // the move's en passant right is ignored the same way the tables
+            // ignore it
+            int result = lookup(position);
+            position.unmakeMove();
+            if (result == NOT_FOUND) {
+                continue;
+            }
+            // the opponent's loss is our win: sooner is better; their win is
+            // our loss: later is better
+            int rank = switch (wdl(result)) {
+                case LOSS -> 1000 - dtm(result);
+                case WIN -> -1000 + dtm(result);
+                default -> 0;
+            };
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = moves[i];
+            }
+        }
+        return best;
+    }
+
+    // "White mates in 7", "Black mates in 3", "Draw", or null when no
+    // table covers the position.
+    public static String describe(Position position) {
+        int result = probe(position);
+        if (result == NOT_FOUND) {
+            return null;
+        }
+        String mover = position.isWhiteToMove() ? "White" : "Black";
+        String other = position.isWhiteToMove() ? "Black" : "White";
+        int moves = (dtm(result) + 1) / 2;
+        return switch (wdl(result)) {
+            case WIN -> mover + " mates in " + moves;
+            case LOSS -> dtm(result) == 0 ? "Checkmate" : other + " mates in " + moves;
+            default -> "Draw";
+        };
+    }
+
+    public static int wdl(int result) {
+        return result >> 8;
+    }
+
+    public static int dtm(int result) {
+        return result & 0xFF;
+    }
+
+    static int result(int wdl, int dtm) {
+        return (wdl << 8) | dtm;
+    }
+
+    // Opens every table in the directory that is not loaded yet. Unreadable
+    // files are reported and skipped.
+    public static synchronized void load(Path directory) {
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + Tablebase.FILE_SUFFIX)) {
+                for (Path file : files) {
+                    try {
+                        Tablebase table = Tablebase.open(file);
+                        if (find(table.materialKey()) == null) {
+                            register(table);
+                        } else {
+                            table.close();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Skipping tablebase " + file + ": " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot read tablebase directory " + directory + ": " + e.getMessage());
+            }
+        }
+        // only now, so that maxPieces() callers wait for the tables
+        loaded = true;
+    }
+
+    static synchronized void register(Tablebase table) {
+        long key = table.materialKey();
+        long flippedKey = flip(key);
+        Entry[] current = entries;
+        Entry[] next = new Entry[current.length + (flippedKey == key ? 1 : 2)];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = new Entry(key, table, false);
+        if (flippedKey != key) {
+            next[current.length + 1] = new Entry(flippedKey, table, true);
+        }
+        entries = next;
+        maxPieces = Math.max(maxPieces, table.pieceCount());
+    }
+
+    static Tablebase find(String material) {
+        return find(Tablebase.layout(material).materialKey());
+    }
+
+    // Table value ignoring castling rights and en passant; bare kings are a
+    // draw without a table.
+    static int lookup(Position position) {
+        long occupied = position.occupied();
+        if (Long.bitCount(occupied) == 2) {
+            return result(DRAW, 0);
+        }
+        long key = materialKey(position);
+        for (Entry entry : entries) {
+            if (entry.key == key) {
+                return entry.table.probe(entry.table.index(position, entry.flipped));
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private static Tablebase find(long key) {
+        for (Entry entry : entries) {
+            if (entry.key == key) {
+                return entry.table;
+            }
+        }
+        return null;
+    }
+
+    // One 4-bit count per piece code.
+    private static long materialKey(Position position) {
+        long key = 0;
+        for (int piece = 0; piece < 12; piece++) {
+            key += (long) Long.bitCount(position.pieces(piece)) << (piece * 4);
+        }
+        return key;
+    }
+
+    // Key of the same material with the colors swapped.
+    private static long flip(long key) {
+        return ((key & 0xFFFFFFL) << 24) | (key >>> 24);
+    }
+}
\ No newline at end of file
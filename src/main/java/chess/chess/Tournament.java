@@ -0,0 +1,639 @@
+package chess.chess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless match between two UCI engines, a candidate and a baseline, to
+// tell whether a change gains or loses strength. Each engine runs as its own
+// process, so two builds of this project (or any UCI engines) can be
+// compared; by default both run UciMain from the current classpath.
+//
+// Games run concurrently, one per worker thread, each worker owning a
+// single-threaded process of both engines. Every opening is played twice
+// with colors swapped. Games end by the rules, by the endgame tables when
+// they cover the position, or as a draw after a ply limit; an engine that
+// crashes, plays an illegal move or does not answer in time loses. The move
+// deadline is a multiple of the movetime, or a fixed cap for node limits;
+// an engine that misses it is killed. After each game the sequential
+// probability ratio test decides whether the candidate is at least elo1
+// stronger or at most elo0, and the match stops as soon as it does.
+//
+// Usage: Tournament [--engine1=CMD] [--engine2=CMD] [--name1=N] [--name2=N]
+//     [--option1=Name=Value]... [--option2=Name=Value]...
+//     [--games=N] [--concurrency=N] [--nodes=N | --movetime=MS]
+//     [--openings=FILE] [--seed=N] [--maxplies=N]
+//     [--sprt=ELO0,ELO1] [--alpha=A] [--beta=B] [--pgn=FILE] [--db]
+public class Tournament {
+    public static final int DEFAULT_GAMES = 20_000;
+    public static final int DEFAULT_NODES = 20_000;
+    public static final int DEFAULT_MAX_PLIES = 400;
+    public static final int DEFAULT_HASH_MB = 16;
+    private static final int RANDOM_PLIES = 4;
+    private static final int DB_BATCH_GAMES = 100;
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+    // deadline for a move: MOVE_TIMEOUT_FACTOR * movetime + MOVE_TIMEOUT_GRACE_MS,
+    // or NODES_MOVE_TIMEOUT_MS under a node limit
+    private static final long MOVE_TIMEOUT_FACTOR = 5;
+    private static final long MOVE_TIMEOUT_GRACE_MS = 2_000;
+    private static final long NODES_MOVE_TIMEOUT_MS = 60_000;
+    // deadline for uciok and readyok, which include starting the JVM
+    private static final long HANDSHAKE_TIMEOUT_MS = 30_000;
+
+    // kills engine processes that miss a deadline
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tournament-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Short, balanced lines used when no opening file is given; each is
+    // extended by a few random moves so that replays differ.
+    private static final String[] BOOK = {
+            "e2e4 e7e5", "e2e4 c7c5", "e2e4 e7e6", "e2e4 c7c6", "e2e4 d7d6", "e2e4 d7d5",
+            "e2e4 g7g6", "e2e4 b8c6", "d2d4 d7d5", "d2d4 g8f6", "d2d4 f7f5", "d2d4 e7e6",
+            "c2c4 e7e5", "c2c4 c7c5", "c2c4 g8f6", "g1f3 d7d5", "g1f3 g8f6", "g1f3 c7c5",
+            "b2b3 e7e5", "g2g3 d7d5", "f2f4 d7d5", "e2e4 e7e5 g1f3 b8c6", "d2d4 d7d5 c2c4 e7e6",
+            "d2d4 g8f6 c2c4 g7g6",
+    };
+
+    // An engine as it is started: its display name, command line and UCI
+    // options. Threads and Hash default to 1 and DEFAULT_HASH_MB.
+    public record EngineConfig(String name, List<String> command, Map<String, String> options) {
+    }
+
+    // A position to start from: a FEN, or null for the standard start, and
+    // moves in UCI notation played from it.
+    public record Opening(String fen, List<String> moves) {
+    }
+
+    private final EngineConfig candidate;
+    private final EngineConfig baseline;
+    private final List<Opening> openings;
+    private final String goCommand;
+    private final long moveTimeoutMillis;
+    private final int concurrency;
+    private final MatchScore score = new MatchScore();
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private int maxPlies = DEFAULT_MAX_PLIES;
+    private double elo0 = 0;
+    private double elo1 = 5;
+    private double alpha = 0.05;
+    private double beta = 0.05;
+    private Writer pgn;
+    private ConnectionPool pool;
+    private final GameBatch batch = new GameBatch();
+    private long lastProgressNanos;
+    private String verdict;
+
+    public Tournament(EngineConfig candidate, EngineConfig baseline, List<Opening> openings, String goCommand,
+                      int concurrency) {
+        this.candidate = candidate;
+        this.baseline = baseline;
+        this.openings = openings;
+        this.goCommand = goCommand;
+        this.moveTimeoutMillis = moveTimeoutMillis(goCommand);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    static long moveTimeoutMillis(String goCommand) {
+        String[] tokens = goCommand.trim().split("\\s+");
+        for (int i = 0; i + 1 < tokens.length; i++) {
+            if (tokens[i].equals("movetime")) {
+                return Long.parseLong(tokens[i + 1]) * MOVE_TIMEOUT_FACTOR + MOVE_TIMEOUT_GRACE_MS;
+            }
+        }
+        return NODES_MOVE_TIMEOUT_MS;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> command1 = defaultCommand();
+        List<String> command2 = defaultCommand();
+        String name1 = "candidate";
+        String name2 = "baseline";
+        Map<String, String> options1 = new LinkedHashMap<>();
+        Map<String, String> options2 = new LinkedHashMap<>();
+        int games = DEFAULT_GAMES;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        String go = "go nodes " + DEFAULT_NODES;
+        Path openingFile = null;
+        long seed = 1;
+        int maxPlies = DEFAULT_MAX_PLIES;
+        double elo0 = 0;
+        double elo1 = 5;
+        double alpha = 0.05;
+        double beta = 0.05;
+        Path pgnFile = null;
+        boolean database = false;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String key = equals < 0 ? arg : arg.substring(0, equals);
+            String value = equals < 0 ? "" : arg.substring(equals + 1);
+            switch (key) {
+                case "--engine1" -> command1 = Arrays.asList(value.trim().split("\\s+"));
+                case "--engine2" -> command2 = Arrays.asList(value.trim().split("\\s+"));
+                case "--name1" -> name1 = value;
+                case "--name2" -> name2 = value;
+                case "--option1" -> putOption(options1, value);
+                case "--option2" -> putOption(options2, value);
+                case "--games" -> games = Integer.parseInt(value);
+                case "--concurrency" -> concurrency = Integer.parseInt(value);
+                case "--nodes" -> go = "go nodes " + Long.parseLong(value);
+                case "--movetime" -> go = "go movetime " + Long.parseLong(value);
+                case "--openings" -> openingFile = Paths.get(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--maxplies" -> maxPlies = Integer.parseInt(value);
+                case "--sprt" -> {
+                    String[] bounds = value.split(",");
+                    elo0 = Double.parseDouble(bounds[0]);
+                    elo1 = Double.parseDouble(bounds[1]);
+                }
+                case "--alpha" -> alpha = Double.parseDouble(value);
+                case "--beta" -> beta = Double.parseDouble(value);
+                case "--pgn" -> pgnFile = Paths.get(value);
+                case "--db" -> database = true;
+                default -> {
+                    System.err.println("unknown argument " + arg);
+                    System.err.println("usage: Tournament [--engine1=CMD] [--engine2=CMD] [--name1=N] [--name2=N]"
+                            + " [--option1=Name=Value] [--option2=Name=Value] [--games=N] [--concurrency=N]"
+                            + " [--nodes=N | --movetime=MS] [--openings=FILE] [--seed=N] [--maxplies=N]"
+                            + " [--sprt=ELO0,ELO1] [--alpha=A] [--beta=B] [--pgn=FILE] [--db]");
+                    return;
+                }
+            }
+        }
+
+        List<Opening> openings = openingFile != null ? readOpenings(openingFile) : randomOpenings(games / 2 + 1, seed);
+        Tournament tournament = new Tournament(new EngineConfig(name1, command1, options1),
+                new EngineConfig(name2, command2, options2), openings, go, concurrency);
+        tournament.maxPlies(maxPlies).sprt(elo0, elo1, alpha, beta);
+        if (database) {
+            DatabaseManager.initializeDatabase();
+            tournament.database(DatabaseManager.getPool());
+        }
+        try (Writer writer = pgnFile == null ? null : Files.newBufferedWriter(pgnFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            tournament.pgn(writer);
+            tournament.run(games);
+        } finally {
+            if (database) {
+                DatabaseManager.shutdown();
+            }
+        }
+    }
+
+    public Tournament maxPlies(int plies) {
+        maxPlies = plies;
+        return this;
+    }
+
+    // Tests H0: the candidate is elo0 stronger, against H1: it is elo1
+    // stronger, with false positive rate alpha and false negative rate beta.
+    public Tournament sprt(double elo0, double elo1, double alpha, double beta) {
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+        return this;
+    }
+
+    // Appends every game to the writer in PGN; null writes none.
+    public Tournament pgn(Writer writer) {
+        pgn = writer;
+        return this;
+    }
+
+    // Stores every game, its moves and its opening statistics like imported
+    // games; null stores nothing.
+    public Tournament database(ConnectionPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    public MatchScore score() {
+        return score;
+    }
+
+    // Plays up to maxGames games, fewer when the SPRT decides first, and
+    // returns the verdict.
+    public String run(int maxGames) throws InterruptedException {
+        System.out.printf("%s vs %s, %d openings, %s, %d concurrent games, SPRT elo0=%.1f elo1=%.1f alpha=%.2f beta=%.2f%n",
+                candidate.name(), baseline.name(), openings.size(), goCommand, concurrency, elo0, elo1, alpha, beta);
+        lastProgressNanos = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "tournament-game");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(() -> playGames(maxGames));
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        writeBatch();
+
+        if (verdict == null) {
+            verdict = "no decision, LLR " + llrText();
+        }
+        System.out.println("Finished: " + score.summary());
+        System.out.println("SPRT: " + verdict);
+        return verdict;
+    }
+
+    private void playGames(int maxGames) {
+        try (UciProcess first = new UciProcess(candidate); UciProcess second = new UciProcess(baseline)) {
+            while (!finished.get()) {
+                int index = nextGame.getAndIncrement();
+                if (index >= maxGames) {
+                    break;
+                }
+                boolean candidateWhite = index % 2 == 0;
+                Opening opening = openings.get((index / 2) % openings.size());
+                String result = playGame(index, opening, candidateWhite ? first : second, candidateWhite ? second : first);
+                double points = result.equals("1-0") ? 1 : result.equals("0-1") ? 0 : 0.5;
+                record(candidateWhite ? points : 1 - points);
+            }
+        } catch (IOException e) {
+            System.err.println("Stopping the match: " + e.getMessage());
+            finished.set(true);
+        }
+    }
+
+    // Returns the PGN result.
+    private String playGame(int index, Opening opening, UciProcess white, UciProcess black) throws IOException {
+        white.newGame();
+        black.newGame();
+        long gameId = DatabaseManager.newGameId();
+        Position position = opening.fen() == null ? Position.startPosition() : Position.fromFen(opening.fen());
+        Position start = position.copy();
+        String positionCommand = opening.fen() == null ? "position startpos" : "position fen " + opening.fen();
+        StringBuilder uciMoves = new StringBuilder();
+        List<String> sanMoves = new ArrayList<>();
+        List<MoveRecord> records = new ArrayList<>();
+        for (String uci : opening.moves()) {
+            int move = Move.fromUci(position, uci);
+            if (move == Move.NONE) {
+                throw new IOException("Opening move " + uci + " is illegal in " + position.toFen());
+            }
+            playMove(gameId, position, move, uciMoves, sanMoves, records);
+        }
+
+        String result;
+        String termination;
+        while (true) {
+            GameStatus status = Game.status(position);
+            if (status.isOver()) {
+                result = status.result();
+                termination = status.name().toLowerCase().replace('_', ' ');
+                break;
+            }
+            int tablebase = Tablebases.probe(position);
+            if (tablebase != Tablebases.NOT_FOUND) {
+                int wdl = position.isWhiteToMove() ? Tablebases.wdl(tablebase) : -Tablebases.wdl(tablebase);
+                result = wdl > 0 ? "1-0" : wdl < 0 ? "0-1" : "1/2-1/2";
+                termination = "adjudicated by tablebase";
+                break;
+            }
+            if (position.ply() - start.ply() >= maxPlies) {
+                result = "1/2-1/2";
+                termination = "adjudicated after " + maxPlies + " plies";
+                break;
+            }
+            UciProcess mover = position.isWhiteToMove() ? white : black;
+            String reply;
+            String failure = null;
+            try {
+                reply = mover.bestMove(uciMoves.isEmpty() ? positionCommand : positionCommand + " moves" + uciMoves,
+                        goCommand, moveTimeoutMillis);
+            } catch (IOException e) {
+                reply = null;
+                failure = e.getMessage();
+            }
+            int move = reply == null ? Move.NONE : parseReply(position, reply);
+            if (move == Move.NONE) {
+                result = position.isWhiteToMove() ? "0-1" : "1-0";
+                termination = reply == null ? failure : mover.config.name() + " played illegal move " + reply;
+                break;
+            }
+            playMove(gameId, position, move, uciMoves, sanMoves, records);
+        }
+
+        String whiteName = white.config.name();
+        String blackName = black.config.name();
+        if (pgn != null) {
+            writePgn(index, whiteName, blackName, result, termination, opening.fen(), start, sanMoves);
+        }
+        if (pool != null) {
+            addToBatch(new GameRecord(gameId, whiteName, blackName, result, opening.fen()), records);
+        }
+        return result;
+    }
+
+    // An engine's bestmove, or NONE when it is not a legal move here, the
+    // null move "0000" included.
+    private static int parseReply(Position position, String reply) {
+        try {
+            return Move.fromUci(position, reply);
+        } catch (IllegalArgumentException e) {
+            return Move.NONE;
+        }
+    }
+
+    private static void playMove(long gameId, Position position, int move, StringBuilder uciMoves,
+                                 List<String> sanMoves, List<MoveRecord> records) {
+        records.add(MoveRecord.of(gameId, position, move));
+        sanMoves.add(San.toSan(position, move));
+        uciMoves.append(' ').append(Move.toUci(move));
+        position.makeMove(move);
+    }
+
+    private void record(double points) {
+        score.add(points);
+        double llr = score.llr(elo0, elo1);
+        String decision = null;
+        if (llr <= MatchScore.lowerBound(alpha, beta)) {
+            decision = "H0 accepted (candidate is not " + elo1 + " Elo stronger), LLR " + llrText();
+        } else if (llr >= MatchScore.upperBound(alpha, beta)) {
+            decision = "H1 accepted (candidate is " + elo1 + " Elo stronger), LLR " + llrText();
+        }
+        synchronized (this) {
+            if (decision != null && verdict == null) {
+                verdict = decision;
+                finished.set(true);
+            }
+            long now = System.nanoTime();
+            if (now - lastProgressNanos >= PROGRESS_INTERVAL_NANOS) {
+                lastProgressNanos = now;
+                System.out.println("Games " + score.games() + ": " + score.summary() + "  LLR " + llrText());
+            }
+        }
+    }
+
+    private String llrText() {
+        return String.format("%.2f [%.2f, %.2f]", score.llr(elo0, elo1), MatchScore.lowerBound(alpha, beta),
+                MatchScore.upperBound(alpha, beta));
+    }
+
+    private synchronized void writePgn(int index, String white, String black, String result, String termination,
+                                       String fen, Position start, List<String> sanMoves) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append("[Event \"").append(candidate.name()).append(" vs ").append(baseline.name()).append("\"]\n");
+        text.append("[Date \"").append(LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd"))).append("\"]\n");
+        text.append("[Round \"").append(index + 1).append("\"]\n");
+        text.append("[White \"").append(white).append("\"]\n");
+        text.append("[Black \"").append(black).append("\"]\n");
+        text.append("[Result \"").append(result).append("\"]\n");
+        if (fen != null) {
+            text.append("[SetUp \"1\"]\n");
+            text.append("[FEN \"").append(fen).append("\"]\n");
+        }
+        text.append('\n');
+
+        StringBuilder line = new StringBuilder();
+        int moveNumber = start.fullmoveNumber();
+        boolean whiteToMove = start.isWhiteToMove();
+        for (int i = 0; i < sanMoves.size(); i++) {
+            String token = whiteToMove ? moveNumber + ". " + sanMoves.get(i)
+                    : i == 0 ? moveNumber + "... " + sanMoves.get(i) : sanMoves.get(i);
+            appendWrapped(text, line, token);
+            if (!whiteToMove) {
+                moveNumber++;
+            }
+            whiteToMove = !whiteToMove;
+        }
+        appendWrapped(text, line, "{" + termination + "}");
+        appendWrapped(text, line, result);
+        text.append(line).append("\n\n");
+        pgn.write(text.toString());
+        pgn.flush();
+    }
+
+    // Keeps movetext lines under 80 characters.
+    private static void appendWrapped(StringBuilder text, StringBuilder line, String token) {
+        if (line.length() > 0 && line.length() + 1 + token.length() > 79) {
+            text.append(line).append('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+
+    private void addToBatch(GameRecord game, List<MoveRecord> moves) {
+        synchronized (batch) {
+            batch.add(game, moves);
+            if (batch.size() >= DB_BATCH_GAMES) {
+                writeBatch();
+            }
+        }
+    }
+
+    private void writeBatch() {
+        synchronized (batch) {
+            if (pool == null || batch.size() == 0) {
+                return;
+            }
+            try {
+                batch.write(pool);
+            } catch (SQLException e) {
+                System.err.println("Could not store " + batch.size() + " games: " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    // One opening per line: a FEN, or UCI moves from the start position.
+    // Blank lines and lines starting with # are skipped.
+    public static List<Opening> readOpenings(Path file) throws IOException {
+        List<Opening> openings = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.indexOf('/') >= 0) {
+                openings.add(new Opening(trimmed, List.of()));
+            } else {
+                openings.add(new Opening(null, List.of(trimmed.split("\\s+"))));
+            }
+        }
+        if (openings.isEmpty()) {
+            throw new IOException("No openings in " + file);
+        }
+        return openings;
+    }
+
+    // Book lines followed by RANDOM_PLIES random legal moves, the same for
+    // the same seed.
+    public static List<Opening> randomOpenings(int count, long seed) {
+        Random random = new Random(seed);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        List<Opening> openings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Position position = Position.startPosition();
+            List<String> line = new ArrayList<>(List.of(BOOK[i % BOOK.length].split(" ")));
+            for (String uci : line) {
+                position.makeMove(Move.fromUci(position, uci));
+            }
+            for (int ply = 0; ply < RANDOM_PLIES; ply++) {
+                int legal = MoveGenerator.generate(position, moves);
+                if (legal == 0) {
+                    break;
+                }
+                int move = moves[random.nextInt(legal)];
+                line.add(Move.toUci(move));
+                position.makeMove(move);
+            }
+            openings.add(new Opening(null, List.copyOf(line)));
+        }
+        return openings;
+    }
+
+    private static List<String> defaultCommand() {
+        return List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), UciMain.class.getName());
+    }
+
+    private static void putOption(Map<String, String> options, String nameValue) {
+        int equals = nameValue.indexOf('=');
+        if (equals < 0) {
+            throw new IllegalArgumentException("Expected Name=Value, got " + nameValue);
+        }
+        options.put(nameValue.substring(0, equals), nameValue.substring(equals + 1));
+    }
+
+    // One engine process spoken to over UCI; restarted on the next game if
+    // it died.
+    private static final class UciProcess implements AutoCloseable {
+        private final EngineConfig config;
+        private Process process;
+        private BufferedReader in;
+        private Writer out;
+        // set by the watchdog when it kills the process
+        private volatile boolean timedOut;
+
+        UciProcess(EngineConfig config) {
+            this.config = config;
+        }
+
+        void newGame() throws IOException {
+            if (process == null || !process.isAlive()) {
+                start();
+            }
+            send("ucinewgame");
+            send("isready");
+            await("readyok", HANDSHAKE_TIMEOUT_MS);
+        }
+
+        // Returns the move in UCI notation. An engine that has not answered
+        // within timeoutMillis is killed.
+        String bestMove(String position, String go, long timeoutMillis) throws IOException {
+            send(position);
+            send(go);
+            String line = await("bestmove", timeoutMillis);
+            String[] tokens = line.split("\\s+");
+            return tokens.length > 1 ? tokens[1] : "";
+        }
+
+        private void start() throws IOException {
+            close();
+            process = new ProcessBuilder(config.command())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+            out = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII));
+            send("uci");
+            await("uciok", HANDSHAKE_TIMEOUT_MS);
+            Map<String, String> options = new LinkedHashMap<>();
+            options.put("Threads", "1");
+            options.put("Hash", Integer.toString(DEFAULT_HASH_MB));
+            options.putAll(config.options());
+            for (Map.Entry<String, String> option : options.entrySet()) {
+                send("setoption name " + option.getKey() + " value " + option.getValue());
+            }
+            send("isready");
+            await("readyok", HANDSHAKE_TIMEOUT_MS);
+        }
+
+        private void send(String command) throws IOException {
+            out.write(command);
+            out.write('\n');
+            out.flush();
+        }
+
+        // Reads up to and including the first line starting with prefix. The
+        // watchdog kills the process after timeoutMillis, which ends the read.
+        private String await(String prefix, long timeoutMillis) throws IOException {
+            Process running = process;
+            timedOut = false;
+            ScheduledFuture<?> kill = WATCHDOG.schedule(() -> {
+                timedOut = true;
+                running.destroyForcibly();
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith(prefix)) {
+                        return line;
+                    }
+                }
+            } catch (IOException e) {
+                if (!timedOut) {
+                    throw e;
+                }
+            } finally {
+                kill.cancel(false);
+            }
+            if (timedOut) {
+                throw new IOException(config.name() + " sent no " + prefix + " within " + timeoutMillis + " ms");
+            }
+            throw new IOException(config.name() + " crashed");
+        }
+
+        @Override
+        public void close() {
+            if (process == null) {
+                return;
+            }
+            try {
+                send("quit");
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException e) {
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+            process = null;
+        }
+    }
+}
\ No newline at end of file
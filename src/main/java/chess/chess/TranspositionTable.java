@@ -0,0 +1,100 @@
+package chess.chess;
+
+import java.util.Arrays;
+
+// Fixed-size transposition table shared by all search threads without locks.
+// Each entry is two longs: the key XOR the data, and the data. A reader only
+// accepts an entry whose first word XOR second word gives back its key, so a
+// slot that was half-written by another thread simply reads as a miss.
+public class TranspositionTable {
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    private final long[] table;
+    private final int mask;
+    private int generation;
+
+    public TranspositionTable(int sizeMb) {
+        long entries = Math.max(1024, (long) sizeMb * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 28));
+        table = new long[size * 2];
+        mask = size - 1;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        generation = 0;
+    }
+
+    // Called once per search so entries from older searches are replaced first.
+    public void newSearch() {
+        generation = (generation + 1) & 255;
+    }
+
+    // Returns the packed entry data, or 0 when the position is not stored.
+    public long probe(long key) {
+        int index = ((int) key & mask) << 1;
+        long data = table[index + 1];
+        if ((table[index] ^ data) != key || data == 0) {
+            return 0;
+        }
+        return data;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = ((int) key & mask) << 1;
+        long oldData = table[index + 1];
+        boolean sameKey = (table[index] ^ oldData) == key;
+        if (sameKey && oldData != 0) {
+            if (move == Move.NONE) {
+                move = move(oldData);
+            }
+            if (bound != BOUND_EXACT && depth < depth(oldData) - 2 && generation(oldData) == generation) {
+                return;
+            }
+        } else if (oldData != 0 && generation(oldData) == generation && depth < depth(oldData)) {
+            return;
+        }
+        long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) generation << 42);
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+
+    // Permille of sampled slots written during the current search, as UCI reports it.
+    public int hashfull() {
+        int used = 0;
+        int samples = Math.min(1000, mask + 1);
+        for (int i = 0; i < samples; i++) {
+            long data = table[i * 2 + 1];
+            if (data != 0 && generation(data) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / samples;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 42) & 0xFF);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,264 @@
+package chess.chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// UCI front-end over stdin/stdout for GUIs, tournament managers and batch
+// analysis. It runs the same Position, MoveGenerator and Engine as the JavaFX
+// game but never loads JavaFX or the database layer.
+public class UciMain {
+    private static final String NAME = "Chess";
+
+    private final PrintStream out;
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uci-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Engine engine;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int hashMb = Engine.DEFAULT_HASH_MB;
+    // off by default so repeated runs, e.g. in tournaments, search afresh
+    private boolean analysisCache;
+    private Position position = Position.startPosition();
+    private Future<?> search;
+
+    public UciMain(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        UciMain uci = new UciMain(new PrintStream(System.out, true, StandardCharsets.US_ASCII));
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!uci.handle(line.trim())) {
+                break;
+            }
+        }
+        uci.shutdown();
+    }
+
+    // Handles one command line. Returns false on quit.
+    public boolean handle(String line) {
+        String[] tokens = line.split("\\s+");
+        switch (tokens[0]) {
+            case "uci":
+                out.println("id name " + NAME);
+                out.println("id author Endterm project");
+                out.println("option name Threads type spin default " + threads + " min 1 max 512");
+                out.println("option name Hash type spin default " + hashMb + " min 1 max 65536");
+                out.println("option name AnalysisCache type check default " + analysisCache);
+                out.println("uciok");
+                break;
+            case "isready":
+                out.println("readyok");
+                break;
+            case "setoption":
+                setOption(line);
+                break;
+            case "ucinewgame":
+                awaitSearch();
+                engine().newGame();
+                position = Position.startPosition();
+                break;
+            case "position":
+                awaitSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                awaitSearch();
+                try {
+                    go(tokens);
+                } catch (NumberFormatException e) {
+                    out.println("info string invalid go parameters");
+                }
+                break;
+            case "stop":
+                if (engine != null) {
+                    engine.stop();
+                }
+                awaitSearch();
+                break;
+            case "d":
+                out.println(position.toFen());
+                break;
+            case "quit":
+                return false;
+            default:
+                if (!tokens[0].isEmpty()) {
+                    out.println("info string unknown command " + tokens[0]);
+                }
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        if (engine != null) {
+            engine.stop();
+        }
+        awaitSearch();
+        searchThread.shutdownNow();
+        if (engine != null) {
+            engine.close();
+        }
+    }
+
+    private Engine engine() {
+        if (engine == null) {
+            engine = new Engine(threads, hashMb);
+            if (analysisCache) {
+                engine.setAnalysisCache(AnalysisCache.shared());
+            }
+        }
+        return engine;
+    }
+
+    private void setOption(String line) {
+        // setoption name <id> value <x>
+        int nameAt = line.indexOf(" name ");
+        int valueAt = line.indexOf(" value ");
+        if (nameAt < 0 || valueAt < nameAt) {
+            return;
+        }
+        String name = line.substring(nameAt + 6, valueAt).trim();
+        String value = line.substring(valueAt + 7).trim();
+        try {
+            if (name.equalsIgnoreCase("Threads")) {
+                threads = Math.max(1, Integer.parseInt(value));
+            } else if (name.equalsIgnoreCase("Hash")) {
+                hashMb = Math.max(1, Integer.parseInt(value));
+            } else if (name.equalsIgnoreCase("AnalysisCache")) {
+                analysisCache = Boolean.parseBoolean(value);
+            } else {
+                return;
+            }
+        } catch (NumberFormatException e) {
+            out.println("info string invalid value for " + name);
+            return;
+        }
+        awaitSearch();
+        if (engine != null) {
+            engine.close();
+            engine = null;
+        }
+    }
+
+    private void setPosition(String[] tokens) {
+        int index = 1;
+        Position next;
+        if (tokens.length > 1 && tokens[1].equals("startpos")) {
+            next = Position.startPosition();
+            index = 2;
+        } else if (tokens.length > 1 && tokens[1].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            index = 2;
+            while (index < tokens.length && !tokens[index].equals("moves")) {
+                fen.append(tokens[index++]).append(' ');
+            }
+            try {
+                next = Position.fromFen(fen.toString());
+            } catch (RuntimeException e) {
+                out.println("info string invalid fen");
+                return;
+            }
+        } else {
+            return;
+        }
+        if (index < tokens.length && tokens[index].equals("moves")) {
+            for (index++; index < tokens.length; index++) {
+                int move;
+                try {
+                    move = Move.fromUci(next, tokens[index]);
+                } catch (IllegalArgumentException e) {
+                    move = Move.NONE;
+                }
+                if (move == Move.NONE) {
+                    out.println("info string illegal move " + tokens[index]);
+                    break;
+                }
+                next.makeMove(move);
+            }
+        }
+        position = next;
+    }
+
+    private void go(String[] tokens) {
+        SearchLimits limits = new SearchLimits();
+        long wtime = 0;
+        long btime = 0;
+        long winc = 0;
+        long binc = 0;
+        int movesToGo = 0;
+        for (int i = 1; i < tokens.length; i++) {
+            String value = i + 1 < tokens.length ? tokens[i + 1] : "0";
+            switch (tokens[i]) {
+                case "depth" -> limits.depth(Integer.parseInt(value));
+                case "movetime" -> limits.moveTime(Long.parseLong(value));
+                case "nodes" -> limits.nodes(Long.parseLong(value));
+                case "wtime" -> wtime = Long.parseLong(value);
+                case "btime" -> btime = Long.parseLong(value);
+                case "winc" -> winc = Long.parseLong(value);
+                case "binc" -> binc = Long.parseLong(value);
+                case "movestogo" -> movesToGo = Integer.parseInt(value);
+                case "perft" -> {
+                    perft(Integer.parseInt(value));
+                    return;
+                }
+                default -> {
+                    continue;
+                }
+            }
+            i++;
+        }
+        long clock = position.isWhiteToMove() ? wtime : btime;
+        long increment = position.isWhiteToMove() ? winc : binc;
+        if (clock > 0 && limits.getMoveTimeMillis() == 0) {
+            // spend a slice of the remaining time, keeping a margin for overhead
+            long slice = clock / (movesToGo > 0 ? movesToGo + 1 : 30) + increment * 3 / 4;
+            limits.moveTime(Math.max(1, Math.min(slice, clock - 50)));
+        }
+
+        Position root = position.copy();
+        Engine current = engine();
+        // numbered now, so a "stop" right behind this "go" stops it even if
+        // the search thread has not picked it up yet
+        long searchId = current.newSearchId();
+        search = searchThread.submit(() -> {
+            SearchResult result = current.search(root, limits, this::printInfo, searchId);
+            out.println("bestmove " + Move.toUci(result.bestMove()));
+        });
+    }
+
+    private void perft(int depth) {
+        long start = System.nanoTime();
+        long nodes = new Perft().perft(position.copy(), depth);
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        out.println("info string perft " + depth + " nodes " + nodes + " time " + millis + " nps " + nodes * 1000 / millis);
+    }
+
+    private void printInfo(SearchResult info) {
+        String score = info.isMate() ? "mate " + info.mateIn() : "cp " + info.score();
+        out.println("info depth " + info.depth() + " score " + score + " nodes " + info.nodes()
+                + " nps " + info.nodesPerSecond() + " time " + info.elapsedMillis()
+                + " hashfull " + engine.hashfull() + " pv " + info.pvString());
+    }
+
+    private void awaitSearch() {
+        if (search == null) {
+            return;
+        }
+        try {
+            search.get();
+        } catch (Exception e) {
+            out.println("info string search failed: " + e);
+        }
+        search = null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package chess.chess;
+
+// 64-bit Zobrist keys. The keys come from a fixed seed so hashes are stable
+// across runs and can be stored, e.g. to look positions up in the database.
+public final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    // the pawn keys again, and 0 for every other piece
+    private static final long[][] PAWN_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long SIDE_TO_MOVE;
+
+    static {
+        long[] state = {0x3243F6A8885A308DL};
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                PIECE_SQUARE[piece][square] = nextKey(state);
+            }
+        }
+        // each right gets its own key and combinations are XORs of them
+        long[] rights = {nextKey(state), nextKey(state), nextKey(state), nextKey(state)};
+        for (int mask = 0; mask < 16; mask++) {
+            for (int bit = 0; bit < 4; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    CASTLING[mask] ^= rights[bit];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = nextKey(state);
+        }
+        SIDE_TO_MOVE = nextKey(state);
+        PAWN_SQUARE[Position.makePiece(Position.WHITE, Position.PAWN)] = PIECE_SQUARE[Position.makePiece(Position.WHITE, Position.PAWN)];
+        PAWN_SQUARE[Position.makePiece(Position.BLACK, Position.PAWN)] = PIECE_SQUARE[Position.makePiece(Position.BLACK, Position.PAWN)];
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    // Key of the piece if it is a pawn, else 0; XORed into Position.pawnHash()
+    // without a branch.
+    public static long pawn(int piece, int square) {
+        return PAWN_SQUARE[piece][square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int square) {
+        return EN_PASSANT_FILE[square & 7];
+    }
+
+    public static long sideToMove() {
+        return SIDE_TO_MOVE;
+    }
+
+    // Full recomputation, used when a position is set up and to cross-check
+    // the incrementally maintained Position.hash().
+    public static long compute(Position position) {
+        long hash = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece != Position.NO_PIECE) {
+                hash ^= PIECE_SQUARE[piece][square];
+            }
+        }
+        hash ^= CASTLING[position.castlingRights()];
+        if (position.isEpCapturable()) {
+            hash ^= enPassant(position.epSquare());
+        }
+        if (position.sideToMove() == Position.BLACK) {
+            hash ^= SIDE_TO_MOVE;
+        }
+        return hash;
+    }
+
+    private static long nextKey(long[] state) {
+        long z = (state[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
\ No newline at end of file
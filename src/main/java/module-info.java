@@ -1,17 +1,8 @@
 module com.example.chess {
     requires javafx.controls;
-    requires javafx.fxml;
-    requires javafx.web;
-
-    requires org.controlsfx.controls;
-    requires com.dlsc.formsfx;
-    requires net.synedra.validatorfx;
-    requires org.kordamp.ikonli.javafx;
-    requires org.kordamp.bootstrapfx.core;
-    requires eu.hansolo.tilesfx;
-    requires com.almasb.fxgl.all;
     requires java.sql;
+    requires java.management;
+    requires jdk.jfr;
 
     exports chess.chess;
-    opens chess.chess to javafx.fxml;
 }
\ No newline at end of file
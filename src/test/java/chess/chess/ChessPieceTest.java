@@ -0,0 +1,57 @@
+package chess.chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChessPieceTest {
+    @Test
+    void movesOnStartingBoard() {
+        ChessPiece[][] board = board(Position.START_FEN);
+        // e2e4 and, since the board has no turn, e7e5 as well
+        assertTrue(board[6][4].isValidMove(6, 4, 4, 4, board));
+        assertTrue(board[1][4].isValidMove(1, 4, 3, 4, board));
+        assertFalse(board[6][4].isValidMove(6, 4, 3, 4, board));
+        assertFalse(board[7][1].isValidMove(7, 1, 5, 1, board));
+        assertFalse(board[6][4].isValidMove(6, 4, 8, 4, board));
+    }
+
+    @Test
+    void castlingWhereKingAndRookAreHome() {
+        ChessPiece[][] board = board("r3k2r/8/8/8/8/8/7R/R3K3 w - - 0 1");
+        // white's h-rook has left h1, black's rooks are home
+        assertFalse(board[7][4].isValidMove(7, 4, 7, 6, board));
+        assertTrue(board[7][4].isValidMove(7, 4, 7, 2, board));
+        assertTrue(board[0][4].isValidMove(0, 4, 0, 6, board));
+        assertTrue(board[0][4].isValidMove(0, 4, 0, 2, board));
+    }
+
+    @Test
+    void boardWithoutKingHasNoValidMoves() {
+        ChessPiece[][] board = board("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1");
+        board[0][4] = null;
+        assertFalse(board[6][4].isValidMove(6, 4, 5, 4, board));
+        board[0][4] = ChessPiece.of(Position.makePiece(Position.WHITE, Position.KING));
+        assertFalse(board[6][4].isValidMove(6, 4, 5, 4, board));
+    }
+
+    @Test
+    void sideNotToMoveInCheckHasNoValidMoves() {
+        // black to move would be checking a white king that is not to move
+        ChessPiece[][] board = board("4k3/8/8/8/8/8/4r3/4K3 w - - 0 1");
+        assertTrue(board[7][4].isValidMove(7, 4, 6, 4, board));
+        assertFalse(board[6][4].isValidMove(6, 4, 6, 0, board));
+    }
+
+    private static ChessPiece[][] board(String fen) {
+        Position position = Position.fromFen(fen);
+        ChessPiece[][] board = new ChessPiece[8][8];
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                board[row][col] = ChessPiece.of(position.pieceAt(row, col));
+            }
+        }
+        return board;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package chess.chess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameArchiveTest {
+    private static final String[][] GAMES = {
+            {"e2e4", "e7e5", "g1f3"},
+            {"d2d4", "d7d5"},
+            {"c2c4", "e7e5", "b1c3", "g8f6"}
+    };
+
+    @TempDir
+    Path directory;
+
+    private StubDatabase database;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = StubDatabase.register();
+        pool = new ConnectionPool(database.url(), "chess", "chess", 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+        database.deregister();
+    }
+
+    @Test
+    void exportWritesEveryGame() throws Exception {
+        Path file = directory.resolve("games.arc");
+        database.setQueryRows(exportRows(), -1);
+        assertEquals(GAMES.length, GameArchive.export(pool, file));
+        try (GameArchive archive = GameArchive.open(file)) {
+            assertEquals(GAMES.length, archive.gameCount());
+            for (int game = 0; game < GAMES.length; game++) {
+                assertEquals(game + 1, archive.gameId(game));
+                assertEquals(GAMES[game].length, archive.plyCount(game));
+            }
+        }
+    }
+
+    @Test
+    void failedExportKeepsPreviousArchive() throws Exception {
+        Path file = directory.resolve("games.arc");
+        database.setQueryRows(exportRows(), -1);
+        GameArchive.export(pool, file);
+        byte[] previous = Files.readAllBytes(file);
+
+        // the connection drops in the middle of the second game
+        database.setQueryRows(exportRows(), GAMES[0].length + 1);
+        assertThrows(SQLException.class, () -> GameArchive.export(pool, file));
+        assertEquals(List.of(file), listDirectory());
+        assertArrayEquals(previous, Files.readAllBytes(file));
+
+        // and a first export that fails leaves nothing behind
+        Path other = directory.resolve("other.arc");
+        assertThrows(SQLException.class, () -> GameArchive.export(pool, other));
+        assertFalse(Files.exists(other));
+    }
+
+    // game_id, move, white, black, result, start_fen in export order
+    private static List<Object[]> exportRows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int game = 0; game < GAMES.length; game++) {
+            Position position = Position.startPosition();
+            for (String uci : GAMES[game]) {
+                int move = Move.fromUci(position, uci);
+                rows.add(new Object[] {(long) game + 1, move, "white", "black", "1-0", null});
+                position.makeMove(move);
+            }
+        }
+        return rows;
+    }
+
+    private List<Path> listDirectory() throws Exception {
+        try (var files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package chess.chess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameServerTest {
+    private GameServer server;
+    private Thread acceptor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new GameServer(0);
+        acceptor = Thread.ofVirtual().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+        acceptor.join();
+    }
+
+    @Test
+    void badInputGetsAnErrorAndTheSessionCarriesOn() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            out.println("new 8/8/8/8/8/8/8/8 w - - 0 1");
+            assertTrue(in.readLine().startsWith("error Invalid FEN"));
+            out.println("move i1a3");
+            assertEquals("error Invalid square: i1", in.readLine());
+            out.println("move e2e5");
+            assertEquals("illegal e2e5", in.readLine());
+            out.println("move e2e4");
+            assertTrue(in.readLine().startsWith("ok "));
+            out.println("quit");
+            assertEquals("ok bye", in.readLine());
+        }
+    }
+}
\ No newline at end of file
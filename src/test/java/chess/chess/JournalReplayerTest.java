@@ -0,0 +1,122 @@
+package chess.chess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalReplayerTest {
+    private static final long GAME_ID = 7;
+    private static final String[] MOVES = {"d2d4", "d7d5", "c2c4", "e7e6", "b1c3", "g8f6"};
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @TempDir
+    Path directory;
+
+    private StubDatabase database;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = StubDatabase.register();
+        pool = new ConnectionPool(database.url(), "chess", "chess", 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+        database.deregister();
+    }
+
+    @Test
+    void replaysJournalAndCheckpoints() throws Exception {
+        try (MoveJournal journal = new MoveJournal(directory);
+             JournalReplayer replayer = JournalReplayer.start(journal, pool)) {
+            List<Long> seqs = appendAll(journal);
+            long last = seqs.get(seqs.size() - 1);
+            assertTrue(replayer.awaitReplayed(last, TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(seqs, List.copyOf(database.rows().keySet()));
+            assertEquals(last, journal.checkpointSeq());
+        }
+    }
+
+    @Test
+    void replayingAgainStoresEveryMoveOnce() throws Exception {
+        List<Long> seqs;
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            seqs = appendAll(journal);
+        }
+        // a previous run committed the first half and died before its checkpoint
+        Map<Long, Integer> expected = Map.copyOf(rowsOf(seqs));
+        for (int i = 0; i < seqs.size() / 2; i++) {
+            database.insert(seqs.get(i), expected.get(seqs.get(i)));
+        }
+        long last = seqs.get(seqs.size() - 1);
+        try (MoveJournal journal = new MoveJournal(directory);
+             JournalReplayer replayer = JournalReplayer.start(journal, pool)) {
+            assertTrue(replayer.awaitReplayed(last, TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        // and this one loses its checkpoint, so everything is replayed again
+        Files.delete(directory.resolve("checkpoint"));
+        try (MoveJournal journal = new MoveJournal(directory);
+             JournalReplayer replayer = JournalReplayer.start(journal, pool)) {
+            assertTrue(replayer.awaitReplayed(last, TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertEquals(2 * seqs.size(), database.insertedRows());
+        assertEquals(expected, database.rows());
+    }
+
+    @Test
+    void outageKeepsMovesInJournalUntilDatabaseReturns() throws Exception {
+        // down from the start, so not even the schema exists yet
+        database.setDown(true);
+        try (MoveJournal journal = new MoveJournal(directory);
+             JournalReplayer replayer = JournalReplayer.start(journal, pool)) {
+            List<Long> seqs = appendAll(journal);
+            long last = seqs.get(seqs.size() - 1);
+            assertFalse(replayer.awaitReplayed(last, 500, TimeUnit.MILLISECONDS));
+            assertTrue(database.rows().isEmpty());
+            assertTrue(journal.checkpointSeq() < seqs.get(0));
+
+            database.setDown(false);
+            assertTrue(replayer.awaitReplayed(last, TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(database.isSchemaCreated());
+            assertEquals(seqs, List.copyOf(database.rows().keySet()));
+        }
+    }
+
+    private static List<Long> appendAll(MoveJournal journal) throws Exception {
+        Position position = Position.startPosition();
+        List<Long> seqs = new ArrayList<>();
+        for (String uci : MOVES) {
+            int move = Move.fromUci(position, uci);
+            seqs.add(journal.append(MoveRecord.of(GAME_ID, position, move)));
+            position.makeMove(move);
+        }
+        return seqs;
+    }
+
+    // The move column each sequence number ends up with.
+    private static Map<Long, Integer> rowsOf(List<Long> seqs) {
+        Position position = Position.startPosition();
+        Map<Long, Integer> rows = new TreeMap<>();
+        for (int i = 0; i < MOVES.length; i++) {
+            int move = Move.fromUci(position, MOVES[i]);
+            rows.put(seqs.get(i), move);
+            position.makeMove(move);
+        }
+        return rows;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+package chess.chess;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveJournalTest {
+    private static final long GAME_ID = 42;
+    private static final String[] MOVES = {"e2e4", "e7e5", "g1f3", "b8c6", "f1b5"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void entriesSurviveReopening() throws Exception {
+        List<MoveRecord> written = records();
+        long first;
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            first = journal.append(written.get(0));
+            for (int i = 1; i < written.size(); i++) {
+                journal.append(written.get(i));
+            }
+        }
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            assertEquals(first + written.size() - 1, journal.lastSeq());
+            List<MoveJournal.Entry> entries = journal.read(first, 100);
+            assertEquals(written.size(), entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                assertEquals(first + i, entries.get(i).seq());
+                assertEquals(written.get(i), entries.get(i).move());
+            }
+        }
+    }
+
+    @Test
+    void tornRecordIsCutOffOnRecovery() throws Exception {
+        List<MoveRecord> written = records();
+        long first;
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            first = journal.append(written.get(0));
+            journal.append(written.get(1));
+        }
+        // a crash in the middle of the third write
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[MoveJournal.RECORD_SIZE / 2]));
+        }
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            assertEquals(first + 1, journal.lastSeq());
+            assertEquals(first + 2, journal.append(written.get(2)));
+            assertTrue(journal.awaitDurable(first + 2, 5, TimeUnit.SECONDS));
+            assertEquals(written.get(2), journal.read(first, 100).get(2).move());
+        }
+        assertEquals(3L * MoveJournal.RECORD_SIZE, Files.size(onlySegment()));
+    }
+
+    @Test
+    void readsOnlyDurableEntries() throws Exception {
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            long first = -1;
+            for (MoveRecord record : records()) {
+                long seq = journal.append(record);
+                first = first < 0 ? seq : first;
+                List<MoveJournal.Entry> entries = journal.read(first, 100);
+                // durableSeq only grows, so it still covers what read returned
+                assertTrue(entries.isEmpty() || entries.get(entries.size() - 1).seq() <= journal.durableSeq());
+            }
+            assertTrue(journal.awaitDurable(journal.lastSeq(), 5, TimeUnit.SECONDS));
+            assertEquals(MOVES.length, journal.read(first, 100).size());
+        }
+    }
+
+    @Test
+    void numberingResumesAfterCheckpointWhenEntriesAreLost() throws Exception {
+        List<MoveRecord> written = records();
+        long last = -1;
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            for (MoveRecord record : written) {
+                last = journal.append(record);
+            }
+            journal.checkpoint(last);
+        }
+        // power loss takes the tail of the segment the database already has
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            channel.truncate(2L * MoveJournal.RECORD_SIZE);
+        }
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            assertEquals(last, journal.checkpointSeq());
+            long seq = journal.append(written.get(0));
+            assertEquals(last + 1, seq);
+            assertTrue(journal.awaitDurable(seq, 5, TimeUnit.SECONDS));
+            assertEquals(1, journal.read(seq, 100).size());
+        }
+    }
+
+    private static List<MoveRecord> records() {
+        Position position = Position.startPosition();
+        List<MoveRecord> records = new ArrayList<>();
+        for (String uci : MOVES) {
+            int move = Move.fromUci(position, uci);
+            records.add(MoveRecord.of(GAME_ID, position, move));
+            position.makeMove(move);
+        }
+        return records;
+    }
+
+    @Test
+    void secondOpenerIsRefusedUntilTheFirstCloses() throws Exception {
+        List<MoveRecord> written = records();
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            journal.append(written.get(0));
+            IOException e = assertThrows(IOException.class, () -> new MoveJournal(directory));
+            assertTrue(e.getMessage().contains("in use"), e.getMessage());
+            journal.append(written.get(1));
+        }
+        try (MoveJournal journal = new MoveJournal(directory)) {
+            assertEquals(2, journal.read(journal.firstSeq(), 100).size());
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            files.forEach(segments::add);
+        }
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package chess.chess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OpeningExplorerTest {
+    private StubDatabase database;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = StubDatabase.register();
+        pool = new ConnectionPool(database.url(), "chess", "chess", 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+        database.deregister();
+    }
+
+    @Test
+    void laterOccurrencesAreAddedToTheOpeningCounts() throws Exception {
+        Position position = Position.startPosition();
+        int e4 = Move.fromUci(position, "e2e4");
+        int d4 = Move.fromUci(position, "d2d4");
+        int illegal = Move.fromUci(Position.fromFen(PositionTest.KIWIPETE), "e1g1");
+        // the stub answers the position_stats and the move_history query alike
+        database.setQueryRows(List.of(
+                new Object[] {e4, 2L, 1L, 1L, 0L},
+                new Object[] {d4, 3L, 0L, 1L, 2L},
+                new Object[] {illegal, 9L, 9L, 0L, 0L}), -1);
+
+        List<Continuation> continuations = new OpeningExplorer(pool).continuations(position);
+        assertEquals(List.of(new Continuation(d4, 6, 0, 2, 4), new Continuation(e4, 4, 2, 2, 0)), continuations);
+    }
+}
\ No newline at end of file
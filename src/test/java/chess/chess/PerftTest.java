@@ -0,0 +1,48 @@
+package chess.chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Published perft totals (chessprogramming.org, "Perft Results") for the
+// positions that exercise castling, en passant, promotions, pins and checks.
+class PerftTest {
+    static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    @Test
+    void startPosition() {
+        assertPerft(Position.START_FEN, 20, 400, 8_902, 197_281, 4_865_609);
+    }
+
+    @Test
+    void kiwipete() {
+        assertPerft(PositionTest.KIWIPETE, 48, 2_039, 97_862, 4_085_603);
+    }
+
+    @Test
+    void position3() {
+        assertPerft(POSITION_3, 14, 191, 2_812, 43_238, 674_624);
+    }
+
+    @Test
+    void position4() {
+        assertPerft(POSITION_4, 6, 264, 9_467, 422_333);
+    }
+
+    @Test
+    void position5() {
+        assertPerft(POSITION_5, 44, 1_486, 62_379, 2_103_487);
+    }
+
+    // expected[i] is the node count at depth i + 1
+    private static void assertPerft(String fen, long... expected) {
+        Perft perft = new Perft();
+        Position position = Position.fromFen(fen);
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], perft.perft(position, depth), "perft(" + depth + ") of " + fen);
+        }
+        assertEquals(fen, position.toFen());
+    }
+}
\ No newline at end of file
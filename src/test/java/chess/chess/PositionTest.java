@@ -0,0 +1,172 @@
+package chess.chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PositionTest {
+    static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private static final String[] VALID_FENS = {
+            Position.START_FEN,
+            KIWIPETE,
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "4k3/8/8/8/8/8/8/4K3 b - - 12 40"
+    };
+
+    private static final String[] INVALID_FENS = {
+            "",
+            "4k3/8/8/8/8/8/8/4K3 w -",
+            "4k3/8/8/8/8/8/8/4K3 w - - 0 1 extra",
+            "4k3/8/8/8/8/8/4K3 w - - 0 1",
+            "4k3/8/8/8/8/8/8/8/4K3 w - - 0 1",
+            "4k3/8/8/8/8/8/8/4K4 w - - 0 1",
+            "4k3/8/8/8/8/8/8/4K2 w - - 0 1",
+            "4k3/8/8/8/8/8/8/4K3X w - - 0 1",
+            "4k3/8/8/8/8/8/8/4K3 x - - 0 1",
+            "8/8/8/8/8/8/8/4K3 w - - 0 1",
+            "4k3/8/8/8/8/8/8/8 w - - 0 1",
+            "4k3/8/8/8/8/8/8/3KK3 w - - 0 1",
+            "4k2P/8/8/8/8/8/8/4K3 w - - 0 1",
+            "4k3/8/8/8/8/8/8/4K3 w K - 0 1",
+            "4k3/8/8/8/8/8/8/4K2R w KK - 0 1",
+            "4k3/8/8/8/8/8/8/4K2R w X - 0 1",
+            "4k3/8/8/8/8/8/8/4K3 w - e6 0 1",
+            "4k3/8/8/4p3/8/8/8/4K3 w - e3 0 1",
+            "4k3/8/8/8/8/8/8/4K3 w - i6 0 1",
+            "4k3/8/8/8/8/8/8/4K3 w - - -1 1",
+            "4k3/8/8/8/8/8/8/4K3 w - - 0 0",
+            "4k3/8/8/8/8/8/8/4K3 w - - x 1",
+            "4k3/8/8/8/8/8/4R3/4K3 w - - 0 1"
+    };
+
+    @Test
+    void fenRoundTrips() {
+        for (String fen : VALID_FENS) {
+            assertEquals(fen, Position.fromFen(fen).toFen());
+        }
+    }
+
+    @Test
+    void moveCountersMayBeLeftOut() {
+        assertEquals("4k3/8/8/8/8/8/8/4K3 w - - 0 1", Position.fromFen("4k3/8/8/8/8/8/8/4K3 w - -").toFen());
+    }
+
+    @Test
+    void rejectsInvalidFen() {
+        for (String fen : INVALID_FENS) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Position.fromFen(fen), fen);
+            assertTrue(e.getMessage().startsWith("Invalid FEN"), e.getMessage());
+        }
+    }
+
+    @Test
+    void unmakeRestoresPosition() {
+        for (String fen : new String[] {Position.START_FEN, KIWIPETE, PerftTest.POSITION_3, PerftTest.POSITION_4, PerftTest.POSITION_5}) {
+            assertRestoredAlongTree(Position.fromFen(fen), 3);
+        }
+    }
+
+    @Test
+    void unmakeRestoresNullMove() {
+        Position position = Position.fromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+        String before = position.toFen();
+        long hash = position.hash();
+        position.makeNullMove();
+        assertEquals(Position.NO_SQUARE, position.epSquare());
+        position.unmakeMove();
+        assertEquals(before, position.toFen());
+        assertEquals(hash, position.hash());
+    }
+
+    @Test
+    void repetitionsSinceIrreversibleMove() {
+        Position position = Position.startPosition();
+        play(position, "g1f3", "g8f6", "f3g1");
+        assertFalse(position.hasRepetitionSinceIrreversibleMove());
+        play(position, "f6g8");
+        assertTrue(position.hasRepetitionSinceIrreversibleMove());
+        // the start position repeated earlier in the stretch
+        play(position, "b1c3");
+        assertFalse(position.isRepetition());
+        assertTrue(position.hasRepetitionSinceIrreversibleMove());
+        play(position, "e7e5");
+        assertFalse(position.hasRepetitionSinceIrreversibleMove());
+    }
+
+    @Test
+    void historyGrowsPastTheInitialUndoCapacity() {
+        Position position = Position.startPosition();
+        for (int i = 0; i < 300; i++) {
+            play(position, "g1f3", "g8f6", "f3g1", "f6g8");
+        }
+        Position copy = Position.startPosition();
+        copy.copyFrom(position);
+        for (Position p : new Position[] {position, copy}) {
+            assertEquals(1200, p.ply());
+            while (p.ply() > 0) {
+                p.unmakeMove();
+            }
+            assertEquals(Position.START_FEN, p.toFen());
+        }
+    }
+
+    @Test
+    void squareNamesAreBoundsChecked() {
+        assertEquals(0, Position.square("a1"));
+        assertEquals(63, Position.square("h8"));
+        for (String name : new String[] {"i1", "a9", "a0", "`1", "e", "e44"}) {
+            assertThrows(IllegalArgumentException.class, () -> Position.square(name), name);
+        }
+    }
+
+    @Test
+    void uciMovesNeedRealSquares() {
+        Position position = Position.startPosition();
+        assertEquals(Move.NONE, Move.fromUci(position, "e2e5"));
+        for (String uci : new String[] {"i1a3", "e2e9", "e2", "e2e4qq", "e7e8x", "0000"}) {
+            assertThrows(IllegalArgumentException.class, () -> Move.fromUci(position, uci), uci);
+        }
+    }
+
+    private static void play(Position position, String... moves) {
+        for (String uci : moves) {
+            position.makeMove(Move.fromUci(position, uci));
+        }
+    }
+
+    // Makes and unmakes every move down to the given depth, checking that each
+    // unmake restores the exact position and that the incrementally kept
+    // state after each make matches the same position set up from its FEN.
+    private static void assertRestoredAlongTree(Position position, int depth) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(position, moves);
+        for (int i = 0; i < count; i++) {
+            String fen = position.toFen();
+            long[] state = state(position);
+            int ply = position.ply();
+            position.makeMove(moves[i]);
+            assertArrayEquals(state(Position.fromFen(position.toFen())), state(position), position::toFen);
+            if (depth > 1) {
+                assertRestoredAlongTree(position, depth - 1);
+            }
+            position.unmakeMove();
+            assertEquals(fen, position.toFen());
+            assertArrayEquals(state, state(position), fen);
+            assertEquals(ply, position.ply());
+        }
+    }
+
+    private static long[] state(Position position) {
+        return new long[] {
+                position.hash(), position.pawnHash(), position.mgScore(), position.egScore(), position.phase(),
+                position.castlingRights(), position.epSquare(), position.halfmoveClock(), position.fullmoveNumber(),
+                position.occupied()
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package chess.chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchResultTest {
+    @Test
+    void tablebaseMatesBeyondMaxPlyAreMates() {
+        // an 85-ply table mate probed 120 plies into the search
+        int plies = 120 + 85;
+        SearchResult win = result(Search.MATE - plies);
+        assertTrue(win.isMate());
+        assertEquals(103, win.mateIn());
+        SearchResult loss = result(-Search.MATE + plies);
+        assertTrue(loss.isMate());
+        assertEquals(-103, loss.mateIn());
+        assertFalse(result(3000).isMate());
+    }
+
+    private static SearchResult result(int score) {
+        return new SearchResult(Move.NONE, score, 1, 0, 0, new int[0]);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+package chess.chess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// JDBC driver for "jdbc:stub:<name>" URLs that keeps journaled move rows in
+// memory. It understands just what the replayer sends: the schema DDL, which
+// it only notes, and the batched journal insert, which fails until the
+// schema has been created and, like ON CONFLICT (journal_seq) DO NOTHING,
+// keeps the first row per sequence number. Any query returns the rows given
+// to setQueryRows, optionally failing partway. While down, connecting and
+// every call on an open connection fail, as with an unreachable server.
+final class StubDatabase implements Driver {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final String url = "jdbc:stub:" + NEXT_ID.incrementAndGet();
+    // journal_seq -> the move column of the stored row
+    private final Map<Long, Integer> rows = new TreeMap<>();
+    private final AtomicInteger insertedRows = new AtomicInteger();
+    private volatile boolean down;
+    private volatile boolean schemaCreated;
+    private volatile List<Object[]> queryRows = List.of();
+    private volatile int queryFailsAfter = -1;
+
+    private StubDatabase() {
+    }
+
+    static StubDatabase register() throws SQLException {
+        StubDatabase database = new StubDatabase();
+        DriverManager.registerDriver(database);
+        return database;
+    }
+
+    void deregister() throws SQLException {
+        DriverManager.deregisterDriver(this);
+    }
+
+    String url() {
+        return url;
+    }
+
+    void setDown(boolean down) {
+        this.down = down;
+    }
+
+    boolean isSchemaCreated() {
+        return schemaCreated;
+    }
+
+    // Rows every query returns, column 1 first. With failsAfter >= 0 the
+    // result set throws once that many rows have been read.
+    void setQueryRows(List<Object[]> rows, int failsAfter) {
+        queryRows = List.copyOf(rows);
+        queryFailsAfter = failsAfter;
+    }
+
+    // Stores a row as if an earlier replay had committed it.
+    synchronized void insert(long seq, int move) {
+        rows.putIfAbsent(seq, move);
+    }
+
+    synchronized Map<Long, Integer> rows() {
+        return new TreeMap<>(rows);
+    }
+
+    // Rows sent in committed batches, duplicates included.
+    int insertedRows() {
+        return insertedRows.get();
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        checkUp();
+        return proxy(Connection.class, new StubConnection());
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return this.url.equals(url);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    private void checkUp() throws SQLException {
+        if (down) {
+            throw new SQLException("Connection refused");
+        }
+    }
+
+    private synchronized void commit(List<Object[]> batch) {
+        for (Object[] row : batch) {
+            rows.putIfAbsent((Long) row[10], (Integer) row[4]);
+            insertedRows.incrementAndGet();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StubDatabase.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    private final class StubConnection implements InvocationHandler {
+        private final List<Object[]> pending = new ArrayList<>();
+        private boolean autoCommit = true;
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "isValid":
+                    return !closed && !down;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "StubConnection " + url;
+                default:
+                    break;
+            }
+            checkUp();
+            switch (method.getName()) {
+                case "createStatement":
+                    return proxy(Statement.class, new StubStatement());
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StubStatement());
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "commit":
+                    commit(pending);
+                    pending.clear();
+                    return null;
+                case "rollback":
+                    pending.clear();
+                    return null;
+                default:
+                    throw new SQLFeatureNotSupportedException(method.getName());
+            }
+        }
+
+        private final class StubStatement implements InvocationHandler {
+            private final Object[] parameters = new Object[11];
+            private final List<Object[]> batch = new ArrayList<>();
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("close")) {
+                    return null;
+                }
+                checkUp();
+                switch (method.getName()) {
+                    case "executeUpdate":
+                        if (((String) args[0]).contains("move_history_journal_idx")) {
+                            schemaCreated = true;
+                        }
+                        return 0;
+                    case "setLong", "setInt", "setString":
+                        parameters[(Integer) args[0]] = args[1];
+                        return null;
+                    case "setFetchSize":
+                        return null;
+                    case "executeQuery":
+                        return proxy(ResultSet.class, new StubResultSet(queryRows, queryFailsAfter));
+                    case "addBatch":
+                        batch.add(parameters.clone());
+                        return null;
+                    case "executeBatch":
+                        if (!schemaCreated) {
+                            throw new SQLException("relation \"move_history\" does not exist");
+                        }
+                        pending.addAll(batch);
+                        if (autoCommit) {
+                            commit(pending);
+                            pending.clear();
+                        }
+                        int[] counts = new int[batch.size()];
+                        batch.clear();
+                        return counts;
+                    default:
+                        throw new SQLFeatureNotSupportedException(method.getName());
+                }
+            }
+        }
+
+        private final class StubResultSet implements InvocationHandler {
+            private final List<Object[]> rows;
+            private final int failsAfter;
+            private int next;
+
+            StubResultSet(List<Object[]> rows, int failsAfter) {
+                this.rows = rows;
+                this.failsAfter = failsAfter;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("close")) {
+                    return null;
+                }
+                checkUp();
+                switch (method.getName()) {
+                    case "next":
+                        if (next == failsAfter) {
+                            throw new SQLException("Connection reset");
+                        }
+                        return ++next <= rows.size();
+                    case "getLong", "getInt", "getString":
+                        return rows.get(next - 1)[(Integer) args[0] - 1];
+                    default:
+                        throw new SQLFeatureNotSupportedException(method.getName());
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
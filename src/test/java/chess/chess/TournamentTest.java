@@ -0,0 +1,69 @@
+package chess.chess;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TournamentTest {
+    @Test
+    void moveDeadlineFollowsTheGoLimit() {
+        assertEquals(5 * 100 + 2_000, Tournament.moveTimeoutMillis("go movetime 100"));
+        assertEquals(60_000, Tournament.moveTimeoutMillis("go nodes 20000"));
+    }
+
+    @Test
+    @Timeout(60)
+    void engineThatHangsLosesTheGame() throws Exception {
+        Tournament.EngineConfig hanging = new Tournament.EngineConfig("Hanging", command(HangingEngine.class), Map.of());
+        Tournament.EngineConfig baseline = new Tournament.EngineConfig("Baseline", command(UciMain.class), Map.of());
+        StringWriter pgn = new StringWriter();
+        Tournament tournament = new Tournament(hanging, baseline,
+                List.of(new Tournament.Opening(null, List.of("e2e4", "e7e5"))), "go movetime 20", 1).pgn(pgn);
+        tournament.run(1);
+        assertEquals(1, tournament.score().games());
+        assertEquals(0, tournament.score().score());
+        assertTrue(pgn.toString().contains("Hanging sent no bestmove within 2100 ms"), pgn.toString());
+    }
+
+    // test launchers do not always put the classes on java.class.path
+    private static List<String> command(Class<?> main) throws URISyntaxException {
+        String classPath = location(UciMain.class) + File.pathSeparator + location(TournamentTest.class);
+        return List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath, main.getName());
+    }
+
+    private static String location(Class<?> type) throws URISyntaxException {
+        return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+
+    // Completes the UCI handshake, then never answers a go.
+    static final class HangingEngine {
+        public static void main(String[] args) throws IOException, InterruptedException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("uci")) {
+                    System.out.println("uciok");
+                } else if (line.equals("isready")) {
+                    System.out.println("readyok");
+                } else if (line.startsWith("go")) {
+                    Thread.sleep(Long.MAX_VALUE);
+                }
+                System.out.flush();
+            }
+        }
+    }
+}
\ No newline at end of file
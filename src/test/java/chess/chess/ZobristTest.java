@@ -0,0 +1,64 @@
+package chess.chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The incrementally maintained hashes must match a recomputation from scratch
+// after every makeMove and unmakeMove in the move tree.
+class ZobristTest {
+    private static final int DEPTH = 3;
+
+    @Test
+    void startPosition() {
+        assertHashesAlongTree(Position.START_FEN);
+    }
+
+    @Test
+    void kiwipete() {
+        assertHashesAlongTree(PositionTest.KIWIPETE);
+    }
+
+    @Test
+    void enPassantAndPromotions() {
+        assertHashesAlongTree(PerftTest.POSITION_3);
+        assertHashesAlongTree(PerftTest.POSITION_4);
+        assertHashesAlongTree(PerftTest.POSITION_5);
+    }
+
+    private static void assertHashesAlongTree(String fen) {
+        Position position = Position.fromFen(fen);
+        assertHashes(position);
+        walk(position, DEPTH);
+    }
+
+    private static void walk(Position position, int depth) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(position, moves);
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            assertHashes(position);
+            if (depth > 1) {
+                walk(position, depth - 1);
+            }
+            position.unmakeMove();
+            assertHashes(position);
+        }
+    }
+
+    private static void assertHashes(Position position) {
+        assertEquals(Zobrist.compute(position), position.hash(), position::toFen);
+        assertEquals(pawnHash(position), position.pawnHash(), position::toFen);
+    }
+
+    private static long pawnHash(Position position) {
+        long hash = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece != Position.NO_PIECE) {
+                hash ^= Zobrist.pawn(piece, square);
+            }
+        }
+        return hash;
+    }
+}
\ No newline at end of file